@@ -43,6 +43,8 @@ import java.util.LinkedHashMap;
 import java.util.List;
 
 import com.intel.crashreport.database.EventDB;
+import com.intel.crashreport.database.RowIterator;
+import com.intel.crashreport.database.Selection;
 import com.intel.crashreport.database.Utils;
 import com.intel.crashreport.core.GeneralEvent;
 
@@ -55,6 +57,8 @@ import java.lang.reflect.Modifier;
 
 public class DBManager extends EventDB {
 	private static final String PATH_TO_DB ="/data/data/com.intel.crashreport/databases/eventlogs.db";
+	//events read at once
+	private static final int EVENTS_PAGE_SIZE = 128;
 
 	public static enum EventLevel{BASE,DETAIL,FULL};
 
@@ -81,17 +85,6 @@ public class DBManager extends EventDB {
 		return mDb.getVersion();
 	}
 
-	private String appendSqlStatementAND(String sSql, String sToAppend) {
-		if (sSql == null)
-			return null;
-
-		if (!sSql.equals(""))
-			sSql += " AND ";
-
-		sSql += sToAppend;
-		return sSql;
-	}
-
 	public void getBz() throws Exception {
 		Cursor mCursor = fetchAllBZs();
 		if (mCursor != null) {
@@ -103,19 +96,20 @@ public class DBManager extends EventDB {
 	public List<Event> getEvent(String sId) {
 		List<Event> curEvent = null;
 		try {
-			Cursor cursor = fetchEventFromWhereQuery(KEY_ID + " like '%" + sId +"%'");
-
-			if (cursor == null)
-				return curEvent;
+			RowIterator<GeneralEvent> events = iterateEvents(Selection.contains(KEY_ID, sId),
+					EVENTS_PAGE_SIZE);
+			try {
+				if (!events.hasNext())
+					return curEvent;
 
-			curEvent = new ArrayList<Event>();
-			while (!cursor.isAfterLast()) {
-				GeneralEvent ge = fillEventFromCursor(cursor);
+				curEvent = new ArrayList<Event>();
 				Device di = fillDeviceInformation();
-				curEvent.add(ge.getEventForServer(di));
-				cursor.moveToNext();
+				while (events.hasNext()) {
+					curEvent.add(events.next().getEventForServer(di));
+				}
+			} finally {
+				events.close();
 			}
-			cursor.close();
 		} catch (SQLException e) {
 			System.err.println( "Exception: " + e);
 		}
@@ -128,7 +122,7 @@ public class DBManager extends EventDB {
 		List<FileInfo> fileInfo = null;
 		Event curEvent = null;
 		try {
-			Cursor cursor = fetchEventFromWhereQuery(KEY_ID + " like '%" + sId +"%'");
+			Cursor cursor = fetchEventFromWhereQuery(Selection.contains(KEY_ID, sId));
 
 			if (cursor == null)
 				return fileInfo;
@@ -171,8 +165,8 @@ public class DBManager extends EventDB {
 	{
 		Cursor mCursor;
 		String[] listColumns;
-		String sSelection = "";
-		String sLimit = null;
+		Selection selection = new Selection("");
+		int limit = -1;
 		boolean bOrderDesc = true;
 		boolean bUseHeader = false;
 		boolean headerToPrint = true;
@@ -194,12 +188,10 @@ public class DBManager extends EventDB {
 			return;
 		}
 
-		int[] indexListColumns = new int[listColumns.length];
-
 		//Defining selection depending on options
 		for (OptionData aSubOption : mySubOptions) {
 			if (aSubOption.getKey().equals(GetEvent.OPTION_LAST)){
-				sLimit = "1";
+				limit = 1;
 			}else if (aSubOption.getKey().equals(GetEvent.OPTION_REVERSE)){
 				bOrderDesc = false;
 			}else if (aSubOption.getKey().equals(GetEvent.OPTION_HEADER)){
@@ -207,29 +199,29 @@ public class DBManager extends EventDB {
 			}else if (aSubOption.getKey().equals(GetEvent.OPTION_ID)){
 				String sTmpValue =  aSubOption.getValues(0);
 				if (sTmpValue != null){
-					sSelection = appendSqlStatementAND( sSelection, KEY_ROWID + "=" + sTmpValue);
+					selection = selection.and(Selection.equal(KEY_ROWID, sTmpValue));
 				}
 			}else if (aSubOption.getKey().equals(GetEvent.OPTION_TYPE)){
 				String sTmpValue =  aSubOption.getValues(0);
 				if (sTmpValue != null){
-					sSelection = appendSqlStatementAND( sSelection, KEY_TYPE + "=" + "'" + sTmpValue + "'" );
+					selection = selection.and(Selection.equal(KEY_TYPE, sTmpValue));
 				}
 			}else if (aSubOption.getKey().equals(GetEvent.OPTION_NAME)){
 				String sTmpValue =  aSubOption.getValues(0);
 				if (sTmpValue != null){
-					sSelection = appendSqlStatementAND( sSelection, KEY_NAME + "=" + "'" + sTmpValue + "'" );
+					selection = selection.and(Selection.equal(KEY_NAME, sTmpValue));
 				}
 			}else if (aSubOption.getKey().equals(GetEvent.OPTION_UPLOADED)){
 				String sTmpValue =  aSubOption.getValues(0);
 				if (sTmpValue != null){
-					sSelection = appendSqlStatementAND( sSelection, KEY_UPLOAD + "=" + sTmpValue );
+					selection = selection.and(Selection.equal(KEY_UPLOAD, sTmpValue));
 				}
 			}else if (aSubOption.getKey().equals(GetEvent.OPTION_TIME)){
 				String sTmpValue =  aSubOption.getValues(0);
 				if (sTmpValue != null){
 					int iTimeValue = Utils.convertDateForDB(sTmpValue);
 					if (iTimeValue > 0) {
-						sSelection = appendSqlStatementAND( sSelection, KEY_DATE + ">" + iTimeValue );
+						selection = selection.and(KEY_DATE + ">?", Integer.toString(iTimeValue));
 					}else{
 						System.err.println("PARSE ERROR for : " + sTmpValue);
 						throw new Exception("PARSE ERROR for : " + sTmpValue);
@@ -240,28 +232,35 @@ public class DBManager extends EventDB {
 			}
 		}
 
-		Cursor cursor = selectEntries(DATABASE_TABLE, listColumns, sSelection, KEY_ROWID,
-				bOrderDesc, sLimit);
-
-		if (cursor != null) {
-			cursor.moveToFirst();
+		//events are printed as they are read, by pages
+		RowIterator<Cursor> rows = iterateEntries(DATABASE_TABLE, listColumns, selection,
+				bOrderDesc, EVENTS_PAGE_SIZE, limit);
+		try {
+			//selects the first page, so that a failed query prints no header
+			rows.hasNext();
 
 			if ( format == outputFormat.JSON ) {
-				while (!cursor.isAfterLast()) {
+				while (rows.hasNext()) {
 					/* JSON output : create a Map with 'event' table
 					content and print it as a JSON formatted string*/
-					if (printToJsonFormat(cursorToHashMap(cursor, true)) != 0)
+					if (printToJsonFormat(cursorToHashMap(rows.next(), true)) != 0)
 						break;
-					cursor.moveToNext();
+				}
+			} else {
+				String tagHeader = (bUseHeader ? CrashInfo.TAG_HEADER : "");
+				int[] indexListColumns = null;
+				printHeader(listColumns);
+				while (rows.hasNext()) {
+					Cursor cursor = rows.next();
+					if (indexListColumns == null)
+						indexListColumns = getColumnIndexes(cursor, listColumns);
+					printRow(cursor, listColumns, indexListColumns, tagHeader);
 				}
 			}
-			else
-				printFromCursor(cursor, listColumns,
-						(bUseHeader ? CrashInfo.TAG_HEADER : ""));
-
-			cursor.close();
-		} else {
+		} catch (SQLException e) {
 			System.err.println( "getEvent: Select failed.");
+		} finally {
+			rows.close();
 		}
 	}
 
@@ -346,38 +345,55 @@ public class DBManager extends EventDB {
 	}
 
 	private void printFromCursor(Cursor cursor, String[] listColumns, String tagHeader) {
-		int dateColumn = -1;
-		int [] indexListColumns = new int[listColumns.length];
+		printHeader(listColumns);
+		int [] indexListColumns = getColumnIndexes(cursor, listColumns);
+
+		//content
+		while (!cursor.isAfterLast()) {
+			printRow(cursor, listColumns, indexListColumns, tagHeader);
+			cursor.moveToNext();
+		}
+	}
+
+	/**
+	 * Prints the names of listColumns
+	 */
+	private void printHeader(String[] listColumns) {
 		String sHeader="";
-		for (int i = 0; i < indexListColumns.length; i++) {
-			indexListColumns[i] = cursor.getColumnIndex(listColumns[i]);
+		for (int i = 0; i < listColumns.length; i++) {
 			if (i==0){
 				sHeader = listColumns[i];
 			}else{
 				sHeader += " | " + listColumns[i];
 			}
-
-                        if (listColumns[i].equals(KEY_DATE))
-                            dateColumn = i;
 		}
 		System.out.println(sHeader);
+	}
 
-		//content
-		while (!cursor.isAfterLast()) {
-			String sLine="";
-			for (int i = 0; i < listColumns.length; i++) {
-				String sColValue ="";
-				sColValue = cursor.getString(indexListColumns[i]);
-				if (i==0){
-					sLine = tagHeader + sColValue;
-				}else if (i == dateColumn){
-					sLine += " | " + convertDate(sColValue);
-				}else{
-					sLine += " | " + sColValue;
-				}
+	/**
+	 * @return the indexes of listColumns in cursor
+	 */
+	private int[] getColumnIndexes(Cursor cursor, String[] listColumns) {
+		int [] indexListColumns = new int[listColumns.length];
+		for (int i = 0; i < indexListColumns.length; i++)
+			indexListColumns[i] = cursor.getColumnIndex(listColumns[i]);
+		return indexListColumns;
+	}
+
+	private void printRow(Cursor cursor, String[] listColumns, int[] indexListColumns,
+			String tagHeader) {
+		String sLine="";
+		for (int i = 0; i < listColumns.length; i++) {
+			String sColValue ="";
+			sColValue = cursor.getString(indexListColumns[i]);
+			if (i==0){
+				sLine = tagHeader + sColValue;
+			}else if (listColumns[i].equals(KEY_DATE)){
+				sLine += " | " + convertDate(sColValue);
+			}else{
+				sLine += " | " + sColValue;
 			}
-			System.out.println(sLine);
-			cursor.moveToNext();
 		}
+		System.out.println(sLine);
 	}
 }
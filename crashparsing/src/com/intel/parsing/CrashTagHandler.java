@@ -0,0 +1,30 @@
+/* Copyright (C) 2019 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intel.parsing;
+
+public interface CrashTagHandler {
+
+	/**
+	 * Extracts crash data of the event stored in aFolder and appends it
+	 * to the crashfile of aParser.
+	 *
+	 * @return false if parsing failed and the crashfile must be dropped
+	 */
+	public boolean parseCrash(MainParser aParser, String aFolder);
+
+}
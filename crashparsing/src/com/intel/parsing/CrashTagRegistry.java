@@ -0,0 +1,63 @@
+/* Copyright (C) 2019 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intel.parsing;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps a crash tag (event type) to the handler in charge of parsing it.
+ *
+ * Built-in handlers are registered by MainParser, other handlers can be
+ * plugged in with register() without modifying MainParser.
+ */
+public enum CrashTagRegistry {
+	INSTANCE;
+
+	private final Map<String, CrashTagHandler> mHandlers = new HashMap<String, CrashTagHandler>();
+
+	public synchronized void register(String aTag, CrashTagHandler aHandler) {
+		if (aTag == null || aHandler == null) {
+			return;
+		}
+		mHandlers.put(aTag, aHandler);
+	}
+
+	/**
+	 * Same as register() but keeps any handler already plugged for aTag.
+	 */
+	public synchronized void registerDefault(String aTag, CrashTagHandler aHandler) {
+		if (aTag == null || aHandler == null) {
+			return;
+		}
+		if (!mHandlers.containsKey(aTag)) {
+			mHandlers.put(aTag, aHandler);
+		}
+	}
+
+	public synchronized void unregister(String aTag) {
+		mHandlers.remove(aTag);
+	}
+
+	public synchronized CrashTagHandler getHandler(String aTag) {
+		if (aTag == null) {
+			return null;
+		}
+		return mHandlers.get(aTag);
+	}
+}
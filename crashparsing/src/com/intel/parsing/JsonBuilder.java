@@ -16,11 +16,10 @@
 
 package com.intel.parsing;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -31,12 +30,23 @@ import android.util.JsonToken;
 public class JsonBuilder implements ParserBuilder {
 
 	private static final String M_PARSER_DIR = "parserconfig";
+	private static final String M_CACHE_FILE = "parserconfig.cache";
 
 	AssetManager mAssetManager;
 	List<String> mParserFileList = new ArrayList<String>();
+	private final File mCacheDir;
 
 	public JsonBuilder(AssetManager aAssetManager) {
+		this(aAssetManager, null);
+	}
+
+	/**
+	 * @param aCacheDir directory where compiled parsers are kept between
+	 * runs, null to always read the JSON files
+	 */
+	public JsonBuilder(AssetManager aAssetManager, File aCacheDir) {
 		mAssetManager = aAssetManager;
+		mCacheDir = aCacheDir;
 		try {
 			String mList[] = mAssetManager.list(M_PARSER_DIR);
 			if (mList != null)
@@ -48,30 +58,54 @@ public class JsonBuilder implements ParserBuilder {
 	}
 
 	public List<EventParser> getParsers() {
-		InputStreamReader is = null;
-		List<EventParser> resultList = new ArrayList<EventParser>();
+		List<String> names = new ArrayList<String>();
+		List<byte[]> contents = new ArrayList<byte[]>();
 
 		for (int i = 0; i < mParserFileList.size(); i++) {
 			try {
-				is = new InputStreamReader(mAssetManager.open(M_PARSER_DIR
+				contents.add(ParserConfigCache.readAsset(mAssetManager, M_PARSER_DIR
 						+ File.separator + mParserFileList.get(i)));
-				APLog.i("reading : " + mParserFileList.get(i));
-				resultList.add(readOneStream(is));
+				names.add(mParserFileList.get(i));
 			} catch (IOException e) {
 				APLog.w("IOException " + e.getMessage());
-			} finally {
-				if (is != null) {
-					try {
-						is.close();
-					} catch (IOException e) {
-						APLog.e("IOException : " + e.getMessage());
-					}
-				}
 			}
 		}
+
+		ParserConfigCache cache = null;
+		String sHash = null;
+		if (mCacheDir != null) {
+			cache = new ParserConfigCache(new File(mCacheDir, M_CACHE_FILE));
+			sHash = ParserConfigCache.digest(names, contents);
+			List<EventParser> cachedList = cache.load(sHash);
+			if (cachedList != null) {
+				APLog.i("parsers restored from cache : " + cachedList.size());
+				compileParsers(cachedList);
+				return cachedList;
+			}
+		}
+
+		List<EventParser> resultList = new ArrayList<EventParser>();
+		for (int i = 0; i < names.size(); i++) {
+			InputStreamReader is = new InputStreamReader(
+					new ByteArrayInputStream(contents.get(i)));
+			APLog.i("reading : " + names.get(i));
+			resultList.add(readOneStream(is));
+		}
+		compileParsers(resultList);
+		if (cache != null) {
+			cache.store(sHash, resultList);
+		}
 		return resultList;
 	}
 
+	private void compileParsers(List<EventParser> aParsers) {
+		for (EventParser curParser : aParsers) {
+			if (curParser instanceof StandardParser) {
+				((StandardParser) curParser).compileRules();
+			}
+		}
+	}
+
 	private StandardParser readOneStream(InputStreamReader is) {
 		JsonReader reader = new JsonReader(is);
 		try {
@@ -186,21 +220,9 @@ public class JsonBuilder implements ParserBuilder {
 		if (curReader.peek() == JsonToken.NAME) {
 			String sName = curReader.nextName();
 			if (curReader.peek() == JsonToken.STRING) {
-				try {
-					fillRuleByMethod(curReader, ruleToFill,
-							StandardRule.class.getMethod("set" + sName,
-									String.class));
-				} catch (NoSuchMethodException e) {
-					APLog.e("NoSuchMethodException for : " + sName);
-				}
+				fillRuleProperty(curReader, ruleToFill, sName);
 			} else if (curReader.peek() == JsonToken.BEGIN_ARRAY) {
-				try {
-					fillArrayRuleByMethod(curReader, ruleToFill,
-							StandardRule.class.getMethod("add" + sName,
-									String.class));
-				} catch (NoSuchMethodException e) {
-					APLog.e("NoSuchMethodException for : " + sName);
-				}
+				fillArrayRuleProperty(curReader, ruleToFill, sName);
 			}
 		}
 	}
@@ -260,24 +282,18 @@ public class JsonBuilder implements ParserBuilder {
 		}
 	}
 
-	private void fillRuleByMethod(JsonReader curReader,
-			StandardRule ruleToFill, Method aSetterMethod) throws IOException {
+	private void fillRuleProperty(JsonReader curReader,
+			StandardRule ruleToFill, String aName) throws IOException {
 		if (curReader.peek() == JsonToken.STRING) {
 			String sValue = curReader.nextString();
-			try {
-				aSetterMethod.invoke(ruleToFill, sValue);
-			} catch (IllegalAccessException e) {
-				APLog.e("IllegalAccessException");
-			} catch (IllegalArgumentException e) {
-				APLog.e("IllegalArgumentException");
-			} catch (InvocationTargetException e) {
-				APLog.e("InvocationTargetException");
+			if (!ruleToFill.setProperty(aName, sValue)) {
+				APLog.e("unmanaged rule property : " + aName);
 			}
 		}
 	}
 
-	private void fillArrayRuleByMethod(JsonReader curReader,
-			StandardRule ruleToFill, Method aArrayMethod) throws IOException {
+	private void fillArrayRuleProperty(JsonReader curReader,
+			StandardRule ruleToFill, String aName) throws IOException {
 		try {
 			if (curReader.peek() != JsonToken.BEGIN_ARRAY) {
 				curReader.skipValue();
@@ -292,14 +308,8 @@ public class JsonBuilder implements ParserBuilder {
 
 				} else if (curReader.peek() == JsonToken.STRING) {
 					String sValue = curReader.nextString();
-					try {
-						aArrayMethod.invoke(ruleToFill, sValue);
-					} catch (IllegalAccessException e) {
-						APLog.e("IllegalAccessException");
-					} catch (IllegalArgumentException e) {
-						APLog.e("IllegalArgumentException");
-					} catch (InvocationTargetException e) {
-						APLog.e("InvocationTargetException");
+					if (!ruleToFill.addProperty(aName, sValue)) {
+						APLog.e("unmanaged rule property : " + aName);
 					}
 				} else {
 					curReader.skipValue();
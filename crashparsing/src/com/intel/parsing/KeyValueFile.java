@@ -18,9 +18,9 @@ package com.intel.parsing;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Scanner;
 
 public class KeyValueFile {
 
@@ -36,21 +36,20 @@ public class KeyValueFile {
 	}
 
 	private void fillKeyValueFile(File aFile) throws FileNotFoundException {
-		Scanner scan = null;
+		LineSource source = null;
 		try {
-			scan = new Scanner(aFile);
+			source = MappedLineReader.open(aFile.getPath());
 			String field;
-			while(scan.hasNext()) {
-				field = scan.nextLine();
-				if (field != null){
-					fillField(field);
-				}
+			while((field = source.readLine()) != null) {
+				fillField(field);
 			}
-		} catch (IllegalStateException e) {
-			throw new FileNotFoundException("Illegal state");
+		} catch (FileNotFoundException e) {
+			throw e;
+		} catch (IOException e) {
+			throw new FileNotFoundException("Read error : " + e.getMessage());
 		} finally {
-			if (scan != null) {
-				scan.close();
+			if (source != null) {
+				source.close();
 			}
 		}
 	}
@@ -0,0 +1,32 @@
+/* Copyright (C) 2019 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intel.parsing;
+
+/**
+ * EventParser declaring the event it applies to, so that ParserDirector
+ * can select it without evaluating isEventEligible() on every event.
+ *
+ * A null key means "any value". Declared keys are a necessary condition,
+ * isEventEligible() is still called on selected parsers.
+ */
+public interface KeyedEventParser extends EventParser {
+
+	public String getEventName();
+	public String getEventType();
+
+}
@@ -0,0 +1,41 @@
+/* Copyright (C) 2019 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intel.parsing;
+
+import java.io.IOException;
+
+/**
+ * Line oriented access to a text input.
+ */
+public interface LineSource {
+
+	/**
+	 * @return next line without its terminator, null at end of input
+	 */
+	public String readLine() throws IOException;
+
+	/**
+	 * Skips lines up to the next one containing at least one of aLiterals.
+	 *
+	 * @return the matching line, null at end of input
+	 */
+	public String readLineContaining(String... aLiterals) throws IOException;
+
+	public void close();
+
+}
@@ -51,6 +51,98 @@ public class MainParser{
 		Arrays.asList("IPANIC", "FABRICERR", "IPANIC_SWWDT", "IPANIC_HWWDT",
 		"HWWDTLOGERR", "MSHUTDOWN", "UIWDT", "WDT", "VMMTRAP", "VMM_UNHANDLED",
 		"SECPANIC", "MPANIC", "SWWDT"));
+	//literal prefilter for ipanic console signatures, see ipanicByFile
+	private final static int IPANIC_EIP = 1 << 0;
+	private final static int IPANIC_RIP = 1 << 1;
+	private final static int IPANIC_COMM = 1 << 2;
+	private final static int IPANIC_PANIC = 1 << 3;
+	private final static int IPANIC_HARD_LOCKUP = 1 << 4;
+	private final static int IPANIC_NMI_END = 1 << 5;
+	private final static String[] IPANIC_LITERALS = {"EIP:", "RIP", "omm: ",
+		"Kernel panic - not syncing: ", "hard LOCKUP", "nmi_stack_correct"};
+	private final static MultiPatternMatcher IPANIC_SCANNER = new MultiPatternMatcher(IPANIC_LITERALS);
+	private final static String[] BUG_LITERALS = {"BUG: "};
+	private final static Map<String,String> LOST_DROPBOX_TAGS = new HashMap<String,String>();
+	static {
+		LOST_DROPBOX_TAGS.put("LOST_DROPBOX_JAVACRASH", "JAVACRASH");
+		LOST_DROPBOX_TAGS.put("LOST_DROPBOX_ANR", "ANR");
+		LOST_DROPBOX_TAGS.put("LOST_DROPBOX_UIWDT", "UIWDT");
+		LOST_DROPBOX_TAGS.put("LOST_DROPBOX_WTF", "WTF");
+	}
+
+	private final static CrashTagHandler IPANIC_HANDLER = new CrashTagHandler() {
+		public boolean parseCrash(MainParser aParser, String aFolder) {
+			return aParser.ipanic(aFolder);
+		}
+	};
+	private final static CrashTagHandler JAVACRASH_HANDLER = new CrashTagHandler() {
+		public boolean parseCrash(MainParser aParser, String aFolder) {
+			return aParser.javacrash(aFolder);
+		}
+	};
+	private final static CrashTagHandler ANR_HANDLER = new CrashTagHandler() {
+		public boolean parseCrash(MainParser aParser, String aFolder) {
+			return aParser.anr(aFolder);
+		}
+	};
+	private final static CrashTagHandler UIWDT_HANDLER = new CrashTagHandler() {
+		public boolean parseCrash(MainParser aParser, String aFolder) {
+			return aParser.uiwdt(aFolder);
+		}
+	};
+	private final static CrashTagHandler WTF_HANDLER = new CrashTagHandler() {
+		public boolean parseCrash(MainParser aParser, String aFolder) {
+			return aParser.wtf(aFolder);
+		}
+	};
+	private final static CrashTagHandler TOMBSTONE_HANDLER = new CrashTagHandler() {
+		public boolean parseCrash(MainParser aParser, String aFolder) {
+			return aParser.tombstone(aFolder);
+		}
+	};
+	private final static CrashTagHandler FABRIC_HANDLER = new CrashTagHandler() {
+		public boolean parseCrash(MainParser aParser, String aFolder) {
+			return aParser.fabric(aFolder);
+		}
+	};
+	private final static CrashTagHandler MPANIC_HANDLER = new CrashTagHandler() {
+		public boolean parseCrash(MainParser aParser, String aFolder) {
+			return aParser.mpanic(aFolder);
+		}
+	};
+	private final static CrashTagHandler GENERIC_HANDLER = new CrashTagHandler() {
+		public boolean parseCrash(MainParser aParser, String aFolder) {
+			return aParser.genericCrash(aFolder);
+		}
+	};
+	private final static CrashTagHandler VMMTRAP_HANDLER = new CrashTagHandler() {
+		public boolean parseCrash(MainParser aParser, String aFolder) {
+			return aParser.vmmtrap(aFolder);
+		}
+	};
+
+	static {
+		CrashTagRegistry registry = CrashTagRegistry.INSTANCE;
+		for (String sIpanicTag : new String[] {"IPANIC", "IPANIC_SWWDT", "IPANIC_HWWDT",
+				"IPANIC_FAKE", "IPANIC_SWWDT_FAKE"}) {
+			registry.registerDefault(sIpanicTag, IPANIC_HANDLER);
+		}
+		registry.registerDefault("JAVACRASH", JAVACRASH_HANDLER);
+		registry.registerDefault("ANR", ANR_HANDLER);
+		registry.registerDefault("UIWDT", UIWDT_HANDLER);
+		registry.registerDefault("WTF", WTF_HANDLER);
+		registry.registerDefault("TOMBSTONE", TOMBSTONE_HANDLER);
+		registry.registerDefault("JAVA_TOMBSTONE", TOMBSTONE_HANDLER);
+		for (String sFabricTag : FABRIC_TAGS) {
+			registry.registerDefault(sFabricTag, FABRIC_HANDLER);
+		}
+		registry.registerDefault("MPANIC", MPANIC_HANDLER);
+		registry.registerDefault("MPANIC_FAKE", MPANIC_HANDLER);
+		registry.registerDefault("APIMR", GENERIC_HANDLER);
+		registry.registerDefault("APCOREDUMP", GENERIC_HANDLER);
+		registry.registerDefault("VMMTRAP", VMMTRAP_HANDLER);
+	}
+
 	private String sOutput = null;
 	private String sTag = "";
 	private String sCrashID = "";
@@ -94,26 +186,10 @@ public class MainParser{
 		String sCrashfilename= sOutput + "/crashfile";
 		String sDropbox = "";
 
-
-		if (sTag.equals( "LOST_DROPBOX_JAVACRASH" )) {
-			sTag="JAVACRASH";
-			sDropbox="full";
-		}
-
-		if (sTag.equals( "LOST_DROPBOX_ANR" )) {
-			sTag="ANR";
-			sDropbox="full";
-		}
-
-
-		if (sTag.equals( "LOST_DROPBOX_UIWDT")) {
-			sTag="UIWDT";
-			sDropbox="full";
-		}
-
-		if (sTag.equals( "LOST_DROPBOX_WTF")) {
-			sTag="WTF";
-			sDropbox="full";
+		String sLostDropboxTag = LOST_DROPBOX_TAGS.get(sTag);
+		if (sLostDropboxTag != null) {
+			sTag = sLostDropboxTag;
+			sDropbox = "full";
 		}
 
 		File fOutput = new File(sOutput);
@@ -127,87 +203,10 @@ public class MainParser{
 					}
 				}
 
-				if (sTag.equals("IPANIC") || sTag.equals("IPANIC_SWWDT") || sTag.equals("IPANIC_HWWDT")
-						|| sTag.equals("IPANIC_FAKE" )|| sTag.equals("IPANIC_SWWDT_FAKE")) {
-					if (!ipanic(sOutput)){
-						closeOutput();
-						return -1;
-					}
-				}
-
-				if (sTag.equals("JAVACRASH")){
-					if (!javacrash(sOutput)){
-						closeOutput();
-						return -1;
-					}
-				}
-
-				if  (sTag.equals("ANR" )){
-					if (!anr(sOutput)){
-						closeOutput();
-						return -1;
-					}
-				}
-
-				if  (sTag.equals("UIWDT" )){
-					if (!uiwdt(sOutput)){
-						closeOutput();
-						return -1;
-					}
-				}
-
-				if  (sTag.equals("WTF" )){
-					if (!wtf(sOutput)){
-						closeOutput();
-						return -1;
-					}
-				}
-
-				if (sTag.equals("TOMBSTONE") || sTag.equals("JAVA_TOMBSTONE")) {
-					if (!tombstone(sOutput)){
-						closeOutput();
-						return -1;
-					}
-				}
-
-				if (isFabricTag(sTag)) {
-					boolean bUseNewFabric = true;
-					for (String sBoardNew : LEGACY_BOARD_FABRIC){
-						if (sBoardNew.equals(sBoard)){
-							bUseNewFabric = false;
-							break;
-						}
-					}
-					if (bUseNewFabric){
-						if (!newFabricerr(sOutput, sTag)){
-							closeOutput();
-							return -1;
-						}
-					}else{
-						if (!fabricerr(sOutput)){
-							closeOutput();
-							return -1;
-						}
-					}
-				}
-
-				if (sTag.equals("MPANIC") || sTag.equals("MPANIC_FAKE")) {
-					if (!mpanic(sOutput)){
-						closeOutput();
-						return -1;
-					}
-				}
-
-				if (sTag.equals("APIMR") || sTag.equals("APCOREDUMP")) {
-					if (!genericCrash(sOutput)){
-						closeOutput();
-						return -1;
-					}
-				}
 				//add generic parsing for unknown tag?
-
-				if (sTag.equals("VMMTRAP")) {
-					if (!vmmtrap(sOutput)){
+				CrashTagHandler aHandler = CrashTagRegistry.INSTANCE.getHandler(sTag);
+				if (aHandler != null) {
+					if (!aHandler.parseCrash(this, sOutput)){
 						closeOutput();
 						return -1;
 					}
@@ -223,18 +222,28 @@ public class MainParser{
 		return 0;
 	}
 
-	private boolean isFabricTag(String aTag){
-		boolean bResult = false;
-		for (String sAllowedTag : FABRIC_TAGS){
-			if (sAllowedTag.equals(aTag)){
-				bResult = true;
+	public String getTag() {
+		return sTag;
+	}
+
+	public String getBoard() {
+		return sBoard;
+	}
+
+	private boolean fabric(String aFolder){
+		boolean bUseNewFabric = true;
+		for (String sBoardNew : LEGACY_BOARD_FABRIC){
+			if (sBoardNew.equals(sBoard)){
+				bUseNewFabric = false;
 				break;
 			}
 		}
-		return bResult;
+		if (bUseNewFabric){
+			return newFabricerr(aFolder, sTag);
+		}
+		return fabricerr(aFolder);
 	}
 
-
 	private boolean prepare_crashfile(String aTag, String aCrashfilename, String aCrashid, String aUptime,
 			String aBuild, String aBoard, String aDate, String aImei, String sOperator) {
 		boolean bResult = true;
@@ -295,7 +304,7 @@ public class MainParser{
 		//needed to identify legacy_parsing with ParserDirector
 		bResult &= appendToCrashfile("PARSER=LEGACY_PARSER");
 		bResult &= appendToCrashfile("_END");
-		Pattern patternSD = java.util.regex.Pattern.compile(".*mnt.*sdcard.*");
+		Pattern patternSD = PatternCatalog.get(".*mnt.*sdcard.*");
 		Matcher matcherFile = patternSD.matcher(aFolder);
 		if (!matcherFile.find()){
 			try {
@@ -339,9 +348,9 @@ public class MainParser{
 		if (!sCoreDumpFile.isEmpty()) {
 			BufferedReaderClean bufCoreFile = null;
 			try{
-				Pattern patternData0 = java.util.regex.Pattern.compile("Filename:.*");
-				Pattern patternData1 = java.util.regex.Pattern.compile("Line number:.*");
-				Pattern patternData2 = java.util.regex.Pattern.compile("Log data:.*");
+				Pattern patternData0 = PatternCatalog.get("Filename:.*");
+				Pattern patternData1 = PatternCatalog.get("Line number:.*");
+				Pattern patternData2 = PatternCatalog.get("Log data:.*");
 				bufCoreFile = new BufferedReaderClean(new FileReader(sCoreDumpFile));
 				String sCurLine;
 				while ((sCurLine = bufCoreFile.readLine()) != null) {
@@ -419,9 +428,9 @@ public class MainParser{
 
 		if (bufCoreFile != null) {
 			try{
-				Pattern patternFileName = java.util.regex.Pattern.compile("Filename:.*");
-				Pattern patternLine = java.util.regex.Pattern.compile("Line number:.*");
-				Pattern patternVector = java.util.regex.Pattern.compile("Vector:.*");
+				Pattern patternFileName = PatternCatalog.get("Filename:.*");
+				Pattern patternLine = PatternCatalog.get("Line number:.*");
+				Pattern patternVector = PatternCatalog.get("Vector:.*");
 				String sCurLine;
 				while ((sCurLine = bufCoreFile.readLine()) != null) {
 					String sTmp;
@@ -491,13 +500,13 @@ public class MainParser{
 		if (!sGenFile.isEmpty()){
 			BufferedReaderClean bufGenFile = null;
 			try{
-				Pattern patternData0 = java.util.regex.Pattern.compile("DATA0=.*");
-				Pattern patternData1 = java.util.regex.Pattern.compile("DATA1=.*");
-				Pattern patternData2 = java.util.regex.Pattern.compile("DATA2=.*");
-				Pattern patternData3 = java.util.regex.Pattern.compile("DATA3=.*");
-				Pattern patternData4 = java.util.regex.Pattern.compile("DATA4=.*");
-				Pattern patternData5 = java.util.regex.Pattern.compile("DATA5=.*");
-				Pattern patternModemUsed = java.util.regex.Pattern.compile("MODEMVERSIONUSED=.*");
+				Pattern patternData0 = PatternCatalog.get("DATA0=.*");
+				Pattern patternData1 = PatternCatalog.get("DATA1=.*");
+				Pattern patternData2 = PatternCatalog.get("DATA2=.*");
+				Pattern patternData3 = PatternCatalog.get("DATA3=.*");
+				Pattern patternData4 = PatternCatalog.get("DATA4=.*");
+				Pattern patternData5 = PatternCatalog.get("DATA5=.*");
+				Pattern patternModemUsed = PatternCatalog.get("MODEMVERSIONUSED=.*");
 				bufGenFile = new BufferedReaderClean(new FileReader(sGenFile));
 				String sCurLine;
 				while ((sCurLine = bufGenFile.readLine()) != null) {
@@ -594,24 +603,41 @@ public class MainParser{
 		boolean bLockUpCase = false;
 		int iCallTraceCount = 0;
 
-		BufferedReaderClean bufPanicFile = null;
+		LineSource bufPanicFile = null;
 		try{
-			bufPanicFile = new BufferedReaderClean(new FileReader(aFile));
-			Pattern patternData = java.util.regex.Pattern.compile("EIP:.*SS:ESP");
-			Pattern patternData_64 = java.util.regex.Pattern.compile("RIP  \\[.*ffffffff.*\\].*");
-			Pattern patternComm = java.util.regex.Pattern.compile("(c|C)omm: .*");
-			Pattern patternPanic = java.util.regex.Pattern.compile("Kernel panic - not syncing: .*");
-			Pattern patternHardLock = java.util.regex.Pattern.compile("hard LOCKUP.*");
-			Pattern patternNmiEnd = java.util.regex.Pattern.compile("nmi_stack_correct.*");
+			bufPanicFile = MappedLineReader.open(aFile);
+			Pattern patternData = PatternCatalog.get("EIP:.*SS:ESP");
+			Pattern patternData_64 = PatternCatalog.get("RIP  \\[.*ffffffff.*\\].*");
+			Pattern patternComm = PatternCatalog.get("(c|C)omm: .*");
+			Pattern patternPanic = PatternCatalog.get("Kernel panic - not syncing: .*");
+			Pattern patternHardLock = PatternCatalog.get("hard LOCKUP.*");
+			Pattern patternNmiEnd = PatternCatalog.get("nmi_stack_correct.*");
 
 			String sCurLine;
-			while ((sCurLine = bufPanicFile.readLine()) != null) {
+			while (true) {
+				//a line without any signature is only used for the "rip" 3rd chance
+				//and for the lockup call trace, other ones are skipped undecoded
+				if ((bDataRipFound && !bDataFound) || (bNmiFound && iCallTraceCount < 4)){
+					sCurLine = bufPanicFile.readLine();
+				} else {
+					sCurLine = bufPanicFile.readLineContaining(IPANIC_LITERALS);
+				}
+				if (sCurLine == null){
+					break;
+				}
 				String sTmp;
+				//regex are only evaluated when their literal part is on the line
+				int iSignatures = IPANIC_SCANNER.scan(sCurLine);
 				if (!bDataFound){
-					sTmp = simpleGrepAwk(patternData, sCurLine, " ", 2);
+					sTmp = null;
+					if ((iSignatures & IPANIC_EIP) != 0){
+						sTmp = simpleGrepAwk(patternData, sCurLine, " ", 2);
+					}
 					if (sTmp==null){
 						//second chance with 64 pattern
-						sTmp = simpleGrepAwk(patternData_64, sCurLine, " ", 3);
+						if ((iSignatures & IPANIC_RIP) != 0){
+							sTmp = simpleGrepAwk(patternData_64, sCurLine, " ", 3);
+						}
 						if (sTmp==null){
 							if (bDataRipFound){
 								sTmp = simpleAwk( sCurLine, ">]", 1);
@@ -629,13 +655,13 @@ public class MainParser{
 						}
 					}
 					//pre-requisite for the 3rd chance
-					if (sCurLine.contains("RIP")){
+					if ((iSignatures & IPANIC_RIP) != 0){
 						bDataRipFound = true;
 					}
 				}
 
 
-				if (!bCommFound){
+				if (!bCommFound && (iSignatures & IPANIC_COMM) != 0){
 					sTmp = simpleGrepAwk(patternComm, sCurLine, " ", 1);
 					if (sTmp != null){
 						sComm = sTmp;
@@ -650,22 +676,26 @@ public class MainParser{
 					}
 				}
 
-				if (!bPanicFound){
+				if (!bPanicFound && (iSignatures & IPANIC_PANIC) != 0){
 					sTmp = simpleGrepAwk(patternPanic, sCurLine, ":", 1);
 					if (sTmp != null){
 						sPanic = sTmp;
 						bPanicFound = true;
-						sTmp = simpleGrepAwk(patternHardLock, sCurLine, "", 0);
-						if (sTmp != null)
-							bLockUpCase = true;
+						if ((iSignatures & IPANIC_HARD_LOCKUP) != 0){
+							sTmp = simpleGrepAwk(patternHardLock, sCurLine, "", 0);
+							if (sTmp != null)
+								bLockUpCase = true;
+						}
 					}
 				}
 
 				if (bLockUpCase){
 					if(!bNmiFound) {
-						sTmp = simpleGrepAwk(patternNmiEnd, sCurLine, "", 0);
-						if (sTmp != null){
-							bNmiFound = true;
+						if ((iSignatures & IPANIC_NMI_END) != 0){
+							sTmp = simpleGrepAwk(patternNmiEnd, sCurLine, "", 0);
+							if (sTmp != null){
+								bNmiFound = true;
+							}
 						}
 					} else if (iCallTraceCount < 4){
 						//get line value with a stack trace filter
@@ -870,14 +900,16 @@ public class MainParser{
 		boolean bCallTraceFound = false;
 		int bCallTraceCount = 0;
 
-		BufferedReaderClean aBuf = null;
+		LineSource aBuf = null;
 		try{
-			aBuf = new BufferedReaderClean(new FileReader(sPathToParse));
-			Pattern patternBug = java.util.regex.Pattern.compile("BUG: " + sBugProcess);
-			Pattern patternData = java.util.regex.Pattern.compile("EIP:.*");
-			Pattern patternData_64 = java.util.regex.Pattern.compile("RIP: .*\\[.*ffffffff.*\\].*");
+			aBuf = MappedLineReader.open(sPathToParse);
+			Pattern patternBug = PatternCatalog.get("BUG: " + sBugProcess);
+			Pattern patternData = PatternCatalog.get("EIP:.*");
+			Pattern patternData_64 = PatternCatalog.get("RIP: .*\\[.*ffffffff.*\\].*");
 			String sCurLine;
-			while ((sCurLine = aBuf.readLine()) != null) {
+			//until the bug is found, only lines with its prefix are relevant
+			while ((sCurLine = (bBugFound ? aBuf.readLine()
+					: aBuf.readLineContaining(BUG_LITERALS))) != null) {
 				String sTmp;
 
 				if (!bBugFound) {
@@ -958,16 +990,16 @@ public class MainParser{
 			BufferedReaderClean bufFabricFile = null;
 			try{
 				bufFabricFile = new BufferedReaderClean(new FileReader(sFabricFile));
-				Pattern patternForcedFabric = java.util.regex.Pattern.compile(".*HW WDT expired.*");
+				Pattern patternForcedFabric = PatternCatalog.get(".*HW WDT expired.*");
 				//suspicious regex repeating r has no effect
 				//   data0=`grep "DW0:" $1/ipanic_fabric_err*`
 				//   data1=`grep "DW1:" $1/ipanic_fabric_err*`
 				//   data2=`grep "DW11:" $1/ipanic_fabric_err*`
-				Pattern patternData0 = java.util.regex.Pattern.compile(".*DW0:.*");
-				Pattern patternData1 = java.util.regex.Pattern.compile(".*DW1:.*");
-				Pattern patternData2 = java.util.regex.Pattern.compile(".*DW11:.*");
-				Pattern patternData0_1_2 = java.util.regex.Pattern.compile(".*[erroir|:].*");
-				Pattern patternInvertData0_1_2 = java.util.regex.Pattern.compile(".*(Fabric Error|summary|Additional|Decoded).*");
+				Pattern patternData0 = PatternCatalog.get(".*DW0:.*");
+				Pattern patternData1 = PatternCatalog.get(".*DW1:.*");
+				Pattern patternData2 = PatternCatalog.get(".*DW11:.*");
+				Pattern patternData0_1_2 = PatternCatalog.get(".*[erroir|:].*");
+				Pattern patternInvertData0_1_2 = PatternCatalog.get(".*(Fabric Error|summary|Additional|Decoded).*");
 
 				String sCurLine;
 				//First loop for checking force_fabric
@@ -1104,10 +1136,10 @@ public class MainParser{
 
 			BufferedReaderClean bufFabricFile = null;
 			try{
-				Pattern patternData0_1 = java.util.regex.Pattern.compile("Summary of Fabric Error detail:");
-				Pattern patternData2 = java.util.regex.Pattern.compile(".*ERROR LOG.*");
-				Pattern patternHole = java.util.regex.Pattern.compile(".*Address Hole.*");
-				Pattern patternData4 = java.util.regex.Pattern.compile(".*Length of fabric error file:.*");
+				Pattern patternData0_1 = PatternCatalog.get("Summary of Fabric Error detail:");
+				Pattern patternData2 = PatternCatalog.get(".*ERROR LOG.*");
+				Pattern patternHole = PatternCatalog.get(".*Address Hole.*");
+				Pattern patternData4 = PatternCatalog.get(".*Length of fabric error file:.*");
 				String sCurLine;
 
 				bufFabricFile = new BufferedReaderClean(new FileReader(sFabricFile));
@@ -1277,11 +1309,11 @@ public class MainParser{
 			int iSubStackCount = 0;
 
 			/*Defines patterns expected to be found in the tombstone file to extract relevant crash data*/
-			Pattern patternProcess = java.util.regex.Pattern.compile(".*>>>.*");
-			Pattern patternSignalStack = java.util.regex.Pattern.compile(".*Build fingerprint.*");
-			Pattern patternSubSignal = java.util.regex.Pattern.compile(".*signal.*");
-			Pattern patternSubStack = java.util.regex.Pattern.compile(".*#0[0-7].*");
-			Pattern patternSubMessage = java.util.regex.Pattern.compile("^Abort message:.*");
+			Pattern patternProcess = PatternCatalog.get(".*>>>.*");
+			Pattern patternSignalStack = PatternCatalog.get(".*Build fingerprint.*");
+			Pattern patternSubSignal = PatternCatalog.get(".*signal.*");
+			Pattern patternSubStack = PatternCatalog.get(".*#0[0-7].*");
+			Pattern patternSubMessage = PatternCatalog.get("^Abort message:.*");
 			String sCurLine;
 			BufferedReaderClean bufTombstoneFile = null;
 			try {
@@ -1323,7 +1355,7 @@ public class MainParser{
 									//and will be the last entry on the line being a hex value either f1e7a375 or 0x3180
 									sTmp = simpleAwk(sCurLine,sFaultAddrSeparator, 1);
 									if (sTmp != null){
-										if (sTmp.matches(sHexCharactersPattern)){
+										if (PatternCatalog.get(sHexCharactersPattern).matcher(sTmp).matches()){
 											sFaultAddress = sTmp;
 										}
 									}
@@ -1578,9 +1610,9 @@ public class MainParser{
 		boolean bTypeFound = false;
 		int iStackCount = 0;
 
-		Pattern patternPID = java.util.regex.Pattern.compile(".*Process:.*");
-		Pattern patternType = java.util.regex.Pattern.compile(".*Subject:.*");
-		Pattern patternStack = java.util.regex.Pattern.compile("^  at.*");
+		Pattern patternPID = PatternCatalog.get(".*Process:.*");
+		Pattern patternType = PatternCatalog.get(".*Subject:.*");
+		Pattern patternStack = PatternCatalog.get("^  at.*");
 
 		String sCurLine;
 		try {
@@ -1635,8 +1667,8 @@ public class MainParser{
 		boolean bPIDFound = false;
 		boolean bTypeFound = false;
 
-		Pattern patternPID = java.util.regex.Pattern.compile(".*Process:.*");
-		Pattern patternType = java.util.regex.Pattern.compile(".*Subject:.*");
+		Pattern patternPID = PatternCatalog.get(".*Process:.*");
+		Pattern patternType = PatternCatalog.get(".*Subject:.*");
 
 		String sCurLine;
 		try {
@@ -1682,12 +1714,12 @@ public class MainParser{
 		boolean bMainFound = false;
 		int iStackCount = 0;
 
-		Pattern patternPID = java.util.regex.Pattern.compile(".*Process:.*");
-		Pattern patternType = java.util.regex.Pattern.compile(".*Subject:.*");
-		Pattern patternStack = java.util.regex.Pattern.compile("^  at.*");
-		Pattern patternCPU = java.util.regex.Pattern.compile(".*TOTAL.*");
-		Pattern patternCMDLine = java.util.regex.Pattern.compile("^Cmd line:.*");
-		Pattern patternMain = java.util.regex.Pattern.compile("^\"main\" prio.*");
+		Pattern patternPID = PatternCatalog.get(".*Process:.*");
+		Pattern patternType = PatternCatalog.get(".*Subject:.*");
+		Pattern patternStack = PatternCatalog.get("^  at.*");
+		Pattern patternCPU = PatternCatalog.get(".*TOTAL.*");
+		Pattern patternCMDLine = PatternCatalog.get("^Cmd line:.*");
+		Pattern patternMain = PatternCatalog.get("^\"main\" prio.*");
 		String sCurLine;
 		try {
 			while ((sCurLine = aReader.readLine()) != null) {
@@ -1766,9 +1798,9 @@ public class MainParser{
 		boolean bPIDFound = false;
 		int iStackCount = 0;
 
-		Pattern patternPID = java.util.regex.Pattern.compile(".*Process:.*");
-		Pattern patternCausedBy = java.util.regex.Pattern.compile("^Caused by:.*");
-		Pattern patternStack = java.util.regex.Pattern.compile(".*at .*");
+		Pattern patternPID = PatternCatalog.get(".*Process:.*");
+		Pattern patternCausedBy = PatternCatalog.get("^Caused by:.*");
+		Pattern patternStack = PatternCatalog.get(".*at .*");
 		String sCurLine;
 		try {
 			while ((sCurLine = aReader.readLine()) != null) {
@@ -1833,14 +1865,14 @@ public class MainParser{
 
 	private String filterAdressesPattern(String stringToFilter){
 		String sResult = stringToFilter;
-		Pattern patternAdress8 = java.util.regex.Pattern.compile("@[0-9a-fA-F]{8}");
-		Pattern patternAdress16 = java.util.regex.Pattern.compile("@[0-9a-fA-F]{16}");
+		Pattern patternAdress8 = PatternCatalog.get("@[0-9a-fA-F]{8}");
+		Pattern patternAdress16 = PatternCatalog.get("@[0-9a-fA-F]{16}");
 		sResult = patternAdress16.matcher(sResult).replaceAll("");
 		sResult = patternAdress8.matcher(sResult).replaceAll("");
 		return sResult;
 	}
 
-	private boolean appendToCrashfile(String aStr){
+	public boolean appendToCrashfile(String aStr){
 		try{
 			myOutput.write(aStr + "\n");
 		} catch (Exception e) {
@@ -1877,7 +1909,7 @@ public class MainParser{
 	private String advancedAwk(String aString, String sSeparator, int iReturnIndex){
 		String sResult = null;
 		if (aString != null){
-			String[] splitString = aString.split("(" + sSeparator + ")+" );
+			String[] splitString = PatternCatalog.split(aString, "(" + sSeparator + ")+");
 			//to manage beginning separator
 			if (splitString[0].isEmpty()){
 				iReturnIndex++;
@@ -1890,7 +1922,7 @@ public class MainParser{
 	}
 
 	private String fileGrepSearch(String aPattern, String aFolder){
-		Pattern patternFile = java.util.regex.Pattern.compile(aPattern);
+		Pattern patternFile = PatternCatalog.get(aPattern);
 
 		File searchFolder = new File(aFolder );
 		File[] files = searchFolder.listFiles();
@@ -1924,7 +1956,7 @@ public class MainParser{
 	private String simpleAwk(String aString, String sSeparator, int iReturnIndex, boolean left){
 		String sResult = null;
 		if (aString != null){
-			String[] splitString = left?aString.split(sSeparator, iReturnIndex + 1):aString.split(sSeparator);
+			String[] splitString = PatternCatalog.split(aString, sSeparator, left ? iReturnIndex + 1 : 0);
 			if (splitString.length > iReturnIndex ){
 				sResult = splitString[iReturnIndex];
 			}
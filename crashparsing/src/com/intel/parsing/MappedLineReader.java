@@ -0,0 +1,192 @@
+/* Copyright (C) 2019 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intel.parsing;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * LineSource working on a memory-mapped file.
+ *
+ * Bytes are scanned directly in the mapping and a String is only decoded
+ * for lines returned to the caller, so lines skipped by
+ * readLineContaining() cost neither decoding nor allocation.
+ * Line terminators are the same as BufferedReader : "\n", "\r" or "\r\n".
+ */
+public class MappedLineReader implements LineSource {
+
+	private static final Charset sCharset = Charset.defaultCharset();
+	//byte level search is only valid if ASCII literals are encoded as is
+	private static final boolean sByteScanSupported = sCharset.name().equals("UTF-8")
+			|| sCharset.name().equals("US-ASCII") || sCharset.name().equals("ISO-8859-1");
+
+	private MappedByteBuffer mBuffer;
+	private final int mLimit;
+	private int mPosition = 0;
+	private byte[] mLineBuffer = new byte[256];
+	private String[] mLastLiterals = null;
+	private byte[][] mLiteralBytes = null;
+	private boolean[] mFirstBytes = new boolean[256];
+
+	private MappedLineReader(MappedByteBuffer aBuffer) {
+		mBuffer = aBuffer;
+		mLimit = aBuffer.limit();
+	}
+
+	/**
+	 * Opens aPath as a memory-mapped LineSource, or as a ReaderLineSource
+	 * if the file can't be mapped.
+	 */
+	public static LineSource open(String aPath) throws FileNotFoundException {
+		File aFile = new File(aPath);
+		long lSize = aFile.length();
+		if (sByteScanSupported && lSize > 0 && lSize <= Integer.MAX_VALUE) {
+			RandomAccessFile raf = null;
+			try {
+				raf = new RandomAccessFile(aFile, "r");
+				FileChannel channel = raf.getChannel();
+				//mapping stays valid once the channel is closed
+				return new MappedLineReader(channel.map(FileChannel.MapMode.READ_ONLY,
+						0, channel.size()));
+			} catch (IOException e) {
+				APLog.w("can't map " + aPath + ", using reader : " + e.getMessage());
+			} finally {
+				if (raf != null) {
+					try {
+						raf.close();
+					} catch (IOException e) {
+						APLog.e("IOException : " + e.getMessage());
+					}
+				}
+			}
+		}
+		return new ReaderLineSource(new FileReader(aFile));
+	}
+
+	public String readLine() {
+		if (mBuffer == null || mPosition >= mLimit) {
+			return null;
+		}
+		int iStart = mPosition;
+		int iEnd = findLineEnd(iStart);
+		skipTerminator(iEnd);
+		return decode(iStart, iEnd);
+	}
+
+	public String readLineContaining(String... aLiterals) {
+		if (mBuffer == null || mPosition >= mLimit) {
+			return null;
+		}
+		byte[][] literals = getLiteralBytes(aLiterals);
+		boolean[] firstBytes = mFirstBytes;
+		int iLineStart = mPosition;
+		for (int iPos = mPosition; iPos < mLimit; iPos++) {
+			byte b = mBuffer.get(iPos);
+			if (b == '\n' || b == '\r') {
+				iLineStart = iPos + 1;
+				continue;
+			}
+			if (!firstBytes[b & 0xFF]) {
+				continue;
+			}
+			for (byte[] literal : literals) {
+				if (literal[0] == b && matchesAt(literal, iPos)) {
+					int iEnd = findLineEnd(iPos);
+					skipTerminator(iEnd);
+					return decode(iLineStart, iEnd);
+				}
+			}
+		}
+		mPosition = mLimit;
+		return null;
+	}
+
+	public void close() {
+		mBuffer = null;
+		mLineBuffer = null;
+	}
+
+	private int findLineEnd(int iFrom) {
+		int iEnd = iFrom;
+		while (iEnd < mLimit) {
+			byte b = mBuffer.get(iEnd);
+			if (b == '\n' || b == '\r') {
+				break;
+			}
+			iEnd++;
+		}
+		return iEnd;
+	}
+
+	private void skipTerminator(int iEnd) {
+		mPosition = iEnd;
+		if (mPosition < mLimit) {
+			byte b = mBuffer.get(mPosition++);
+			if (b == '\r' && mPosition < mLimit && mBuffer.get(mPosition) == '\n') {
+				mPosition++;
+			}
+		}
+	}
+
+	private boolean matchesAt(byte[] aLiteral, int iPos) {
+		if (iPos + aLiteral.length > mLimit) {
+			return false;
+		}
+		for (int i = 1; i < aLiteral.length; i++) {
+			if (mBuffer.get(iPos + i) != aLiteral[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private String decode(int iStart, int iEnd) {
+		int iLength = iEnd - iStart;
+		if (mLineBuffer.length < iLength) {
+			mLineBuffer = new byte[Math.max(iLength, mLineBuffer.length * 2)];
+		}
+		mBuffer.position(iStart);
+		mBuffer.get(mLineBuffer, 0, iLength);
+		return new String(mLineBuffer, 0, iLength, sCharset);
+	}
+
+	private byte[][] getLiteralBytes(String[] aLiterals) {
+		//callers usually pass the same constant array
+		if (aLiterals != mLastLiterals) {
+			byte[][] literals = new byte[aLiterals.length][];
+			boolean[] firstBytes = new boolean[256];
+			for (int i = 0; i < aLiterals.length; i++) {
+				if (aLiterals[i] == null || aLiterals[i].isEmpty()) {
+					throw new IllegalArgumentException("empty literal at index " + i);
+				}
+				literals[i] = aLiterals[i].getBytes(sCharset);
+				firstBytes[literals[i][0] & 0xFF] = true;
+			}
+			mFirstBytes = firstBytes;
+			mLiteralBytes = literals;
+			mLastLiterals = aLiterals;
+		}
+		return mLiteralBytes;
+	}
+}
@@ -0,0 +1,113 @@
+/* Copyright (C) 2019 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intel.parsing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds in a single pass which of a set of literals are present in a line.
+ *
+ * Used as a prefilter : a regex anchored on a literal only needs to be
+ * evaluated when scan() reports that literal. Literals are dispatched on
+ * their first character so each character of the line is looked at once
+ * and only candidate literals are compared.
+ */
+public class MultiPatternMatcher {
+
+	public static final int MAX_LITERALS = 32;
+
+	private final String[] mLiterals;
+	//literal indexes grouped by first character (ASCII only)
+	private final int[][] mByFirstChar = new int[128][];
+	private final int[] mNonAscii;
+	private final int mAllFound;
+
+	public MultiPatternMatcher(String... aLiterals) {
+		if (aLiterals.length > MAX_LITERALS) {
+			throw new IllegalArgumentException("too many literals : " + aLiterals.length);
+		}
+		mLiterals = aLiterals.clone();
+		List<List<Integer>> firstChars = new ArrayList<List<Integer>>(128);
+		for (int i = 0; i < 128; i++) {
+			firstChars.add(null);
+		}
+		List<Integer> nonAscii = new ArrayList<Integer>();
+		int iAll = 0;
+		for (int i = 0; i < mLiterals.length; i++) {
+			if (mLiterals[i] == null || mLiterals[i].isEmpty()) {
+				throw new IllegalArgumentException("empty literal at index " + i);
+			}
+			iAll |= (1 << i);
+			char cFirst = mLiterals[i].charAt(0);
+			if (cFirst < 128) {
+				if (firstChars.get(cFirst) == null) {
+					firstChars.set(cFirst, new ArrayList<Integer>());
+				}
+				firstChars.get(cFirst).add(i);
+			} else {
+				nonAscii.add(i);
+			}
+		}
+		for (int c = 0; c < 128; c++) {
+			mByFirstChar[c] = toArray(firstChars.get(c));
+		}
+		mNonAscii = toArray(nonAscii);
+		mAllFound = iAll;
+	}
+
+	/**
+	 * @return a bit mask where bit i is set if literal i is found in aLine
+	 */
+	public int scan(String aLine) {
+		int iFound = 0;
+		if (aLine == null) {
+			return iFound;
+		}
+		int iLength = aLine.length();
+		for (int iPos = 0; iPos < iLength; iPos++) {
+			char c = aLine.charAt(iPos);
+			int[] candidates = (c < 128) ? mByFirstChar[c] : mNonAscii;
+			if (candidates == null) {
+				continue;
+			}
+			for (int iLiteral : candidates) {
+				int iMask = 1 << iLiteral;
+				if ((iFound & iMask) == 0
+						&& aLine.startsWith(mLiterals[iLiteral], iPos)) {
+					iFound |= iMask;
+				}
+			}
+			if (iFound == mAllFound) {
+				break;
+			}
+		}
+		return iFound;
+	}
+
+	private static int[] toArray(List<Integer> aList) {
+		if (aList == null || aList.isEmpty()) {
+			return null;
+		}
+		int[] result = new int[aList.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = aList.get(i);
+		}
+		return result;
+	}
+}
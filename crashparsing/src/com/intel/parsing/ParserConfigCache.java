@@ -0,0 +1,295 @@
+/* Copyright (C) 2019 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intel.parsing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+import android.content.res.AssetManager;
+
+/**
+ * Compact binary copy of the parsers built from JSON configuration files.
+ *
+ * The cache is keyed by a hash of the configuration files content : when
+ * the assets are unchanged, parsers are restored without reading JSON and
+ * without reflection.
+ */
+final class ParserConfigCache {
+
+	private static final int FORMAT_VERSION = 1;
+	private static final byte TAG_STANDARD_PARSER = 'S';
+	private static final byte TAG_POST_PARSER = 'P';
+
+	private final File mCacheFile;
+
+	ParserConfigCache(File aCacheFile) {
+		mCacheFile = aCacheFile;
+	}
+
+	static byte[] readAsset(AssetManager aManager, String aPath) throws IOException {
+		InputStream is = aManager.open(aPath);
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			int iRead;
+			while ((iRead = is.read(buffer)) != -1) {
+				out.write(buffer, 0, iRead);
+			}
+			return out.toByteArray();
+		} finally {
+			is.close();
+		}
+	}
+
+	/**
+	 * @return SHA-1 of the names and contents of the configuration files
+	 */
+	static String digest(List<String> aNames, List<byte[]> aContents) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			for (int i = 0; i < aNames.size(); i++) {
+				digest.update(aNames.get(i).getBytes("UTF-8"));
+				digest.update((byte) 0);
+				digest.update(aContents.get(i));
+				digest.update((byte) 0);
+			}
+			return new BigInteger(1, digest.digest()).toString(16);
+		} catch (NoSuchAlgorithmException e) {
+			APLog.w("digest not available : " + e.getMessage());
+		} catch (IOException e) {
+			APLog.w("IOException " + e.getMessage());
+		}
+		return null;
+	}
+
+	/**
+	 * @return cached parsers, null if the cache is missing, invalid or was
+	 * built from other configuration files
+	 */
+	List<EventParser> load(String aHash) {
+		if (aHash == null || !mCacheFile.isFile()) {
+			return null;
+		}
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(mCacheFile)));
+			if (in.readInt() != FORMAT_VERSION || !aHash.equals(in.readUTF())) {
+				return null;
+			}
+			int iCount = in.readInt();
+			List<EventParser> parsers = new ArrayList<EventParser>(iCount);
+			for (int i = 0; i < iCount; i++) {
+				byte bTag = in.readByte();
+				if (bTag == TAG_STANDARD_PARSER) {
+					parsers.add(readStandardParser(in));
+				} else if (bTag == TAG_POST_PARSER) {
+					parsers.add(readPostParser(in));
+				} else {
+					APLog.w("invalid parser cache : " + mCacheFile);
+					return null;
+				}
+			}
+			return parsers;
+		} catch (FileNotFoundException e) {
+			return null;
+		} catch (IOException e) {
+			APLog.w("can't read parser cache : " + e.getMessage());
+			return null;
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+					APLog.e("IOException : " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	void store(String aHash, List<EventParser> aParsers) {
+		if (aHash == null) {
+			return;
+		}
+		List<EventParser> toStore = new ArrayList<EventParser>();
+		for (EventParser curParser : aParsers) {
+			if (curParser instanceof StandardParser || curParser instanceof PostProcessParser) {
+				toStore.add(curParser);
+			}
+		}
+		//written aside then renamed : a reader never sees a partial cache
+		File tmpFile = new File(mCacheFile.getPath() + ".tmp");
+		DataOutputStream out = null;
+		boolean bWritten = false;
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+			out.writeInt(FORMAT_VERSION);
+			out.writeUTF(aHash);
+			out.writeInt(toStore.size());
+			for (EventParser curParser : toStore) {
+				if (curParser instanceof StandardParser) {
+					out.writeByte(TAG_STANDARD_PARSER);
+					writeStandardParser(out, (StandardParser) curParser);
+				} else {
+					out.writeByte(TAG_POST_PARSER);
+					writePostParser(out, (PostProcessParser) curParser);
+				}
+			}
+			out.close();
+			out = null;
+			bWritten = true;
+		} catch (IOException e) {
+			APLog.w("can't write parser cache : " + e.getMessage());
+		} finally {
+			if (out != null) {
+				try {
+					out.close();
+				} catch (IOException e) {
+					APLog.e("IOException : " + e.getMessage());
+				}
+			}
+		}
+		if (!bWritten || !tmpFile.renameTo(mCacheFile)) {
+			tmpFile.delete();
+		}
+	}
+
+	private static void writeStandardParser(DataOutputStream out, StandardParser aParser)
+			throws IOException {
+		writeString(out, aParser.getEventName());
+		writeString(out, aParser.getEventType());
+		out.writeBoolean(aParser.isCritical());
+		out.writeInt(aParser.mRulesList.size());
+		for (StandardRule curRule : aParser.mRulesList) {
+			writeString(out, curRule.getId());
+			writeString(out, curRule.getParsingMethod());
+			writeString(out, curRule.getInputType());
+			writeString(out, curRule.getInputValue());
+			writeString(out, curRule.getMatchingPattern());
+			writeString(out, curRule.getOutputType());
+			writeStrings(out, curRule.mPatternOptionList);
+		}
+	}
+
+	private static StandardParser readStandardParser(DataInputStream in) throws IOException {
+		StandardParser aParser = new StandardParser();
+		aParser.setEventName(readString(in));
+		aParser.setEventType(readString(in));
+		aParser.setCritical(in.readBoolean());
+		int iRules = in.readInt();
+		for (int i = 0; i < iRules; i++) {
+			StandardRule aRule = new StandardRule();
+			aRule.setId(readString(in));
+			aRule.setParsingMethod(readString(in));
+			aRule.setInputType(readString(in));
+			aRule.setInputValue(readString(in));
+			aRule.setMatchingPattern(readString(in));
+			aRule.setOutputType(readString(in));
+			for (String sOption : readStrings(in)) {
+				aRule.addpattern_options(sOption);
+			}
+			aParser.addRulle(aRule);
+		}
+		return aParser;
+	}
+
+	private static void writePostParser(DataOutputStream out, PostProcessParser aParser)
+			throws IOException {
+		writeString(out, aParser.getEventType());
+		writeString(out, aParser.getmData0());
+		writeString(out, aParser.getmData1());
+		writeString(out, aParser.getmData2());
+		writeString(out, aParser.getmData3());
+		writeString(out, aParser.getmData4());
+		writeString(out, aParser.getmData5());
+		writeString(out, aParser.getmDescription());
+		out.writeInt(aParser.mRulesList.size());
+		for (PostProcessRule curRule : aParser.mRulesList) {
+			writeString(out, curRule.getInputType());
+			writeString(out, curRule.getInputValue());
+			writeString(out, curRule.getOutputValue());
+			writeString(out, curRule.getmOutputSizeLimitMB());
+			writeStrings(out, curRule.mPatternOptionList);
+		}
+	}
+
+	private static PostProcessParser readPostParser(DataInputStream in) throws IOException {
+		PostProcessParser aParser = new PostProcessParser();
+		aParser.setEventType(readString(in));
+		aParser.setmData0(readString(in));
+		aParser.setmData1(readString(in));
+		aParser.setmData2(readString(in));
+		aParser.setmData3(readString(in));
+		aParser.setmData4(readString(in));
+		aParser.setmData5(readString(in));
+		aParser.setmDescription(readString(in));
+		int iRules = in.readInt();
+		for (int i = 0; i < iRules; i++) {
+			PostProcessRule aRule = new PostProcessRule();
+			aRule.setInputType(readString(in));
+			aRule.setInputValue(readString(in));
+			aRule.setOutputValue(readString(in));
+			aRule.setmOutputSizeLimitMB(readString(in));
+			for (String sOption : readStrings(in)) {
+				aRule.addpattern_options(sOption);
+			}
+			aParser.addRule(aRule);
+		}
+		return aParser;
+	}
+
+	private static void writeString(DataOutputStream out, String aValue) throws IOException {
+		out.writeBoolean(aValue != null);
+		if (aValue != null) {
+			out.writeUTF(aValue);
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	private static void writeStrings(DataOutputStream out, List<String> aValues) throws IOException {
+		out.writeInt(aValues.size());
+		for (String sValue : aValues) {
+			writeString(out, sValue);
+		}
+	}
+
+	private static List<String> readStrings(DataInputStream in) throws IOException {
+		int iCount = in.readInt();
+		List<String> values = new ArrayList<String>(iCount);
+		for (int i = 0; i < iCount; i++) {
+			values.add(readString(in));
+		}
+		return values;
+	}
+}
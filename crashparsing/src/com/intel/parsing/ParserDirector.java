@@ -16,34 +16,57 @@
 
 package com.intel.parsing;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import com.intel.crashreport.core.ParsableEvent;
 
 import android.content.res.AssetManager;
 
 public class ParserDirector {
 
+	private static final int MAX_PARSING_THREADS = 4;
+
 	private final List<ParserBuilder> builders = new ArrayList<ParserBuilder>();
 	private final List<ParserBuilder> postBuilders = new ArrayList<ParserBuilder>();
 	private final List<EventParser> parsers = new ArrayList<EventParser>();
 	private final List<EventParser> postParsers = new ArrayList<EventParser>();
+	private ParserIndex parserIndex = new ParserIndex(parsers);
+	private ParserIndex postParserIndex = new ParserIndex(postParsers);
 
 	public ParserDirector() {
 	}
 
 	public void initParserWithManager(AssetManager aManager){
-		initBuilders(aManager);
+		initParserWithManager(aManager, null);
+	}
+
+	/**
+	 * @param aCacheDir directory where parsers built from the JSON
+	 * configuration are cached, null to disable the cache
+	 */
+	public void initParserWithManager(AssetManager aManager, File aCacheDir){
+		initBuilders(aManager, aCacheDir);
 		generateParsers();
 	}
 
 	public void initBuilders(AssetManager aManager){
+		initBuilders(aManager, null);
+	}
+
+	public void initBuilders(AssetManager aManager, File aCacheDir){
 		//load appropriate builders
-		JsonBuilder myBuilder = new JsonBuilder(aManager);
+		JsonBuilder myBuilder = new JsonBuilder(aManager, aCacheDir);
 		builders.add(myBuilder);
 		//legacy builder should added at the end
 		builders.add(new LegacyBuilder());
-		PostProcessBuilder myPostBuilder = new PostProcessBuilder(aManager);
+		PostProcessBuilder myPostBuilder = new PostProcessBuilder(aManager, aCacheDir);
 		postBuilders.add(myPostBuilder);
 	}
 
@@ -67,12 +90,14 @@ public class ParserDirector {
 				}
 			}
 		}
+		parserIndex = new ParserIndex(parsers);
+		postParserIndex = new ParserIndex(postParsers);
 	}
 
 	public boolean parseEvent(ParsableEvent aEvent) {
 		boolean result = false;
 
-		for (EventParser curParser : parsers) {
+		for (EventParser curParser : parserIndex.getCandidates(aEvent)) {
 			if (curParser == null)
 				continue;
 			if (curParser.isEventEligible(aEvent)) {
@@ -84,7 +109,7 @@ public class ParserDirector {
 			}
 		}
 		//exec post processing on event
-		for (EventParser curParser : postParsers) {
+		for (EventParser curParser : postParserIndex.getCandidates(aEvent)) {
 			if (curParser == null)
 				continue;
 			if (curParser.isEventEligible(aEvent)) {
@@ -97,4 +122,77 @@ public class ParserDirector {
 		}
 		return result;
 	}
+
+	/**
+	 * Parses a batch of events on a bounded pool of worker threads.
+	 *
+	 * Each event is entirely handled by one worker, with the same rules as
+	 * parseEvent() : first successful main parser, then all eligible
+	 * post-processors.
+	 *
+	 * @return one result per event, in the iteration order of aEvents
+	 */
+	public List<ParsingResult> parseEvents(Collection<ParsableEvent> aEvents) {
+		int iThreads = Math.min(Runtime.getRuntime().availableProcessors(), MAX_PARSING_THREADS);
+		return parseEvents(aEvents, iThreads);
+	}
+
+	public List<ParsingResult> parseEvents(Collection<ParsableEvent> aEvents, int aMaxThreads) {
+		List<ParsingResult> results = new ArrayList<ParsingResult>();
+		if (aEvents == null || aEvents.isEmpty()) {
+			return results;
+		}
+		int iThreads = Math.max(1, Math.min(aMaxThreads, aEvents.size()));
+		if (iThreads == 1) {
+			for (ParsableEvent aEvent : aEvents) {
+				results.add(timedParseEvent(aEvent));
+			}
+			return results;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(iThreads);
+		List<Future<ParsingResult>> futures = new ArrayList<Future<ParsingResult>>();
+		try {
+			for (final ParsableEvent aEvent : aEvents) {
+				futures.add(executor.submit(new Callable<ParsingResult>() {
+					public ParsingResult call() {
+						return timedParseEvent(aEvent);
+					}
+				}));
+			}
+			int iIndex = 0;
+			for (ParsableEvent aEvent : aEvents) {
+				ParsingResult aResult;
+				try {
+					aResult = futures.get(iIndex).get();
+				} catch (ExecutionException e) {
+					APLog.e("parsing failed for " + aEvent.getEventId(), e.getCause());
+					aResult = new ParsingResult(aEvent, false, 0);
+				} catch (InterruptedException e) {
+					APLog.w("parsing interrupted for " + aEvent.getEventId());
+					Thread.currentThread().interrupt();
+					aResult = new ParsingResult(aEvent, false, 0);
+				}
+				results.add(aResult);
+				iIndex++;
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		return results;
+	}
+
+	private ParsingResult timedParseEvent(ParsableEvent aEvent) {
+		long lStart = System.nanoTime();
+		boolean bResult;
+		try {
+			bResult = parseEvent(aEvent);
+		} catch (RuntimeException e) {
+			APLog.e("parsing error for " + aEvent.getEventId(), e);
+			bResult = false;
+		}
+		long lDurationMs = (System.nanoTime() - lStart) / 1000000;
+		APLog.d("event " + aEvent.getEventId() + " parsed in " + lDurationMs + "ms");
+		return new ParsingResult(aEvent, bResult, lDurationMs);
+	}
 }
@@ -0,0 +1,102 @@
+/* Copyright (C) 2019 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intel.parsing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.intel.crashreport.core.ParsableEvent;
+
+/**
+ * Lookup of the parsers that may be eligible for an event.
+ *
+ * KeyedEventParser instances are indexed by (event name, type) or by type
+ * alone, other parsers are always returned as candidates. Candidates keep
+ * the order of the parser list given at creation.
+ */
+class ParserIndex {
+
+	private static final String KEY_SEPARATOR = "\u0000";
+
+	private final List<EventParser> mParsers;
+	private final Map<String, List<Integer>> mByNameAndType = new HashMap<String, List<Integer>>();
+	private final Map<String, List<Integer>> mByType = new HashMap<String, List<Integer>>();
+	private final List<Integer> mUnkeyed = new ArrayList<Integer>();
+
+	ParserIndex(List<EventParser> aParsers) {
+		mParsers = new ArrayList<EventParser>(aParsers);
+		for (int i = 0; i < mParsers.size(); i++) {
+			EventParser aParser = mParsers.get(i);
+			if (aParser instanceof KeyedEventParser) {
+				String sName = ((KeyedEventParser) aParser).getEventName();
+				String sType = ((KeyedEventParser) aParser).getEventType();
+				if (sType != null && sName != null) {
+					addToIndex(mByNameAndType, sName + KEY_SEPARATOR + sType, i);
+					continue;
+				} else if (sType != null && !sType.isEmpty()) {
+					addToIndex(mByType, sType, i);
+					continue;
+				}
+			}
+			mUnkeyed.add(i);
+		}
+	}
+
+	public List<EventParser> getCandidates(ParsableEvent aEvent) {
+		List<Integer> byNameAndType = mByNameAndType.get(aEvent.getEventName()
+				+ KEY_SEPARATOR + aEvent.getType());
+		List<Integer> byType = mByType.get(aEvent.getType());
+
+		int iCount = mUnkeyed.size();
+		iCount += (byNameAndType != null) ? byNameAndType.size() : 0;
+		iCount += (byType != null) ? byType.size() : 0;
+		int[] indexes = new int[iCount];
+		int iPos = copyIndexes(mUnkeyed, indexes, 0);
+		iPos = copyIndexes(byNameAndType, indexes, iPos);
+		copyIndexes(byType, indexes, iPos);
+		//restore parser declaration order
+		Arrays.sort(indexes);
+
+		List<EventParser> candidates = new ArrayList<EventParser>(iCount);
+		for (int iIndex : indexes) {
+			candidates.add(mParsers.get(iIndex));
+		}
+		return candidates;
+	}
+
+	private static void addToIndex(Map<String, List<Integer>> aIndex, String aKey, int aPosition) {
+		List<Integer> positions = aIndex.get(aKey);
+		if (positions == null) {
+			positions = new ArrayList<Integer>();
+			aIndex.put(aKey, positions);
+		}
+		positions.add(aPosition);
+	}
+
+	private static int copyIndexes(List<Integer> aSource, int[] aDest, int aPosition) {
+		if (aSource != null) {
+			for (Integer iIndex : aSource) {
+				aDest[aPosition++] = iIndex;
+			}
+		}
+		return aPosition;
+	}
+}
@@ -0,0 +1,56 @@
+/* Copyright (C) 2019 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intel.parsing;
+
+import com.intel.crashreport.core.ParsableEvent;
+
+/**
+ * Outcome of the parsing of one event by ParserDirector.parseEvents().
+ */
+public class ParsingResult {
+
+	private final ParsableEvent mEvent;
+	private final boolean mParsed;
+	private final long mDurationMs;
+
+	public ParsingResult(ParsableEvent aEvent, boolean aParsed, long aDurationMs) {
+		mEvent = aEvent;
+		mParsed = aParsed;
+		mDurationMs = aDurationMs;
+	}
+
+	public ParsableEvent getEvent() {
+		return mEvent;
+	}
+
+	/**
+	 * @return same value as ParserDirector.parseEvent() for this event
+	 */
+	public boolean isParsed() {
+		return mParsed;
+	}
+
+	public long getDurationMs() {
+		return mDurationMs;
+	}
+
+	@Override
+	public String toString() {
+		return mEvent.getEventId() + " parsed:" + mParsed + " in " + mDurationMs + "ms";
+	}
+}
@@ -0,0 +1,80 @@
+/* Copyright (C) 2019 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intel.parsing;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Shared cache of compiled regular expressions used by the parsers.
+ *
+ * Pattern objects are immutable and can be used by several threads, so
+ * each regex is compiled only once and reused by every parsing.
+ */
+public final class PatternCatalog {
+
+	private static final int MAX_CACHED_PATTERNS = 256;
+	private static final String REGEX_META_CHARS = ".$|()[{^?*+\\";
+
+	private static final Map<String, Pattern> sPatterns = new HashMap<String, Pattern>();
+
+	private PatternCatalog() {
+	}
+
+	public static Pattern get(String aRegex) {
+		synchronized (sPatterns) {
+			Pattern aPattern = sPatterns.get(aRegex);
+			if (aPattern == null) {
+				//patterns are expected to come from code/config, but keep the cache bounded
+				if (sPatterns.size() >= MAX_CACHED_PATTERNS) {
+					sPatterns.clear();
+				}
+				aPattern = Pattern.compile(aRegex);
+				sPatterns.put(aRegex, aPattern);
+			}
+			return aPattern;
+		}
+	}
+
+	public static String[] split(String aString, String aSeparator) {
+		return split(aString, aSeparator, 0);
+	}
+
+	/**
+	 * Equivalent of aString.split(aSeparator, aLimit) without compiling
+	 * aSeparator on each call.
+	 */
+	public static String[] split(String aString, String aSeparator, int aLimit) {
+		if (isLiteralChar(aSeparator)) {
+			//String.split does not use regex engine in this case
+			return aString.split(aSeparator, aLimit);
+		}
+		return get(aSeparator).split(aString, aLimit);
+	}
+
+	private static boolean isLiteralChar(String aSeparator) {
+		if (aSeparator.length() == 1) {
+			return REGEX_META_CHARS.indexOf(aSeparator.charAt(0)) < 0;
+		}
+		if (aSeparator.length() == 2 && aSeparator.charAt(0) == '\\') {
+			return !Character.isLetterOrDigit(aSeparator.charAt(1));
+		}
+		return false;
+	}
+}
@@ -16,11 +16,10 @@
 
 package com.intel.parsing;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -31,12 +30,23 @@ import android.util.JsonToken;
 public class PostProcessBuilder implements ParserBuilder {
 
 	private static final String M_POST_PARSER_DIR = "postparserconfig";
+	private static final String M_CACHE_FILE = "postparserconfig.cache";
 
 	AssetManager mAssetManager;
 	List<String> mParserFileList = new ArrayList<String>();
+	private final File mCacheDir;
 
 	public PostProcessBuilder(AssetManager aAssetManager) {
+		this(aAssetManager, null);
+	}
+
+	/**
+	 * @param aCacheDir directory where compiled parsers are kept between
+	 * runs, null to always read the JSON files
+	 */
+	public PostProcessBuilder(AssetManager aAssetManager, File aCacheDir) {
 		mAssetManager = aAssetManager;
+		mCacheDir = aCacheDir;
 		try {
 			String mList[] = mAssetManager.list(M_POST_PARSER_DIR);
 			if (mList != null)
@@ -48,28 +58,41 @@ public class PostProcessBuilder implements ParserBuilder {
 	}
 
 	public List<EventParser> getParsers() {
-		EventParser result = null;
-		InputStreamReader is = null;
-		List<EventParser> resultList = new ArrayList<EventParser>();
+		List<String> names = new ArrayList<String>();
+		List<byte[]> contents = new ArrayList<byte[]>();
 
 		for (int i = 0; i < mParserFileList.size(); i++) {
 			try {
-				is = new InputStreamReader(mAssetManager.open(M_POST_PARSER_DIR
+				contents.add(ParserConfigCache.readAsset(mAssetManager, M_POST_PARSER_DIR
 						+ File.separator + mParserFileList.get(i)));
-				APLog.i("reading post : " + mParserFileList.get(i));
-				readOneStream(is, resultList);
+				names.add(mParserFileList.get(i));
 			} catch (IOException e) {
 				APLog.w("IOException " + e.getMessage());
-			} finally {
-				if (is != null) {
-					try {
-						is.close();
-					} catch (IOException e) {
-						APLog.e("IOException : " + e.getMessage());
-					}
-				}
 			}
 		}
+
+		ParserConfigCache cache = null;
+		String sHash = null;
+		if (mCacheDir != null) {
+			cache = new ParserConfigCache(new File(mCacheDir, M_CACHE_FILE));
+			sHash = ParserConfigCache.digest(names, contents);
+			List<EventParser> cachedList = cache.load(sHash);
+			if (cachedList != null) {
+				APLog.i("post parsers restored from cache : " + cachedList.size());
+				return cachedList;
+			}
+		}
+
+		List<EventParser> resultList = new ArrayList<EventParser>();
+		for (int i = 0; i < names.size(); i++) {
+			InputStreamReader is = new InputStreamReader(
+					new ByteArrayInputStream(contents.get(i)));
+			APLog.i("reading post : " + names.get(i));
+			readOneStream(is, resultList);
+		}
+		if (cache != null) {
+			cache.store(sHash, resultList);
+		}
 		return resultList;
 	}
 
@@ -215,21 +238,9 @@ public class PostProcessBuilder implements ParserBuilder {
 		if (curReader.peek() == JsonToken.NAME) {
 			String sName = curReader.nextName();
 			if (curReader.peek() == JsonToken.STRING) {
-				try {
-					fillRuleByMethod(curReader, ruleToFill,
-							PostProcessRule.class.getMethod("set" + sName,
-									String.class));
-				} catch (NoSuchMethodException e) {
-					APLog.e("NoSuchMethodException for : " + sName);
-				}
+				fillRuleProperty(curReader, ruleToFill, sName);
 			} else if (curReader.peek() == JsonToken.BEGIN_ARRAY) {
-				try {
-					fillArrayRuleByMethod(curReader, ruleToFill,
-							StandardRule.class.getMethod("add" + sName,
-									String.class));
-				} catch (NoSuchMethodException e) {
-					APLog.e("NoSuchMethodException for : " + sName);
-				}
+				fillArrayRuleProperty(curReader, ruleToFill, sName);
 			}
 		}
 	}
@@ -239,55 +250,37 @@ public class PostProcessBuilder implements ParserBuilder {
 		if (curReader.peek() == JsonToken.NAME) {
 			String sName = curReader.nextName();
 			if (curReader.peek() == JsonToken.STRING) {
-				try {
-					fillParserByMethod(curReader, parserToFill,
-							PostProcessParser.class.getMethod("set" + sName,
-									String.class));
-				} catch (NoSuchMethodException e) {
-					APLog.e("NoSuchMethodException for : " + sName);
-				}
+				fillParserProperty(curReader, parserToFill, sName);
 			}
 		} else {
 			APLog.e("BAD TOKEN");
 		}
 	}
 
-	private void fillRuleByMethod(JsonReader curReader,
-			PostProcessRule ruleToFill, Method aSetterMethod)
+	private void fillRuleProperty(JsonReader curReader,
+			PostProcessRule ruleToFill, String aName)
 			throws IOException {
 		if (curReader.peek() == JsonToken.STRING) {
 			String sValue = curReader.nextString();
-			try {
-				aSetterMethod.invoke(ruleToFill, sValue);
-			} catch (IllegalAccessException e) {
-				APLog.e("IllegalAccessException");
-			} catch (IllegalArgumentException e) {
-				APLog.e("IllegalArgumentException");
-			} catch (InvocationTargetException e) {
-				APLog.e("InvocationTargetException");
+			if (!ruleToFill.setProperty(aName, sValue)) {
+				APLog.e("unmanaged rule property : " + aName);
 			}
 		}
 	}
 
-	private void fillParserByMethod(JsonReader curReader,
-			PostProcessParser parserToFill, Method aSetterMethod)
+	private void fillParserProperty(JsonReader curReader,
+			PostProcessParser parserToFill, String aName)
 			throws IOException {
 		if (curReader.peek() == JsonToken.STRING) {
 			String sValue = curReader.nextString();
-			try {
-				aSetterMethod.invoke(parserToFill, sValue);
-			} catch (IllegalAccessException e) {
-				APLog.e("IllegalAccessException");
-			} catch (IllegalArgumentException e) {
-				APLog.e("IllegalArgumentException");
-			} catch (InvocationTargetException e) {
-				APLog.e("InvocationTargetException");
+			if (!parserToFill.setProperty(aName, sValue)) {
+				APLog.e("unmanaged property : " + aName);
 			}
 		}
 	}
 
-	private void fillArrayRuleByMethod(JsonReader curReader,
-			PostProcessRule ruleToFill, Method aArrayMethod) throws IOException {
+	private void fillArrayRuleProperty(JsonReader curReader,
+			PostProcessRule ruleToFill, String aName) throws IOException {
 		try {
 			if (curReader.peek() != JsonToken.BEGIN_ARRAY) {
 				curReader.skipValue();
@@ -302,14 +295,8 @@ public class PostProcessBuilder implements ParserBuilder {
 
 				} else if (curReader.peek() == JsonToken.STRING) {
 					String sValue = curReader.nextString();
-					try {
-						aArrayMethod.invoke(ruleToFill, sValue);
-					} catch (IllegalAccessException e) {
-						APLog.e("IllegalAccessException");
-					} catch (IllegalArgumentException e) {
-						APLog.e("IllegalArgumentException");
-					} catch (InvocationTargetException e) {
-						APLog.e("InvocationTargetException");
+					if (!ruleToFill.addProperty(aName, sValue)) {
+						APLog.e("unmanaged rule property : " + aName);
 					}
 				} else {
 					curReader.skipValue();
@@ -20,7 +20,7 @@ import java.util.ArrayList;
 import java.util.List;
 import com.intel.crashreport.core.ParsableEvent;
 
-public class PostProcessParser implements EventParser {
+public class PostProcessParser implements KeyedEventParser {
 
 	private String mData0;
 	private String mData1;
@@ -51,6 +51,12 @@ public class PostProcessParser implements EventParser {
 
 	public boolean isEventEligible(ParsableEvent aEvent) {
 		boolean bResult = false;
+		if ((mEventType != null) && (!mEventType.isEmpty())) {
+			if (!aEvent.getType().equals(mEventType)) {
+				return false;
+			}
+			bResult = true;
+		}
 		// check only on not empty data
 		if ((mData0 != null) && (!mData0.isEmpty())) {
 			if (!aEvent.getData0().contains(mData0)) {
@@ -96,6 +102,11 @@ public class PostProcessParser implements EventParser {
 		mRulesList.add(aRule);
 	}
 
+	public String getEventName() {
+		// post processing applies to any event name
+		return null;
+	}
+
 	public String getEventType() {
 		return mEventType;
 	}
@@ -154,6 +165,10 @@ public class PostProcessParser implements EventParser {
 
 	// proxy functions for JSON Builder
 
+	public void setevent_type(String mEventType) {
+		setEventType(mEventType);
+	}
+
 	public void setdata0(String mData0) {
 		setmData0(mData0);
 	}
@@ -190,4 +205,32 @@ public class PostProcessParser implements EventParser {
 		setmDescription(mDescription);
 	}
 
+	/**
+	 * Sets a property by its name in the JSON configuration.
+	 *
+	 * @return false if aName is not a property of a post-processor
+	 */
+	boolean setProperty(String aName, String aValue) {
+		if (aName.equals("event_type")) {
+			setEventType(aValue);
+		} else if (aName.equals("data0")) {
+			setmData0(aValue);
+		} else if (aName.equals("data1")) {
+			setmData1(aValue);
+		} else if (aName.equals("data2")) {
+			setmData2(aValue);
+		} else if (aName.equals("data3")) {
+			setmData3(aValue);
+		} else if (aName.equals("data4")) {
+			setmData4(aValue);
+		} else if (aName.equals("data5")) {
+			setmData5(aValue);
+		} else if (aName.equals("description")) {
+			setmDescription(aValue);
+		} else {
+			return false;
+		}
+		return true;
+	}
+
 }
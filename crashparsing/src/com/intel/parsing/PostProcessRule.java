@@ -92,6 +92,39 @@ public class PostProcessRule {
 		mPatternOptionList.add(aOption);
 	}
 
+	/**
+	 * Sets a property by its name in the JSON configuration.
+	 *
+	 * @return false if aName is not a property of a rule
+	 */
+	boolean setProperty(String aName, String aValue) {
+		if (aName.equals("input_type")) {
+			setInputType(aValue);
+		} else if (aName.equals("input_value")) {
+			setInputValue(aValue);
+		} else if (aName.equals("output_value")) {
+			setOutputValue(aValue);
+		} else if (aName.equals("output_size_limit_MB")) {
+			setmOutputSizeLimitMB(aValue);
+		} else {
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Adds one value to an array property of the JSON configuration.
+	 *
+	 * @return false if aName is not an array property of a rule
+	 */
+	boolean addProperty(String aName, String aValue) {
+		if (aName.equals("pattern_options")) {
+			addpattern_options(aValue);
+			return true;
+		}
+		return false;
+	}
+
 	public void analyzeEvent(ParsableEvent aEvent) {
 		int iLimitMB;
 		String sDestPath;
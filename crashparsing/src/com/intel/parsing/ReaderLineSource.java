@@ -0,0 +1,54 @@
+/* Copyright (C) 2019 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intel.parsing;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * LineSource reading through a BufferedReaderClean, used when the input
+ * can't be memory-mapped (compressed file, unsupported charset...).
+ */
+public class ReaderLineSource implements LineSource {
+
+	private final BufferedReaderClean mReader;
+
+	public ReaderLineSource(Reader aReader) {
+		mReader = new BufferedReaderClean(aReader);
+	}
+
+	public String readLine() throws IOException {
+		return mReader.readLine();
+	}
+
+	public String readLineContaining(String... aLiterals) throws IOException {
+		String sCurLine;
+		while ((sCurLine = mReader.readLine()) != null) {
+			for (String sLiteral : aLiterals) {
+				if (sCurLine.contains(sLiteral)) {
+					return sCurLine;
+				}
+			}
+		}
+		return null;
+	}
+
+	public void close() {
+		mReader.close();
+	}
+}
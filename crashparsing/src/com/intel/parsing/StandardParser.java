@@ -22,10 +22,20 @@ import java.io.FileReader;
 import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import com.intel.crashreport.core.ParsableEvent;
 
-public class StandardParser implements EventParser {
+public class StandardParser implements KeyedEventParser {
+
+	private static final String CRITICAL_KEY = "CRITICAL=";
+	private static final String[] CRITICAL_LITERALS = {CRITICAL_KEY};
+	//last line of a crashfile, see MainParser
+	private static final String END_LINE = "_END";
 
 	private boolean mCritical;
 	private String mEventName;
@@ -42,17 +52,183 @@ public class StandardParser implements EventParser {
 			return false;
 		}
 		APLog.i("Parsing event : " + aEvent.getEventId() + " as " + mEventType) ;
-		for (StandardRule curRule : mRulesList) {
-			curRule.analyzeEvent(aEvent);
-		}
+		analyzeRules(aEvent);
 		setCritical(aEvent);
 		return true;
 	}
 
+	/**
+	 * Applies all rules to aEvent, reading each input file only once : text
+	 * search rules on the same file are evaluated together.
+	 * Event data are filled in rules order, as if rules were run one by one.
+	 */
+	private void analyzeRules(ParsableEvent aEvent) {
+		String sFolder = aEvent.getCrashDir();
+		File[] files = new File(sFolder).listFiles();
+		String[] results = new String[mRulesList.size()];
+		Map<String, List<Integer>> rulesByFile = new LinkedHashMap<String, List<Integer>>();
+
+		for (int i = 0; i < mRulesList.size(); i++) {
+			StandardRule curRule = mRulesList.get(i);
+			if (!curRule.isFileTextSearch()) {
+				continue;
+			}
+			String sInput = curRule.findInputFile(sFolder, files);
+			if (sInput == null) {
+				APLog.e("can't open Input : " + curRule.getInputValue());
+				continue;
+			}
+			List<Integer> fileRules = rulesByFile.get(sInput);
+			if (fileRules == null) {
+				fileRules = new ArrayList<Integer>();
+				rulesByFile.put(sInput, fileRules);
+			}
+			fileRules.add(i);
+		}
+
+		for (Map.Entry<String, List<Integer>> entry : rulesByFile.entrySet()) {
+			LineSource aReader;
+			try {
+				aReader = MappedLineReader.open(entry.getKey());
+			} catch (FileNotFoundException e) {
+				APLog.e("can't open Input : " + entry.getKey());
+				continue;
+			}
+			List<StandardRule> fileRules = new ArrayList<StandardRule>();
+			for (Integer iRule : entry.getValue()) {
+				fileRules.add(mRulesList.get(iRule));
+			}
+			try {
+				String[] fileResults = StandardRule.textSearch(aReader, fileRules);
+				for (int i = 0; i < fileResults.length; i++) {
+					results[entry.getValue().get(i)] = fileResults[i];
+				}
+			} finally {
+				aReader.close();
+			}
+		}
+
+		for (int i = 0; i < mRulesList.size(); i++) {
+			StandardRule curRule = mRulesList.get(i);
+			if (!curRule.isFileTextSearch()) {
+				curRule.analyzeEvent(aEvent);
+			} else if (results[i] != null) {
+				curRule.fillEventData(results[i], aEvent);
+			}
+		}
+	}
+
 	public void setCritical(ParsableEvent aEvent) {
+		File file = new File(aEvent.getCrashDir(), "crashfile");
+		String sCriticalLine = CRITICAL_KEY + ((mCritical) ? "YES" : "NO");
+		//crashfile readers are key/value based, but stop at _END : the line is kept before it
+		if (!updateCriticalInPlace(file, sCriticalLine)) {
+			rewriteCritical(file, sCriticalLine);
+		}
+		aEvent.setCritical(mCritical);
+	}
+
+	/**
+	 * Updates CRITICAL value of crashfile without rewriting it : nothing is
+	 * written if value is already correct, the line is appended if missing,
+	 * before the _END line terminating the file if any.
+	 *
+	 * @return false if the file has to be rewritten
+	 */
+	private boolean updateCriticalInPlace(File aFile, String aCriticalLine) {
+		LineSource source;
+		try {
+			source = MappedLineReader.open(aFile.getPath());
+		} catch (FileNotFoundException e) {
+			return false;
+		}
+		String sFoundLine = null;
+		int iFoundCount = 0;
+		try {
+			String sLine;
+			while ((sLine = source.readLineContaining(CRITICAL_LITERALS)) != null) {
+				if (sLine.startsWith(CRITICAL_KEY)) {
+					sFoundLine = sLine;
+					iFoundCount++;
+				}
+			}
+		} catch (IOException e) {
+			APLog.e("error while reading file : " + e);
+			return false;
+		} finally {
+			source.close();
+		}
+		if (iFoundCount == 1) {
+			//a different value needs the full rewrite to drop the old line
+			return aCriticalLine.equals(sFoundLine);
+		} else if (iFoundCount > 1) {
+			return false;
+		}
+
+		Charset charset = Charset.defaultCharset();
+		RandomAccessFile raf = null;
+		try {
+			raf = new RandomAccessFile(aFile, "rw");
+			long lLength = raf.length();
+			long lEndOffset = findEndLine(raf, lLength);
+			if (lEndOffset >= 0) {
+				//only the _END line is rewritten, after the inserted line
+				raf.seek(lEndOffset);
+				raf.write((aCriticalLine + "\n" + END_LINE + "\n").getBytes(charset));
+				return true;
+			}
+			String sToAppend = aCriticalLine + "\n";
+			if (lLength > 0) {
+				raf.seek(lLength - 1);
+				if (raf.read() != '\n') {
+					sToAppend = "\n" + sToAppend;
+				}
+			}
+			raf.seek(lLength);
+			raf.write(sToAppend.getBytes(charset));
+			return true;
+		} catch (IOException e) {
+			APLog.e("error while updating file : " + e);
+			return false;
+		} finally {
+			if (raf != null) {
+				try {
+					raf.close();
+				} catch (IOException e) {
+					APLog.e("error while closing file : " + e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the offset of the _END line ending the file, -1 if there is none
+	 */
+	private static long findEndLine(RandomAccessFile aFile, long lLength) throws IOException {
+		//_END, preceded by a line feed and followed by an optional line terminator
+		int iTailLength = (int)Math.min(lLength, END_LINE.length() + 3);
+		byte[] tail = new byte[iTailLength];
+		aFile.seek(lLength - iTailLength);
+		aFile.readFully(tail);
+		String sTail = new String(tail, "ISO-8859-1");
+		int iEnd = sTail.length();
+		if (sTail.endsWith("\r\n"))
+			iEnd -= 2;
+		else if (sTail.endsWith("\n"))
+			iEnd -= 1;
+		int iStart = iEnd - END_LINE.length();
+		if (iStart < 0 || !sTail.regionMatches(iStart, END_LINE, 0, END_LINE.length()))
+			return -1;
+		if (iStart > 0 && sTail.charAt(iStart - 1) != '\n')
+			return -1;
+		if (iStart == 0 && iTailLength < lLength)
+			return -1;
+		return lLength - iTailLength + iStart;
+	}
+
+	private void rewriteCritical(File file, String aCriticalLine) {
 		StringBuilder sb = new StringBuilder(255);
 		String terminator = String.format("%n");
-	        File file = new File(aEvent.getCrashDir(), "crashfile");
 		FileWriter fw = null;
 		BufferedReader br = null;
 
@@ -60,7 +236,7 @@ public class StandardParser implements EventParser {
 			br = new BufferedReader(new FileReader(file));
 			String line = br.readLine();
 			while (line != null) {
-				if (!line.startsWith("CRITICAL="))
+				if (!line.startsWith(CRITICAL_KEY))
 					sb.append(line + terminator);
 
 				line = br.readLine();
@@ -76,7 +252,7 @@ public class StandardParser implements EventParser {
 				}
 		}
 
-		sb.insert(0, "CRITICAL=" + ((mCritical) ? "YES" : "NO") + terminator);
+		sb.insert(0, aCriticalLine + terminator);
 
 		try {
 			fw = new FileWriter(file);
@@ -91,8 +267,6 @@ public class StandardParser implements EventParser {
 					APLog.e("error while closing file : " + e);
 				}
 		}
-
-		aEvent.setCritical(mCritical);
 	}
 
 	public boolean isEventEligible(ParsableEvent aEvent) {
@@ -106,6 +280,15 @@ public class StandardParser implements EventParser {
 		mRulesList.add(aRule);
 	}
 
+	/**
+	 * Compiles the patterns of all rules, see StandardRule.compile().
+	 */
+	void compileRules() {
+		for (StandardRule curRule : mRulesList) {
+			curRule.compile();
+		}
+	}
+
 	public boolean isCritical() {
 		return mCritical;
 	}
@@ -17,18 +17,18 @@
 package com.intel.parsing;
 
 import com.intel.crashreport.core.ParsableEvent;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class StandardRule {
 
 	private static final String TAG_INPUT_FILE = "file";
+	private static final String REGEX_META_CHARS = ".$|()[]{}^?*+\\";
 
 	private String mId;
 	private String mParsingMethod;
@@ -36,8 +36,10 @@ public class StandardRule {
 	private String mInputValue;
 	private String mMatchingPattern;
 	private String mOutputType;
-	private BufferedReader mReader = null;
 	ArrayList<String> mPatternOptionList = new ArrayList<String>();;
+	//compiled on first use, reset when the rule configuration changes
+	private volatile Pattern mPattern;
+	private volatile Pattern mFilePattern;
 
 
 	public String getId() {
@@ -85,6 +87,7 @@ public class StandardRule {
 
 	public void setInputValue(String mInputValue) {
 		this.mInputValue = mInputValue;
+		this.mFilePattern = null;
 	}
 
 	//proxy function for JSONbuilder
@@ -97,6 +100,7 @@ public class StandardRule {
 
 	public void setMatchingPattern(String mMatchingPattern) {
 		this.mMatchingPattern = mMatchingPattern;
+		this.mPattern = null;
 	}
 
 	//proxy function for JSONbuilder
@@ -118,12 +122,133 @@ public class StandardRule {
 
 	public void addpattern_options(String aOption){
 		mPatternOptionList.add(aOption);
+		mPattern = null;
+	}
+
+	/**
+	 * Sets a property by its name in the JSON configuration.
+	 *
+	 * @return false if aName is not a property of a rule
+	 */
+	boolean setProperty(String aName, String aValue) {
+		if (aName.equals("id")) {
+			setId(aValue);
+		} else if (aName.equals("parsing_method")) {
+			setParsingMethod(aValue);
+		} else if (aName.equals("input_type")) {
+			setInputType(aValue);
+		} else if (aName.equals("input_value")) {
+			setInputValue(aValue);
+		} else if (aName.equals("matching_pattern")) {
+			setMatchingPattern(aValue);
+		} else if (aName.equals("output_type")) {
+			setOutputType(aValue);
+		} else {
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Adds one value to an array property of the JSON configuration.
+	 *
+	 * @return false if aName is not an array property of a rule
+	 */
+	boolean addProperty(String aName, String aValue) {
+		if (aName.equals("pattern_options")) {
+			addpattern_options(aValue);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Compiles the patterns of the rule, so that they are ready before the
+	 * first event is parsed.
+	 */
+	void compile() {
+		if (getMatchingPattern() != null) {
+			getPattern();
+		}
+		if (getInputValue() != null) {
+			getFilePattern();
+		}
+	}
+
+	/**
+	 * @return true if the rule is a text search on a file of the crash
+	 * directory, which can be evaluated with textSearch(LineSource, List)
+	 */
+	boolean isFileTextSearch() {
+		return TAG_INPUT_FILE.equals(getInputType()) && "textsearch".equals(getParsingMethod());
+	}
+
+	/**
+	 * Evaluates several text search rules in a single pass on aReader.
+	 *
+	 * @return for each rule, the same value as a separate textSearch()
+	 */
+	static String[] textSearch(LineSource aReader, List<StandardRule> aRules) {
+		int iCount = aRules.size();
+		String[] results = new String[iCount];
+		Pattern[] patterns = new Pattern[iCount];
+		boolean[] bDone = new boolean[iCount];
+		for (int i = 0; i < iCount; i++) {
+			results[i] = "";
+			patterns[i] = aRules.get(i).getPattern();
+		}
+		int iRemaining = iCount;
+		String[] literals = getLiterals(aRules, bDone);
+		String sCurLine;
+		try {
+			while (iRemaining > 0 && (sCurLine = ((literals != null)
+					? aReader.readLineContaining(literals) : aReader.readLine())) != null) {
+				boolean bRuleDone = false;
+				for (int i = 0; i < iCount; i++) {
+					if (bDone[i]) {
+						continue;
+					}
+					String sTmp = aRules.get(i).searchLineByPattern(sCurLine, patterns[i]);
+					if (!sTmp.isEmpty()) {
+						results[i] = sTmp;
+						bDone[i] = true;
+						bRuleDone = true;
+						iRemaining--;
+					}
+				}
+				if (bRuleDone && literals != null) {
+					literals = getLiterals(aRules, bDone);
+				}
+			}
+		} catch (IOException e) {
+			APLog.e( "textSearch - IOException : " + e.getMessage());
+		}
+		return results;
+	}
+
+	//returns literals of remaining rules, null if one of them is not a plain text
+	private static String[] getLiterals(List<StandardRule> aRules, boolean[] aDone) {
+		List<String> literals = new ArrayList<String>();
+		for (int i = 0; i < aRules.size(); i++) {
+			if (aDone[i]) {
+				continue;
+			}
+			String sLiteral = aRules.get(i).getMatchingPattern();
+			if (!isLiteral(sLiteral)) {
+				return null;
+			}
+			literals.add(sLiteral);
+		}
+		return literals.toArray(new String[literals.size()]);
 	}
 
 	public void analyzeEvent(ParsableEvent aEvent){
+		//reader is kept local : a rule can be shared by several parsing threads
+		LineSource aReader;
 		//step1 : open the input for parsing
 		if (getInputType().equals(TAG_INPUT_FILE)){
-			if (!openInputForfileGrep(getInputValue(),aEvent.getCrashDir())){
+			aReader = openInputForfileGrep(aEvent.getCrashDir());
+			if (aReader == null){
 				APLog.e("can't open Input : " + getInputValue());
 				return;
 			}
@@ -134,13 +259,13 @@ public class StandardRule {
 		}
 
 		//Step2 : do the parsing depending on the rule configuration
-		String sExtractData = parseReader();
+		String sExtractData = parseReader(aReader);
 		//step3 :  fill output data in appropriate field
 		fillEventData(sExtractData, aEvent);
-		closeGenericReader();
+		closeGenericReader(aReader);
 	}
 
-	private void fillEventData(String sDataToUse, ParsableEvent eEventToFill) {
+	void fillEventData(String sDataToUse, ParsableEvent eEventToFill) {
 		if (getOutputType().equals("DATA0")) {
 			eEventToFill.setData0(sDataToUse);
 		} else if (getOutputType().equals("DATA1")) {
@@ -158,25 +283,29 @@ public class StandardRule {
 		}
 	}
 
-	private String parseReader() {
-		if (mReader == null){
+	private String parseReader(LineSource aReader) {
+		if (aReader == null){
 			APLog.e("Reader null, can't parse");
 			return "";
 		}
 		if (getParsingMethod().equals("textsearch")){
-			return textSearch();
+			return textSearch(aReader);
 		}
 		APLog.w("no ParsingMethod found");
 		return "";
 	}
 
-	private String textSearch() {
+	private String textSearch(LineSource aReader) {
 		//simple parsing method for text pattern - one line result max
 		Pattern aPattern = getPattern();
 		// loop on reader
 		String sCurLine;
+		//a plain text pattern lets the reader skip lines without decoding them
+		String sLiteral = getMatchingPattern();
+		boolean bLiteral = isLiteral(sLiteral);
 		try {
-			while ((sCurLine = mReader.readLine()) != null) {
+			while ((sCurLine = (bLiteral ? aReader.readLineContaining(sLiteral)
+					: aReader.readLine())) != null) {
 				String sTmp;
 				sTmp = searchLineByPattern(sCurLine, aPattern);
 				if (!sTmp.isEmpty()){
@@ -214,55 +343,80 @@ public class StandardRule {
 		return sResult;
 	}
 
+	private static boolean isLiteral(String aPattern){
+		if (aPattern == null || aPattern.isEmpty()) {
+			return false;
+		}
+		for (int i = 0; i < aPattern.length(); i++) {
+			if (REGEX_META_CHARS.indexOf(aPattern.charAt(i)) >= 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	private String getSeparatorForSearch(){
 		//TO DO in future add options management
 		return ":";
 	}
 
 	private Pattern getPattern(){
-		if  (mPatternOptionList.contains("prefix_search")) {
-			return java.util.regex.Pattern.compile(getMatchingPattern() +".*");
+		Pattern aPattern = mPattern;
+		if (aPattern == null) {
+			if  (mPatternOptionList.contains("prefix_search")) {
+				aPattern = java.util.regex.Pattern.compile(getMatchingPattern() +".*");
+			} else {
+				//default search is "contains" regex
+				aPattern = java.util.regex.Pattern.compile(".*" + getMatchingPattern() +".*");
+			}
+			mPattern = aPattern;
 		}
-		//default search is "contains" regex
-		return java.util.regex.Pattern.compile(".*" + getMatchingPattern() +".*");
+		return aPattern;
 	}
 
-	private void closeGenericReader() {
-		if (mReader != null) {
-			try {
-				mReader.close();
-			} catch (IOException e) {
-				APLog.e("IOException on close reader : " + e.getMessage());
-			}
+	private Pattern getFilePattern(){
+		Pattern aPattern = mFilePattern;
+		if (aPattern == null) {
+			aPattern = java.util.regex.Pattern.compile(getInputValue());
+			mFilePattern = aPattern;
 		}
+		return aPattern;
 	}
 
-	private boolean openInputForfileGrep(String aPattern, String aFolder){
-		//possible improvement : use a Input Interface with dedicated class
-		//depending on type of input
-		Pattern patternFile = java.util.regex.Pattern.compile(aPattern);
+	private void closeGenericReader(LineSource aReader) {
+		if (aReader != null) {
+			aReader.close();
+		}
+	}
 
-		File searchFolder = new File(aFolder );
-		File[] files = searchFolder.listFiles();
-		String sFileInput = "";
-		if(files!=null) {
-			for(File f: files) {
+	/**
+	 * @return path of the first file of aFiles matching input value, null if none
+	 */
+	String findInputFile(String aFolder, File[] aFiles){
+		Pattern patternFile = getFilePattern();
+		if(aFiles!=null) {
+			for(File f: aFiles) {
 				Matcher matcherFile = patternFile.matcher(f.getName());
 				if (matcherFile.find()){
-					sFileInput = aFolder + "/" + f.getName();
-					break;
+					return aFolder + "/" + f.getName();
 				}
 			}
 		}
-		if (!sFileInput.isEmpty()){
+		return null;
+	}
+
+	private LineSource openInputForfileGrep(String aFolder){
+		//possible improvement : use a Input Interface with dedicated class
+		//depending on type of input
+		String sFileInput = findInputFile(aFolder, new File(aFolder).listFiles());
+		if (sFileInput != null){
 			try {
-				mReader = new BufferedReader(new FileReader(sFileInput));
+				return MappedLineReader.open(sFileInput);
 			} catch (FileNotFoundException e) {
-				return false;
+				return null;
 			}
-			return true;
 		}
-		return false;
+		return null;
 	}
 
 
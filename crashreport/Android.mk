@@ -47,3 +47,5 @@ LOCAL_PREBUILT_STATIC_JAVA_LIBRARIES := \
 	libgcmforpd:lib/gcm.jar \
 
 include $(BUILD_MULTI_PREBUILT)
+
+include $(call all-makefiles-under,$(LOCAL_PATH))
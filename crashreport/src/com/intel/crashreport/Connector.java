@@ -16,15 +16,13 @@
 
 package com.intel.crashreport;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.InterruptedIOException;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.net.InetSocketAddress;
 import java.net.Socket;
@@ -39,6 +37,7 @@ import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
@@ -63,7 +62,11 @@ import android.os.UserHandle;
 import android.preference.PreferenceManager;
 
 import com.intel.crashreport.CrashReportService.ServiceMsg;
+import com.intel.crashtoolserver.bean.ChunkedFileInfo;
+import com.intel.crashtoolserver.bean.DedupManifest;
 import com.intel.crashtoolserver.bean.Event;
+import com.intel.crashtoolserver.bean.EventBatch;
+import com.intel.crashtoolserver.bean.EventCodec;
 import com.intel.crashtoolserver.bean.FileInfo;
 import com.intel.crashreport.StartServiceActivity.ServiceToActivityMsg;
 
@@ -73,6 +76,9 @@ public class Connector {
 	private static final int WIFI_CONNECTION_TIME_OUT = 60000;
 	private static final int WIFI_AVAILABLE_TIME_OUT = 10000;
 	private static final int SERVER_CONNECTION_TIME_OUT = 60000;
+	//events sent ahead of their ACK by sendEvents()
+	private static final int EVENT_WINDOW = 8;
+	private static final int LOGS_FILE_CHUNK_SIZE = 64 * 1024;
 
 	private CrashReport app;
 	private Context mCtx;
@@ -80,6 +86,14 @@ public class Connector {
 	private BufferedReader mInputStream = null;
 	private PrintWriter mOutputStream = null;
 	private ObjectOutputStream mObjectOutputStream = null;
+	//set when the server advertises EventBatch support in its connection ACK
+	private boolean mBatchSupported = false;
+	//codec agreed with the server for events in a batch, null to serialize them
+	private EventCodec mEventCodec = null;
+	//set when the server advertises ChunkedFileInfo support in its connection ACK
+	private boolean mResumeSupported = false;
+	private boolean mStreamSupported = false;
+	private boolean mDedupSupported = false;
 	private Handler serviceHandler;
 	private Timer mTimer;
 	private Boolean scanInProgress = false;
@@ -129,17 +143,51 @@ public class Connector {
 			throw new IOException("mOutputStream == null");
 		mObjectOutputStream = new ObjectOutputStream(mSocket.getOutputStream());
 		String readAck = mInputStream.readLine();
-		if ((readAck != null) && readAck.contentEquals("ACK"))
-			Log.d("Connector: Connected to server");
-		else
+		if ((readAck != null) && (readAck.contentEquals("ACK") || readAck.startsWith("ACK "))) {
+			mBatchSupported = hasCapability(readAck, EventBatch.CAPABILITY);
+			mEventCodec = mBatchSupported ? negotiateCodec(readAck) : null;
+			mResumeSupported = hasCapability(readAck, ChunkedFileInfo.CAPABILITY);
+			mStreamSupported = hasCapability(readAck, ChunkedFileInfo.STREAM_CAPABILITY);
+			mDedupSupported = hasCapability(readAck, DedupManifest.CAPABILITY);
+			CrashLogsDedup.setServerSupported(mDedupSupported);
+			Log.d("Connector: Connected to server" + (mBatchSupported ? " (batch" +
+					(mEventCodec != null ? ", " + EventCodec.capability(mEventCodec.getVersion()) : "")
+					+ ")" : "") + (mResumeSupported ? " (resume)" : "")
+					+ (mStreamSupported ? " (stream)" : "") + (mDedupSupported ? " (dedup)" : ""));
+		} else
 			throw new IOException("Server doesn't respond ACK");
 	}
 
+	/**
+	 * Server connection ACK is "ACK", optionally followed by its capabilities,
+	 * e.g. "ACK caps=batch,codec1,codec2". Older servers answer "ACK" only.
+	 */
+	private static EventCodec negotiateCodec(String serverAck) {
+		for (int version = EventCodec.VERSION; version >= EventCodec.MIN_VERSION; version--) {
+			if (hasCapability(serverAck, EventCodec.capability(version)))
+				return new EventCodec(version);
+		}
+		return null;
+	}
+
+	private static boolean hasCapability(String serverAck, String capability) {
+		int start = serverAck.indexOf("caps=");
+		if (start < 0)
+			return false;
+		String caps = serverAck.substring(start + "caps=".length()).trim();
+		return Arrays.asList(caps.split(",")).contains(capability);
+	}
+
 	public void closeServerConnection() throws IOException {
 		if ((mObjectOutputStream != null) && (mSocket != null) && !mSocket.isOutputShutdown()) {
 			mObjectOutputStream.writeObject("END");
 			mObjectOutputStream.flush();
 		}
+		mBatchSupported = false;
+		mEventCodec = null;
+		mResumeSupported = false;
+		mStreamSupported = false;
+		mDedupSupported = false;
 		if (mSocket != null) {
 			try {
 				mSocket.close();
@@ -298,6 +346,70 @@ public class Connector {
 		return sendEventSocket(event);
 	}
 
+	/**
+	 * Sends events in one EventBatch message when the server supports it,
+	 * otherwise keeping several of them in flight, see PipelinedEventSender.
+	 * Events are encoded by EventCodec when the server supports it, and
+	 * serialized by Java otherwise.
+	 *
+	 * @return for each event, true if it is acknowledged by the server
+	 */
+	public boolean[] sendEvents(List<Event> events) {
+		boolean[] acks = new boolean[events.size()];
+		if (mObjectOutputStream == null || mInputStream == null) {
+			Log.w("sendEvents: invalid context!");
+			return acks;
+		}
+		if (mBatchSupported)
+			acks = sendEventBatch(events);
+		else {
+			int acked = new PipelinedEventSender(mObjectOutputStream, mInputStream, EVENT_WINDOW).send(events);
+			Arrays.fill(acks, 0, acked, true);
+		}
+		resetObjectStream();
+		return acks;
+	}
+
+	/**
+	 * Forgets objects already written, so that the stream doesn't keep a
+	 * reference on every event sent during the connection.
+	 */
+	private void resetObjectStream() {
+		try {
+			mObjectOutputStream.reset();
+		} catch (IOException e) {
+			Log.w("resetObjectStream: " + e.getMessage());
+		}
+	}
+
+	private boolean[] sendEventBatch(List<Event> events) {
+		boolean[] acks = new boolean[events.size()];
+		String serverMsg;
+
+		try {
+			EventBatch batch = (mEventCodec != null) ? EventBatch.encode(mEventCodec, events)
+					: new EventBatch(events);
+			mObjectOutputStream.writeObject(batch);
+			mObjectOutputStream.flush();
+			serverMsg = mInputStream.readLine();
+		} catch (IOException e) {
+			Log.w("sendEventBatch: " + e.getMessage());
+			//the codec dictionary may hold beans the server never received
+			mEventCodec = null;
+			return acks;
+		}
+
+		int prefix = EventBatch.ACK_PREFIX.length();
+		if (serverMsg == null || !serverMsg.startsWith(EventBatch.ACK_PREFIX)
+				|| serverMsg.length() != prefix + events.size()) {
+			Log.w("sendEventBatch: unexpected answer " + serverMsg);
+			return acks;
+		}
+		for (int i = 0; i < acks.length; i++)
+			acks[i] = (serverMsg.charAt(prefix + i) == EventBatch.ACK_ITEM);
+		return acks;
+	}
+
 	private void disableInternalWifi() {
 		WifiConfiguration wifiConf = getWifiConfigFromConfiguredNetworks(getInternalWifiSsid());
 		if (wifiConf != null)
@@ -660,61 +772,92 @@ public class Connector {
 		return checkAck(serverMsg);
 	}
 
+	/**
+	 * Sends a log file, in checksummed chunks starting from the bytes the
+	 * server already has when it supports it, see LogsFileSender.
+	 */
 	public Boolean sendLogsFile(FileInfo fileInfo, Thread t) throws InterruptedException {
-		String serverMsg;
-		BufferedInputStream bis = null;
-		if (mObjectOutputStream == null || mSocket == null || fileInfo == null) {
-			Log.w("sendLogsFile: invalid context!");
-			return false;
-		}
-
-		try {
-			mObjectOutputStream.writeObject(fileInfo);
-
-			BufferedOutputStream bos = new BufferedOutputStream(mSocket.getOutputStream());
+		return sendLogs(fileInfo, null, t);
+	}
 
-			byte data[] = new byte[1024];
-			int count;
-			long fileSize;
-			long readBytes = 0;
+	/**
+	 * @return true if the server accepts crashlogs compressed while sent
+	 */
+	public boolean isLogsStreamSupported() {
+		return mStreamSupported;
+	}
 
-			fileSize = fileInfo.getSize();
-			bis = new BufferedInputStream(new FileInputStream(fileInfo.getPath()));
-			while ((count = bis.read(data)) != -1) {
-				bos.write(data, 0, count);
-				readBytes += count;
-				if (fileSize > 0 && app.isActivityBounded()){
-					Intent intent = new Intent(ServiceToActivityMsg.uploadProgressBar);
+	/**
+	 * @return true if the server rebuilds crashlog files from a DedupManifest
+	 */
+	public boolean isLogsDedupSupported() {
+		return mDedupSupported;
+	}
 
-					intent.putExtra("progressValue", (int) ((readBytes*100)/fileSize));
-					mCtx.sendBroadcastAsUser(intent, UserHandle.CURRENT);
-				}
-				if (t == null || t.isInterrupted()) {
-					throw new InterruptedException();
+	/**
+	 * Compresses a crash directory directly on the socket, without any zip
+	 * file. Only for a server supporting it, see isLogsStreamSupported().
+	 *
+	 * @param fileInfo describes the zip, its size being an estimate
+	 * @param crashDir the crash directory to compress
+	 */
+	public Boolean sendLogsStream(final FileInfo fileInfo, final String crashDir, Thread t) throws InterruptedException {
+		if (!mStreamSupported) {
+			Log.w("sendLogsStream: not supported by server");
+			return false;
+		}
+		return sendLogs(fileInfo, new LogsFileSender.StreamWriter() {
+			public void writeTo(OutputStream out) throws IOException {
+				try {
+					CrashLogs.writeCrashLogs(crashDir, fileInfo.getName(),
+							mDedupSupported ? fileInfo.getEventId() : null, out);
+				} catch (IllegalArgumentException e) {
+					throw new IOException(crashDir + " removed while streamed");
+				} catch (UnsupportedOperationException e) {
+					throw new IOException(crashDir + " emptied while streamed");
 				}
 			}
-			bos.flush();
+		}, t);
+	}
 
-			if (!mSocket.isClosed() && !mSocket.isInputShutdown()) {
-				serverMsg = mInputStream.readLine();
-				if (checkAck(serverMsg))
-					return true;
+	private Boolean sendLogs(FileInfo fileInfo, LogsFileSender.StreamWriter writer, Thread t) throws InterruptedException {
+		if (mObjectOutputStream == null || mSocket == null || fileInfo == null) {
+			Log.w("sendLogsFile: invalid context!");
+			return false;
+		}
+
+		UploadStats stats = new UploadStats(fileInfo.getName());
+		try {
+			LogsFileSender sender = new LogsFileSender(mObjectOutputStream,
+					mSocket.getOutputStream(), mInputStream, LOGS_FILE_CHUNK_SIZE);
+			boolean sent = (writer != null)
+					? sender.sendStream(fileInfo, writer, stats, uploadProgressListener, t)
+					: sender.send(fileInfo, mResumeSupported, stats, uploadProgressListener, t);
+			if (sent) {
+				Log.i("sendLogsFile: " + stats);
+				return true;
 			}
 		} catch (IOException e) {
 			Log.w(Log.getStackTraceString(e));
 			return false;
 		} finally {
-			if (bis != null) {
-				try {
-					bis.close();
-				} catch (IOException e) {
-					Log.w("IOException : " + e.getMessage());
-				}
-			}
+			stats.finish();
 		}
+		Log.w("sendLogsFile: no ACK, " + stats);
 		return false;
 	}
 
+	private LogsFileSender.ProgressListener uploadProgressListener = new LogsFileSender.ProgressListener() {
+		public void onProgress(int percent) {
+			if (app.isActivityBounded()) {
+				Intent intent = new Intent(ServiceToActivityMsg.uploadProgressBar);
+
+				intent.putExtra("progressValue", percent);
+				mCtx.sendBroadcastAsUser(intent, UserHandle.CURRENT);
+			}
+		}
+	};
+
 	private Boolean checkAck(String serverMsg) {
 		if (serverMsg == null || !serverMsg.equals("ACK")) {
 			return false;
@@ -0,0 +1,216 @@
+/* Copyright (C) 2019 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intel.crashreport;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import android.content.Context;
+import android.database.SQLException;
+import android.os.Process;
+
+import com.intel.crashreport.database.EventDB;
+
+/**
+ * Background stage building the zipped crashlog files of events ahead of
+ * their upload, in the application cache directory.
+ *
+ * Events are queued when their data become ready, and by the uploader for
+ * the next event to upload, so that a zip is built while the previous one
+ * is sent. A single low priority thread builds the zips, its compression
+ * workers inheriting its priority, within a cache size budget. Zips of
+ * events whose logs are already uploaded, or older than MAX_FILE_AGE_MS,
+ * are deleted before each build.
+ */
+public final class CrashLogsPackager {
+
+	private static final long CACHE_BUDGET = 32 * 1024 * 1024;
+	private static final long MAX_FILE_AGE_MS = 24 * 60 * 60 * 1000L;
+
+	private static CrashLogsPackager sInstance = null;
+
+	private final Context mCtx;
+	//queued events by event id, in queuing order
+	private final LinkedHashMap<String, Pending> mQueue = new LinkedHashMap<String, Pending>();
+	//event whose zip is being built
+	private Pending mCurrent = null;
+	private Thread mWorker = null;
+
+	private static class Pending {
+		final String eventId;
+		final String crashDir;
+		final int logsSize;
+
+		Pending(String eventId, String crashDir, int logsSize) {
+			this.eventId = eventId;
+			this.crashDir = crashDir;
+			this.logsSize = logsSize;
+		}
+	}
+
+	private CrashLogsPackager(Context context) {
+		mCtx = context.getApplicationContext();
+	}
+
+	public static synchronized CrashLogsPackager getInstance(Context context) {
+		if (sInstance == null)
+			sInstance = new CrashLogsPackager(context);
+		return sInstance;
+	}
+
+	/**
+	 * @return true if the settings allow the upload of the logs of an event
+	 */
+	public static boolean isLogUploadAllowed(ApplicationPreferences prefs, String eventName, String type) {
+		if (!prefs.isCrashLogsUploadEnable())
+			return false;
+		if (!"CRASH".equals(eventName))
+			return true;
+		//configured types are the ones whose logs are not uploaded
+		String excludedTypes[] = prefs.getCrashLogsUploadTypes();
+		return (excludedTypes == null) || !Arrays.asList(excludedTypes).contains(type);
+	}
+
+	/**
+	 * Queue an event whose zipped crashlog file shall be built
+	 *
+	 * @param logsSize estimated size of the zip, see CrashLogs.getCrashLogsSize()
+	 */
+	public synchronized void enqueue(String eventId, String crashDir, int logsSize) {
+		if (eventId == null || crashDir == null || crashDir.isEmpty() || logsSize <= 0)
+			return;
+		if (isCurrent(eventId) || mQueue.containsKey(eventId))
+			return;
+		mQueue.put(eventId, new Pending(eventId, crashDir, logsSize));
+		if (mWorker == null) {
+			mWorker = new Thread(packaging, "CrashLogsPackager");
+			mWorker.start();
+		}
+	}
+
+	/**
+	 * Called by the uploader before it uses the zipped crashlog file of an event :
+	 * the event is removed from the queue, and if its zip is being built, waits
+	 * for it to be complete.
+	 */
+	public synchronized void claim(String eventId) throws InterruptedException {
+		mQueue.remove(eventId);
+		while (isCurrent(eventId))
+			wait();
+	}
+
+	private boolean isCurrent(String eventId) {
+		return (mCurrent != null) && mCurrent.eventId.equals(eventId);
+	}
+
+	private synchronized Pending next() {
+		Iterator<Pending> it = mQueue.values().iterator();
+		if (!it.hasNext()) {
+			mWorker = null;
+			return null;
+		}
+		mCurrent = it.next();
+		it.remove();
+		return mCurrent;
+	}
+
+	private synchronized void done() {
+		mCurrent = null;
+		notifyAll();
+	}
+
+	private final Runnable packaging = new Runnable() {
+		public void run() {
+			Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+			Pending pending;
+			while ((pending = next()) != null) {
+				try {
+					build(pending.eventId, pending.crashDir, pending.logsSize);
+				} catch (SQLException e) {
+					Log.w("CrashLogsPackager: can't access DB for " + pending.eventId);
+				} finally {
+					done();
+				}
+			}
+		}
+	};
+
+	private void build(String eventId, String crashDir, int logsSize) {
+		ApplicationPreferences prefs = new ApplicationPreferences(mCtx);
+		if (!prefs.isCrashLogsUploadEnable())
+			return;
+		File cacheDir = mCtx.getCacheDir();
+		if (cacheDir == null || CrashLogs.hasCrashLogsFile(mCtx, eventId))
+			return;
+		long cacheSize = evict(cacheDir, prefs.getCrashLogsUploadTypes());
+		if (cacheSize + logsSize > CACHE_BUDGET) {
+			Log.d("CrashLogsPackager: cache budget reached, " + eventId + " zipped at upload");
+			return;
+		}
+		long start = System.currentTimeMillis();
+		File crashLogs = CrashLogs.getCrashLogsFile(mCtx, crashDir, eventId,
+				CrashLogsDedup.isServerSupported());
+		if (crashLogs != null)
+			Log.d("CrashLogsPackager: " + crashLogs.getName() + " built in "
+					+ (System.currentTimeMillis() - start) + " ms");
+	}
+
+	/**
+	 * Delete the stale zipped crashlog files, and the ones whose logs are
+	 * uploaded or not to upload
+	 *
+	 * @param excludedTypes types of the crashes whose logs are not uploaded, may be null
+	 * @return the size of the zipped crashlog files kept in cacheDir
+	 */
+	private long evict(File cacheDir, String excludedTypes[]) {
+		File files[] = cacheDir.listFiles();
+		if (files == null)
+			return 0;
+		long now = System.currentTimeMillis();
+		long cacheSize = 0;
+		EventDB db = new EventDB(mCtx);
+		db.open();
+		try {
+			for (File file : files) {
+				String name = file.getName();
+				if (!name.startsWith(CrashLogs.CRASHLOGS_FILE_PREFIX))
+					continue;
+				boolean stale = now - file.lastModified() > MAX_FILE_AGE_MS;
+				if (name.endsWith(CrashLogs.CRASHLOGS_FILE_SUFFIX)) {
+					String eventId = name.substring(CrashLogs.CRASHLOGS_FILE_PREFIX.length(),
+							name.length() - CrashLogs.CRASHLOGS_FILE_SUFFIX.length());
+					if (!stale && db.isEventLogToUpload(eventId, excludedTypes)) {
+						cacheSize += file.length();
+						continue;
+					}
+				} else if (!name.endsWith(CrashLogs.TMP_FILE_SUFFIX) || !stale) {
+					//zip being written
+					cacheSize += file.length();
+					continue;
+				}
+				if (file.delete())
+					Log.d("CrashLogsPackager: " + name + " evicted");
+			}
+		} finally {
+			db.close();
+		}
+		return cacheSize;
+	}
+}
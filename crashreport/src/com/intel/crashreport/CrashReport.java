@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import com.intel.crashreport.bugzilla.ui.common.BugStorage;
 import com.intel.crashreport.specific.Build;
 import com.intel.crashreport.database.EventDB;
+import com.intel.crashreport.database.GeneralEventDB;
 import com.intel.crashreport.specific.EventGenerator;
 import com.intel.crashreport.StartServiceActivity;
 
@@ -54,6 +55,14 @@ public class CrashReport extends Application {
 		String version = this.getString(R.string.app_version);
 		EventGenerator.INSTANCE.setContext(getApplicationContext());
 		GeneralEventGenerator.INSTANCE.setContext(getApplicationContext());
+		GeneralEventDB.setDataReadyListener(new GeneralEventDB.DataReadyListener() {
+			public void onDataReady(String eventId, String eventName, String type, String crashDir, int logsSize) {
+				//only logs the settings allow to upload are built ahead
+				ApplicationPreferences prefs = new ApplicationPreferences(CrashReport.this);
+				if (CrashLogsPackager.isLogUploadAllowed(prefs, eventName, type))
+					CrashLogsPackager.getInstance(CrashReport.this).enqueue(eventId, crashDir, logsSize);
+			}
+		});
 
 		if (!privatePrefs.getVersion().contentEquals(version)) {
 			SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(this);
@@ -22,6 +22,8 @@ import java.net.ProtocolException;
 import java.net.UnknownHostException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
 
 import android.app.Service;
 import android.content.ComponentName;
@@ -42,7 +44,9 @@ import android.os.UserHandle;
 import com.intel.crashreport.StartServiceActivity.ServiceToActivityMsg;
 import com.intel.crashreport.specific.Build;
 import com.intel.crashreport.specific.Event;
+import com.intel.crashreport.core.GeneralEvent;
 import com.intel.crashreport.database.EventDB;
+import com.intel.crashreport.database.RowIterator;
 import com.intel.crashreport.specific.PDStatus;
 import com.intel.crashreport.specific.PDStatus.PDSTATUS_TIME;
 import com.intel.crashreport.threads.EventUploadThread;
@@ -59,6 +63,8 @@ public class CrashReportService extends Service {
 	private Logger logger = new Logger();
 	public static final DateFormat DAY_DF = new SimpleDateFormat("yyyy-MM-dd");
 	private static final String MODULE = "CrashReportService";
+	//events read per database page and sent together
+	private static final int EVENT_UPLOAD_BATCH = 32;
 
 	@Override
 	public void onCreate() {
@@ -386,31 +392,59 @@ public class CrashReportService extends Service {
 
 
 	public void sendEvents(EventDB db, Connector con,Build myBuild) throws InterruptedException,ProtocolException,SQLException{
-		Cursor cursor = db.fetchNotUploadedEvents();
 		Event event;
 		hideProgressBar();
-		if (cursor != null) {
-			PDStatus.INSTANCE.setContext(getApplicationContext());
-			while (!cursor.isAfterLast()) {
+		PDStatus.INSTANCE.setContext(getApplicationContext());
+		List<Event> events = new ArrayList<Event>();
+		List<com.intel.crashtoolserver.bean.Event> sEvents =
+				new ArrayList<com.intel.crashtoolserver.bean.Event>();
+		String spid = Event.getSPIDFromFile();
+		//events are read by pages, each page is sent once read
+		RowIterator<GeneralEvent> iterator = db.fetchNotUploadedEvents(EVENT_UPLOAD_BATCH);
+		try {
+			while (iterator.hasNext()) {
 				if (runThread == null || runThread.isInterrupted()) {
-					cursor.close();
 					throw new InterruptedException();
 				}
-				event = new Event(db.fillEventFromCursor(cursor));
+				event = new Event(iterator.next());
 				event.setPdStatus(PDStatus.INSTANCE.computePDStatus(event, PDSTATUS_TIME.UPLOAD_TIME));
-				com.intel.crashtoolserver.bean.Event sEvent = event.getEventForServer(myBuild, app.getTokenGCM());
-				if (con.sendEvent(sEvent)) {
-					db.updateEventToUploaded(event.getEventId());
-					db.updatePDStatus(event.getPdStatus(), event.getEventId());
-					Log.i(MODULE+":uploadEvent : Success upload of " + event);
-					cursor.moveToNext();
-				} else {
-					Log.w(MODULE+":uploadEvent : Fail upload of " + event);
-					cursor.close();
-					throw new ProtocolException();
+				events.add(event);
+				sEvents.add(event.getEventForServer(myBuild, app.getTokenGCM(), spid));
+				if (events.size() == EVENT_UPLOAD_BATCH) {
+					sendEventBatch(db, con, events, sEvents);
+					events.clear();
+					sEvents.clear();
 				}
 			}
-			cursor.close();
+		} finally {
+			iterator.close();
+		}
+		if (!events.isEmpty())
+			sendEventBatch(db, con, events, sEvents);
+	}
+
+	/**
+	 * Sends a page of events : only events acknowledged by the server are
+	 * marked as uploaded.
+	 */
+	private void sendEventBatch(EventDB db, Connector con, List<Event> events,
+			List<com.intel.crashtoolserver.bean.Event> sEvents) throws ProtocolException, SQLException {
+		boolean[] acks = con.sendEvents(sEvents);
+		Event failed = null;
+		for (int i = 0; i < acks.length; i++) {
+			Event event = events.get(i);
+			if (!acks[i]) {
+				if (failed == null)
+					failed = event;
+				continue;
+			}
+			db.updateEventToUploaded(event.getEventId());
+			db.updatePDStatus(event.getPdStatus(), event.getEventId());
+			Log.i(MODULE+":uploadEvent : Success upload of " + event);
+		}
+		if (failed != null) {
+			Log.w(MODULE+":uploadEvent : Fail upload of " + failed);
+			throw new ProtocolException();
 		}
 	}
 
@@ -106,6 +106,8 @@ public enum GeneralEventGenerator {
 					db.addBZ(bzDescription);
 				}
 				db.close();
+				//a running upload only looks for new events when flagged
+				ap.setNeedToUpload(true);
 				if (toNotify) {
 					Intent intent = new Intent("com.intel.crashreport.intent.START_CRASHREPORT");
 					mContext.sendBroadcastAsUser(intent, UserHandle.CURRENT);
@@ -0,0 +1,297 @@
+/* Copyright (C) 2019 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intel.crashreport;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+import com.intel.crashtoolserver.bean.ChunkedFileInfo;
+import com.intel.crashtoolserver.bean.FileInfo;
+
+/**
+ * Sends a log file to the crashtool server.
+ *
+ * The file data is written by large chunks directly on the socket stream.
+ * When chunked, the file is sent from the offset the server already
+ * committed, in frames checked by a CRC32, see ChunkedFileInfo. A file can
+ * also be streamed, i.e. written in frames while it is generated.
+ */
+final class LogsFileSender {
+
+	//chunk frame : int data length, data, long CRC32 of the data
+	private static final int FRAME_HEADER_SIZE = 4;
+	private static final int FRAME_TRAILER_SIZE = 8;
+	//progress is reported at most once per interval, and at the end
+	private static final long PROGRESS_MIN_INTERVAL_NS = 250 * 1000000L;
+
+	interface ProgressListener {
+		void onProgress(int percent);
+	}
+
+	/**
+	 * Generates a streamed file
+	 */
+	interface StreamWriter {
+		void writeTo(OutputStream out) throws IOException;
+	}
+
+	private final ObjectOutputStream mObjectOutput;
+	private final OutputStream mOutput;
+	private final BufferedReader mInput;
+	private final int mChunkSize;
+	//a frame holds its header, the data and its CRC32, so that a chunk
+	//is written at once
+	private final byte mFrame[];
+	private final ByteBuffer mFrameBuffer;
+	private final CRC32 mCrc = new CRC32();
+
+	private UploadStats mStats;
+	private ProgressListener mListener;
+	private Thread mThread;
+	private long mSize;
+	private long mSentBytes;
+	private int mLastProgress;
+	private long mLastProgressTime;
+
+	LogsFileSender(ObjectOutputStream aObjectOutput, OutputStream aOutput,
+			BufferedReader aInput, int aChunkSize) {
+		mObjectOutput = aObjectOutput;
+		mOutput = aOutput;
+		mInput = aInput;
+		mChunkSize = aChunkSize;
+		mFrame = new byte[FRAME_HEADER_SIZE + mChunkSize + FRAME_TRAILER_SIZE];
+		mFrameBuffer = ByteBuffer.wrap(mFrame);
+	}
+
+	/**
+	 * @param aChunked true to use ChunkedFileInfo, if the server supports it
+	 * @param aStats filled with the throughput of the upload
+	 * @param aListener notified of the upload progress, may be null
+	 * @param aThread thread sending the file, stops the upload when interrupted
+	 * @return true if the server acknowledged the whole file
+	 */
+	boolean send(FileInfo aFileInfo, boolean aChunked, UploadStats aStats,
+			ProgressListener aListener, Thread aThread) throws IOException, InterruptedException {
+		long offset = 0;
+		start(aFileInfo, aStats, aListener, aThread);
+		if (aChunked) {
+			long lastModified = new File(aFileInfo.getPath()).lastModified();
+			mObjectOutput.writeObject(new ChunkedFileInfo(aFileInfo, lastModified, mChunkSize));
+			mObjectOutput.flush();
+			offset = readResumeOffset(mSize);
+			aStats.setResumeOffset(offset);
+		} else {
+			mObjectOutput.writeObject(aFileInfo);
+			mObjectOutput.flush();
+		}
+		mSentBytes = offset;
+
+		int count;
+		RandomAccessFile file = new RandomAccessFile(aFileInfo.getPath(), "r");
+		try {
+			file.seek(offset);
+			while ((count = file.read(mFrame, FRAME_HEADER_SIZE, mChunkSize)) != -1) {
+				if (aChunked) {
+					writeFrame(count);
+				} else {
+					long writeStart = System.nanoTime();
+					mOutput.write(mFrame, FRAME_HEADER_SIZE, count);
+					onWrite(count, writeStart);
+				}
+				if (aThread == null || aThread.isInterrupted()) {
+					throw new InterruptedException();
+				}
+			}
+		} finally {
+			file.close();
+		}
+		if (aChunked) {
+			writeFrame(0);
+		}
+		mOutput.flush();
+		return readAck();
+	}
+
+	/**
+	 * Sends a file generated while it is sent, in frames as ChunkedFileInfo.
+	 * Only for a server supporting ChunkedFileInfo.STREAM_CAPABILITY.
+	 *
+	 * @param aFileInfo the streamed file, its size is only used for the progress
+	 * @param aWriter generates the file data
+	 * @return true if the server acknowledged the whole file
+	 */
+	boolean sendStream(FileInfo aFileInfo, StreamWriter aWriter, UploadStats aStats,
+			ProgressListener aListener, Thread aThread) throws IOException, InterruptedException {
+		start(aFileInfo, aStats, aListener, aThread);
+		mObjectOutput.writeObject(new ChunkedFileInfo(aFileInfo, 0, mChunkSize, true));
+		mObjectOutput.flush();
+		long offset = readResumeOffset(mSize);
+		if (offset != 0) {
+			throw new IOException("Can't resume streamed file at " + offset);
+		}
+		mSentBytes = 0;
+
+		FrameOutputStream out = new FrameOutputStream();
+		try {
+			aWriter.writeTo(out);
+		} catch (InterruptedIOException e) {
+			if (aThread == null || aThread.isInterrupted()) {
+				throw new InterruptedException();
+			}
+			throw e;
+		}
+		out.close();
+		mOutput.flush();
+		return readAck();
+	}
+
+	private void start(FileInfo aFileInfo, UploadStats aStats,
+			ProgressListener aListener, Thread aThread) {
+		mSize = aFileInfo.getSize();
+		mStats = aStats;
+		mListener = aListener;
+		mThread = aThread;
+		mLastProgress = -1;
+		mLastProgressTime = 0;
+	}
+
+	/**
+	 * Writes the frame of the aCount data bytes stored in mFrame
+	 */
+	private void writeFrame(int aCount) throws IOException {
+		long writeStart = System.nanoTime();
+		mFrameBuffer.putInt(0, aCount);
+		if (aCount == 0) {
+			mOutput.write(mFrame, 0, FRAME_HEADER_SIZE);
+			return;
+		}
+		mCrc.reset();
+		mCrc.update(mFrame, FRAME_HEADER_SIZE, aCount);
+		mFrameBuffer.putLong(FRAME_HEADER_SIZE + aCount, mCrc.getValue());
+		mOutput.write(mFrame, 0, FRAME_HEADER_SIZE + aCount + FRAME_TRAILER_SIZE);
+		onWrite(aCount, writeStart);
+	}
+
+	private void onWrite(int aCount, long aWriteStart) {
+		long now = System.nanoTime();
+		mStats.onWrite(aCount, now - aWriteStart);
+		mSentBytes += aCount;
+		if (mSize > 0 && mListener != null) {
+			//a streamed file may be bigger than its estimated size
+			int progress = (int) Math.min(100, (mSentBytes * 100) / mSize);
+			if (progress != mLastProgress && (progress >= 100
+					|| now - mLastProgressTime >= PROGRESS_MIN_INTERVAL_NS)) {
+				mLastProgress = progress;
+				mLastProgressTime = now;
+				mListener.onProgress(progress);
+			}
+		}
+	}
+
+	private boolean readAck() throws IOException {
+		String serverMsg = mInput.readLine();
+		mStats.finish();
+		if (serverMsg != null && serverMsg.equals("ACK")) {
+			return true;
+		}
+		if (serverMsg != null && serverMsg.startsWith(ChunkedFileInfo.NACK_PREFIX)) {
+			Log.w("LogsFileSender: server committed "
+					+ serverMsg.substring(ChunkedFileInfo.NACK_PREFIX.length())
+					+ " bytes of " + mSentBytes);
+		}
+		return false;
+	}
+
+	/**
+	 * @return number of bytes of the file the server already committed
+	 */
+	private long readResumeOffset(long aFileSize) throws IOException {
+		String serverMsg = mInput.readLine();
+		if (serverMsg == null || !serverMsg.startsWith(ChunkedFileInfo.OFFSET_PREFIX)) {
+			throw new IOException("Server doesn't respond OFFSET : " + serverMsg);
+		}
+		long offset;
+		try {
+			offset = Long.parseLong(serverMsg.substring(ChunkedFileInfo.OFFSET_PREFIX.length()).trim());
+		} catch (NumberFormatException e) {
+			throw new IOException("Invalid resume offset : " + serverMsg);
+		}
+		if (offset < 0 || offset > aFileSize) {
+			throw new IOException("Invalid resume offset " + offset + " for " + aFileSize + " bytes");
+		}
+		return offset;
+	}
+
+	/**
+	 * Fills the data part of mFrame, and writes it as a frame once full.
+	 * Closing it writes the last frame and the frame of length 0, the
+	 * socket stream is left open.
+	 */
+	private class FrameOutputStream extends OutputStream {
+		private int mCount = 0;
+		private boolean mClosed = false;
+
+		@Override
+		public void write(int b) throws IOException {
+			if (mCount == mChunkSize) {
+				flushFrame();
+			}
+			mFrame[FRAME_HEADER_SIZE + mCount++] = (byte) b;
+		}
+
+		@Override
+		public void write(byte b[], int off, int len) throws IOException {
+			while (len > 0) {
+				if (mCount == mChunkSize) {
+					flushFrame();
+				}
+				int count = Math.min(len, mChunkSize - mCount);
+				System.arraycopy(b, off, mFrame, FRAME_HEADER_SIZE + mCount, count);
+				mCount += count;
+				off += count;
+				len -= count;
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (mClosed) {
+				return;
+			}
+			mClosed = true;
+			if (mCount > 0) {
+				flushFrame();
+			}
+			writeFrame(0);
+		}
+
+		private void flushFrame() throws IOException {
+			writeFrame(mCount);
+			mCount = 0;
+			if (mThread == null || mThread.isInterrupted()) {
+				throw new InterruptedIOException();
+			}
+		}
+	}
+}
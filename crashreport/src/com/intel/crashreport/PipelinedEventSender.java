@@ -0,0 +1,73 @@
+/* Copyright (C) 2019 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intel.crashreport;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.List;
+
+import com.intel.crashtoolserver.bean.Event;
+
+/**
+ * Sends events to the crashtool server without waiting for each ACK.
+ *
+ * The server answers one "ACK" line per event, in the order events are
+ * received : up to a window of events are written ahead, and each ACK read
+ * acknowledges the oldest event still in flight.
+ */
+final class PipelinedEventSender {
+
+	private final ObjectOutputStream mOutput;
+	private final BufferedReader mInput;
+	private final int mWindow;
+
+	PipelinedEventSender(ObjectOutputStream aOutput, BufferedReader aInput, int aWindow) {
+		mOutput = aOutput;
+		mInput = aInput;
+		mWindow = Math.max(1, aWindow);
+	}
+
+	/**
+	 * @return number of events acknowledged by the server, counted from the
+	 * first event of aEvents. Sending stops at the first missing ACK.
+	 */
+	int send(List<Event> aEvents) {
+		int iSent = 0;
+		int iAcked = 0;
+		try {
+			while (iAcked < aEvents.size()) {
+				while (iSent < aEvents.size() && iSent - iAcked < mWindow) {
+					mOutput.writeObject(aEvents.get(iSent));
+					iSent++;
+				}
+				mOutput.flush();
+				String serverMsg = mInput.readLine();
+				if (serverMsg == null || !serverMsg.equals("ACK")) {
+					Log.w("PipelinedEventSender: no ACK for event " + iAcked
+							+ ", " + (iSent - iAcked - 1) + " more in flight");
+					break;
+				}
+				iAcked++;
+			}
+		} catch (IOException e) {
+			Log.w("PipelinedEventSender: " + e.getMessage());
+		}
+		return iAcked;
+	}
+}
@@ -0,0 +1,99 @@
+/* Copyright (C) 2019 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intel.crashreport;
+
+/**
+ * Throughput of one file upload : bytes written, duration, and stalls,
+ * i.e. socket writes blocked longer than STALL_THRESHOLD_MS.
+ */
+public final class UploadStats {
+
+	public static final long STALL_THRESHOLD_MS = 1000;
+
+	private final String mName;
+	private final long mStartNanos;
+	private long mEndNanos;
+	private long mBytes;
+	private int mStalls;
+	private long mLongestStallMs;
+	private long mResumeOffset;
+
+	UploadStats(String name) {
+		mName = name;
+		mStartNanos = System.nanoTime();
+	}
+
+	/**
+	 * @param bytes number of bytes written
+	 * @param durationNanos time spent in the write
+	 */
+	void onWrite(int bytes, long durationNanos) {
+		mBytes += bytes;
+		long durationMs = durationNanos / 1000000;
+		if (durationMs >= STALL_THRESHOLD_MS) {
+			mStalls++;
+			mLongestStallMs = Math.max(mLongestStallMs, durationMs);
+		}
+	}
+
+	/**
+	 * @param offset bytes of the file the server already had
+	 */
+	void setResumeOffset(long offset) {
+		mResumeOffset = offset;
+	}
+
+	void finish() {
+		if (mEndNanos == 0) {
+			mEndNanos = System.nanoTime();
+		}
+	}
+
+	public long getBytes() {
+		return mBytes;
+	}
+
+	public long getDurationMs() {
+		long end = (mEndNanos != 0) ? mEndNanos : System.nanoTime();
+		return (end - mStartNanos) / 1000000;
+	}
+
+	public long getBytesPerSecond() {
+		long durationMs = getDurationMs();
+		return (durationMs > 0) ? (mBytes * 1000) / durationMs : mBytes;
+	}
+
+	public long getResumeOffset() {
+		return mResumeOffset;
+	}
+
+	public int getStalls() {
+		return mStalls;
+	}
+
+	public long getLongestStallMs() {
+		return mLongestStallMs;
+	}
+
+	@Override
+	public String toString() {
+		return mName + ": " + mBytes + " bytes in " + getDurationMs() + " ms ("
+				+ getBytesPerSecond() / 1024 + " KB/s), " + mStalls + " stall(s)"
+				+ ((mStalls > 0) ? ", longest " + mLongestStallMs + " ms" : "")
+				+ ((mResumeOffset > 0) ? ", resumed at " + mResumeOffset : "");
+	}
+}
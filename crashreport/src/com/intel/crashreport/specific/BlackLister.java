@@ -29,6 +29,7 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.SQLException;
 import com.intel.crashreport.database.GeneralEventDB;
+import com.intel.crashreport.database.Selection;
 import com.intel.crashreport.database.Utils;
 
 public class BlackLister {
@@ -86,14 +87,14 @@ public class BlackLister {
 	}
 
         private void notifyEndOfRain(RainSignature rainSignature) {
-		int occurences = db.getRainOccurances(rainSignature.querySignature());
+		int occurences = db.getRainOccurances(rainSignature.getSelection());
 		if( occurences > 0)
 			EventGenerator.INSTANCE.generateEventRain(
 				rainSignature, occurences);
 	}
 
         private void updateRainOccurance(RainSignature rainSignature, Date date) {
-		String signature = rainSignature.querySignature();
+		Selection signature = rainSignature.getSelection();
 		Cursor cursor = db.getRainEventInfo(signature);
 		int occurences = db.getRainOccurances(cursor);
 		int lastFibo = db.getRainLastFibo(cursor);
@@ -129,7 +130,7 @@ public class BlackLister {
 		// Fetch from events database the number of events with
 		// matching signature and with a matching date value
 		int count = db.getMatchingRainEventsCount(lastEventDate,
-			rainSignature.querySignature());
+			rainSignature.getSelection());
 
 		if (count < RAIN_CRASH_NUMBER)
 			return false;
@@ -138,7 +139,7 @@ public class BlackLister {
 			db.addRainEvent(event);
 		else {
 			notifyEndOfRain(rainSignature);
-			db.resetRainEvent(rainSignature.querySignature(), date);
+			db.resetRainEvent(rainSignature.getSelection(), date);
 		}
 		EventGenerator.INSTANCE.generateEventRain(rainSignature, RAIN_CRASH_NUMBER);
 		return true;
@@ -156,7 +157,7 @@ public class BlackLister {
 				return false;
 			}
 
-			String signature = rainSignature.querySignature();
+			Selection signature = rainSignature.getSelection();
 			if(db.isRainEventExist(signature)) {
 				if(db.isInTheCurrentRain(event, signature, MAX_DELAY_RAIN)) {
 					updateRainOccurance(rainSignature, event.getDate());
@@ -181,7 +182,7 @@ public class BlackLister {
 				result = checkNewRain(event, -1);
 			}
 			if(result) {
-				db.addBlackEvent(event, "RAIN", rainSignature.querySignature());
+				db.addBlackEvent(event, "RAIN", rainSignature.getSelection());
 				Log.w("BlackLister: event "+event.getEventId()+" is RAIN");
 			}
 		}
@@ -228,7 +229,7 @@ public class BlackLister {
 					RainSignature rain = new RainSignature(type, data0,
 							data1, data2, data3);
 					notifyEndOfRain(rain);
-					db.deleteRainEvent(rain.querySignature());
+					db.deleteRainEvent(rain.getSelection());
 					cursor.moveToNext();
 				}
 				cursor.close();
@@ -287,7 +288,7 @@ public class BlackLister {
 				}
 			}
 			if (isEventDuplicate) {
-				db.addBlackEvent(event, "DUPLICATE", (new RainSignature(event)).querySignature() );
+				db.addBlackEvent(event, "DUPLICATE", (new RainSignature(event)).getSelection() );
 				Log.i(module +"event "+event.getEventId()+" is DUPLICATE");
 				//the event is blacklisted so its crashlog directory shall be removed
 				CrashlogDaemonCmdFile.createCrashlogdCmdFile(CrashlogDaemonCmdFile.Command.DELETE, "ARGS="+event.getEventId()+";\n", mCtxt);
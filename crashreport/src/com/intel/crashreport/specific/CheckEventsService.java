@@ -17,6 +17,11 @@
 package com.intel.crashreport.specific;
 
 import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 
 import android.app.Service;
 import android.content.Context;
@@ -180,6 +185,8 @@ public class CheckEventsService extends Service {
 		boolean historyEventCorrupted = false;
 		boolean result;
 		boolean hasModemExt;
+		//events added by the last chunk
+		boolean dbChanged = false;
 		String bootMode = "";
 		Context context = getApplicationContext();
 
@@ -199,88 +206,175 @@ public class CheckEventsService extends Service {
 				DeviceManager.INSTANCE.checkMpanicNotReady(db);
 			}
 			histFile = new HistoryEventFile();
-			histFile.open();
+			HistoryCheckpoint checkpoint = HistoryCheckpoint.load(context);
+			if (!checkpoint.getEventId().isEmpty() && !db.isEventInDb(checkpoint.getEventId())) {
+				//database was regenerated : all events have to be read again
+				checkpoint.reset();
+			}
+			histFile.open(checkpoint);
+			if (histFile.isResumed()) {
+				Log.d(from+": history_event read from offset " + checkpoint.getOffset());
+				bootMode = checkpoint.getBootMode();
+				historyEventCorrupted = checkpoint.isCorrupted();
+				PDStatus.INSTANCE.setHistoryEventCorrupted(historyEventCorrupted);
+			} else {
+				checkpoint.reset();
+			}
+			//checkpoint stops before an event which has to be treated again
+			boolean checkpointBlocked = false;
+			String lastEventInDb = checkpoint.getEventId();
+			List<HistoryEntry> entries = new ArrayList<HistoryEntry>();
+			Set<String> chunkIds = new HashSet<String>();
 			while (histFile.hasNext()) {
-				histEventLine = histFile.getNextEvent();
-				if (!histEventLine.isEmpty()) {
-					HistoryEvent histEvent = new HistoryEvent(histEventLine);
-					historyEventCorrupted |= histEvent.isCorrupted();
-					PDStatus.INSTANCE.setHistoryEventCorrupted(historyEventCorrupted);
-					if (!histEvent.getEventId().replaceAll("0", "").isEmpty() && !histEvent.getEventName().contentEquals("DELETE")){
-						try {
-							if(app.isUserBuild())
-								result = !db.isEventInDb(histEvent.getEventId());
-							else
-								result = !db.isEventInDb(histEvent.getEventId()) && !db.isEventInBlackList(histEvent.getEventId());
-							if (result) {
-								event = new Event(histEvent, myBuild, app.isUserBuild());
-
-								if (!histEvent.getEventName().contentEquals("REBOOT"))
-									event.setOsBootMode(bootMode);
+				//events of a chunk are built first, their logs parsed together
+				//out of any transaction : parsing must not hold the write lock
+				entries.clear();
+				chunkIds.clear();
+				while (entries.size() < Constants.HISTORY_BATCH_SIZE && histFile.hasNext()) {
+					histEventLine = histFile.getNextEvent();
+					HistoryEntry entry = new HistoryEntry();
+					entries.add(entry);
+					if (!histEventLine.isEmpty()) {
+						HistoryEvent histEvent = new HistoryEvent(histEventLine);
+						historyEventCorrupted |= histEvent.isCorrupted();
+						PDStatus.INSTANCE.setHistoryEventCorrupted(historyEventCorrupted);
+						if (!histEvent.getEventId().replaceAll("0", "").isEmpty() && !histEvent.getEventName().contentEquals("DELETE")){
+							try {
+								boolean inDb = db.isEventInDb(histEvent.getEventId());
+								if(app.isUserBuild())
+									result = !inDb;
 								else
-									bootMode = event.getOsBootMode();
-
-								if(!app.isUserBuild() && blackLister.hasDb())
-									blackLister.cleanRain(event.getDate());
-								result = true;
-								if(!app.isUserBuild() && blackLister.hasDb())
-									result = !blackLister.blackList(event);
+									result = !inDb && !db.isEventInBlackList(histEvent.getEventId());
+								//an event repeated in the chunk is only added once
+								result &= chunkIds.add(histEvent.getEventId());
 								if (result) {
+									entry.mHistEvent = histEvent;
+									entry.mToAdd = true;
+								} else {
+									//only built to get the boot mode
+									if (histEvent.getEventName().contentEquals("REBOOT"))
+										entry.mHistEvent = histEvent;
+									Log.d(from+": Event already in DB, " + histEvent.getEventId());
+									if (inDb)
+										entry.mEventInDb = histEvent.getEventId();
+								}
+							} catch (SQLException e) {
+								Log.e(from+": Can't access database. Skip treatment of event " + histEvent.getEventId(), e);
+								entry.mBlocked = true;
+							}
+						} else
+							Log.d(from+": Event ignored ID:" + histEvent.getEventId());
+					}
+					if (histFile.isCheckpointed()) {
+						entry.mCheckpointed = true;
+						entry.mCheckpointOffset = histFile.getCheckpointOffset();
+						entry.mCheckpointLine = histFile.getCheckpointLine();
+					}
+					entry.mCorrupted = historyEventCorrupted;
+				}
+				List<HistoryEvent> histEvents = new ArrayList<HistoryEvent>();
+				for (HistoryEntry entry : entries) {
+					if (entry.mHistEvent != null)
+						histEvents.add(entry.mHistEvent);
+				}
+				Iterator<Event> events = Event.fromHistoryEvents(histEvents, myBuild, app.isUserBuild()).iterator();
+				for (HistoryEntry entry : entries) {
+					if (entry.mHistEvent != null) {
+						event = events.next();
+						if (!event.getEventName().contentEquals("REBOOT"))
+							event.setOsBootMode(bootMode);
+						else
+							bootMode = event.getOsBootMode();
+						if (entry.mToAdd)
+							entry.mEvent = event;
+					}
+					entry.mBootMode = bootMode;
+				}
 
-									long ret = db.addEvent(event);
-									db.updateDeviceInformation(event.getDeviceId(), event.getImei(),
-											Event.getSSN(), app.getTokenGCM(),
-											Event.getSpid());
-									if (ret == -1)
-										Log.w(from+": Event error when added to DB, " + event.toString());
-									else if (ret == -2)
-										Log.w(from+": Event name " +histEvent.getEventName() + " unkown, addition in DB canceled");
-									else if (ret == -3)
-										Log.w(from+": Event " +event.toString() + " with wrong date, addition in DB canceled");
-									else {
-										if (event.getType().contentEquals("SWUPDATE") &&
-											event.getEventName().contentEquals("INFO")){
-											db.deleteEventsBeforeUpdate(event.getEventId());
-										}
-										if (event.getEventName().contentEquals("REBOOT")) {
-											db.updateEventsNotReadyBeforeREBOOT(event.getEventId());
-										}
-										if (event.getEventName().equals("BZ")) {
-											try {
-												BZFile bzfile = new BZFile(event.getCrashDir());
-												bzfile.setEventId(event.getEventId());
-												bzfile.setCreationDate(event.getDate());
-												db.addBZ(bzfile);
-												Log.d(from+": BZ added in DB, " + histEvent.getEventId());
-											} catch (FileNotFoundException e) {
-												Log.e("bzfile not found during history_event parsing");
-											}
-										}
-										Log.d(from+": Event successfully added to DB, " + event.toString());
-										Intent DBIntent = new Intent("com.intel.crashreport.database_changed");
-										context.sendBroadcastAsUser(DBIntent, UserHandle.CURRENT);
-										//for MPANIC, ingredients manager is in charge of setting dataready field
-										if (!event.isDataReady() && !(!hasModemExt && event.getType().contains("MPANIC"))) {
-											Long lDelay = (long) Constants.CRASH_POSTPONE_DELAY*1000;
-											NotifyCrashTask notify = new NotifyCrashTask(event.getEventId(),getApplicationContext(),lDelay);
-											notify.start();
-										}
-									}
+				//only the writes of the chunk are committed together
+				db.beginBatch();
+				for (HistoryEntry entry : entries) {
+					event = entry.mEvent;
+					if (event == null)
+						continue;
+					try {
+						if(!app.isUserBuild() && blackLister.hasDb())
+							blackLister.cleanRain(event.getDate());
+						result = true;
+						if(!app.isUserBuild() && blackLister.hasDb())
+							result = !blackLister.blackList(event);
+						if (result) {
+
+							long ret = db.addEvent(event);
+							db.updateDeviceInformation(event.getDeviceId(), event.getImei(),
+									Event.getSSN(), app.getTokenGCM(),
+									Event.getSpid());
+							if (ret == -1) {
+								Log.w(from+": Event error when added to DB, " + event.toString());
+								entry.mBlocked = true;
+							} else if (ret == -2)
+								Log.w(from+": Event name " +event.getEventName() + " unkown, addition in DB canceled");
+							else if (ret == -3)
+								Log.w(from+": Event " +event.toString() + " with wrong date, addition in DB canceled");
+							else {
+								entry.mEventInDb = event.getEventId();
+								entry.mAdded = true;
+								if (event.getType().contentEquals("SWUPDATE") &&
+									event.getEventName().contentEquals("INFO")){
+									db.deleteEventsBeforeUpdate(event.getEventId());
 								}
-							} else {
-								if (histEvent.getEventName().contentEquals("REBOOT")){
-									event = new Event(histEvent, myBuild, app.isUserBuild());
-									bootMode = event.getOsBootMode();
+								if (event.getEventName().contentEquals("REBOOT")) {
+									db.updateEventsNotReadyBeforeREBOOT(event.getEventId());
 								}
-								Log.d(from+": Event already in DB, " + histEvent.getEventId());
+								if (event.getEventName().equals("BZ")) {
+									try {
+										BZFile bzfile = new BZFile(event.getCrashDir());
+										bzfile.setEventId(event.getEventId());
+										bzfile.setCreationDate(event.getDate());
+										db.addBZ(bzfile);
+										Log.d(from+": BZ added in DB, " + event.getEventId());
+									} catch (FileNotFoundException e) {
+										Log.e("bzfile not found during history_event parsing");
+									}
+								}
+								Log.d(from+": Event successfully added to DB, " + event.toString());
 							}
-						} catch (SQLException e) {
-							Log.e(from+": Can't access database. Skip treatment of event " + histEvent.getEventId(), e);
 						}
-					} else
-						Log.d(from+": Event ignored ID:" + histEvent.getEventId());
+					} catch (SQLException e) {
+						Log.e(from+": Can't access database. Skip treatment of event " + event.getEventId(), e);
+						entry.mBlocked = true;
+					}
+				}
+				db.endBatch();
+
+				//checkpoint and notifications only cover committed events
+				for (HistoryEntry entry : entries) {
+					checkpointBlocked |= entry.mBlocked;
+					if (entry.mEventInDb != null)
+						lastEventInDb = entry.mEventInDb;
+					event = entry.mEvent;
+					if (entry.mAdded) {
+						dbChanged = true;
+						//for MPANIC, ingredients manager is in charge of setting dataready field
+						if (!event.isDataReady() && !(!hasModemExt && event.getType().contains("MPANIC"))) {
+							Long lDelay = (long) Constants.CRASH_POSTPONE_DELAY*1000;
+							NotifyCrashTask notify = new NotifyCrashTask(event.getEventId(),getApplicationContext(),lDelay);
+							notify.start();
+						}
+					}
+					if (!checkpointBlocked && entry.mCheckpointed) {
+						checkpoint.setPosition(entry.mCheckpointOffset, entry.mCheckpointLine);
+						checkpoint.setEventId(lastEventInDb);
+						checkpoint.setBootMode(entry.mBootMode);
+						checkpoint.setCorrupted(entry.mCorrupted);
+					}
+				}
+				if (dbChanged) {
+					notifyDatabaseChanged(context);
+					dbChanged = false;
 				}
 			}
+			checkpoint.save(context);
 
 
 
@@ -293,6 +387,8 @@ public class CheckEventsService extends Service {
 			if (db.isThereEventToUpload()){
 				if(!app.isServiceStarted())
 					context.startServiceAsUser(new Intent(context, CrashReportService.class), UserHandle.CURRENT);
+				else
+					app.setNeedToUpload(true);
 			}
 			histFile.close();
 			db.close();
@@ -309,6 +405,11 @@ public class CheckEventsService extends Service {
 
 	}
 
+	private void notifyDatabaseChanged(Context context) {
+		Intent DBIntent = new Intent("com.intel.crashreport.database_changed");
+		context.sendBroadcastAsUser(DBIntent, UserHandle.CURRENT);
+	}
+
 	private class CheckEventsServiceHandler extends Handler {
 
 		public CheckEventsServiceHandler(Looper looper) {
@@ -361,6 +462,24 @@ public class CheckEventsService extends Service {
 
 	}
 
+	/**
+	 * A history_event line read in the current chunk, with the event to add
+	 * for it and the checkpoint reached after it.
+	 */
+	private static class HistoryEntry {
+		HistoryEvent mHistEvent = null;
+		boolean mToAdd = false;
+		Event mEvent = null;
+		String mEventInDb = null;
+		boolean mAdded = false;
+		boolean mBlocked = false;
+		boolean mCheckpointed = false;
+		long mCheckpointOffset = 0;
+		String mCheckpointLine = "";
+		String mBootMode = "";
+		boolean mCorrupted = false;
+	}
+
 	public class NotifyCrashTask extends Thread{
 		private String eventId;
 		private Context context;
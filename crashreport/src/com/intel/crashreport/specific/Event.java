@@ -18,8 +18,10 @@ package com.intel.crashreport.specific;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Scanner;
 
 import android.content.Context;
@@ -31,9 +33,9 @@ import com.intel.crashreport.Log;
 import com.intel.crashreport.specific.PDStatus.PDSTATUS_TIME;
 import com.intel.crashreport.specific.ingredients.IngredientManager;
 import com.intel.crashreport.specific.ingredients.DeviceManager;
-import com.intel.crashtoolserver.bean.Device;
 import com.intel.phonedoctor.Constants;
 import com.intel.phonedoctor.utils.FileOps;
+import com.intel.parsing.ParsingResult;
 
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -92,17 +94,51 @@ public class Event extends GeneralEvent{
 
 	public Event(HistoryEvent histEvent, String myBuild, boolean isUserBuild) {
 		setOsBootMode(GeneralEvent.BOOT_UNDEFINED);
-		fillEvent(histEvent, myBuild, isUserBuild);
-		setVariant(Build.getVariant());
-		setIngredients(Build.getIngredients());
-		setUniqueKeyComponent(IngredientManager.INSTANCE.getUniqueKeyList().toString());
-		pdStatus = PDStatus.INSTANCE.computePDStatus(this, PDSTATUS_TIME.INSERTION_TIME);
+		if (histEvent.getEventName().equals("CRASH")) {
+			CrashFile crashFile = prepareCrashEvent(histEvent, myBuild);
+			boolean parsed = ParserContainer.INSTANCE.parseEvent(this);
+			fillCrashEvent(histEvent, myBuild, isUserBuild, crashFile, parsed);
+		} else
+			fillEvent(histEvent, myBuild);
+		completeEvent();
+	}
+
+	/**
+	 * Builds the events of several history_event lines : the logs of the
+	 * CRASH events are parsed together, see ParserContainer.parseEvents(),
+	 * then the events are completed in the order of the lines.
+	 */
+	public static List<Event> fromHistoryEvents(List<HistoryEvent> histEvents, String myBuild, boolean isUserBuild) {
+		List<Event> crashEvents = new ArrayList<Event>();
+		List<CrashFile> crashFiles = new ArrayList<CrashFile>();
+		for (HistoryEvent histEvent : histEvents) {
+			if (histEvent.getEventName().equals("CRASH")) {
+				Event event = new Event();
+				event.setOsBootMode(GeneralEvent.BOOT_UNDEFINED);
+				crashFiles.add(event.prepareCrashEvent(histEvent, myBuild));
+				crashEvents.add(event);
+			}
+		}
+		List<ParsingResult> results = ParserContainer.INSTANCE.parseEvents(crashEvents);
+
+		List<Event> events = new ArrayList<Event>();
+		int iCrash = 0;
+		for (HistoryEvent histEvent : histEvents) {
+			if (histEvent.getEventName().equals("CRASH")) {
+				Event event = crashEvents.get(iCrash);
+				boolean parsed = iCrash < results.size() && results.get(iCrash).isParsed();
+				event.fillCrashEvent(histEvent, myBuild, isUserBuild, crashFiles.get(iCrash), parsed);
+				event.completeEvent();
+				events.add(event);
+				iCrash++;
+			} else
+				events.add(new Event(histEvent, myBuild, isUserBuild));
+		}
+		return events;
 	}
 
-	private void fillEvent(HistoryEvent histEvent, String myBuild, boolean isUserBuild) {
-		if (histEvent.getEventName().equals("CRASH"))
-			fillCrashEvent(histEvent, myBuild, isUserBuild);
-		else if (histEvent.getEventName().equals("REBOOT"))
+	private void fillEvent(HistoryEvent histEvent, String myBuild) {
+		if (histEvent.getEventName().equals("REBOOT"))
 			fillRebootEvent(histEvent, myBuild);
 		else if (histEvent.getEventName().equals("UPTIME"))
 			fillUptimeEvent(histEvent, myBuild);
@@ -118,11 +154,18 @@ public class Event extends GeneralEvent{
 			fillErrorEvent(histEvent, myBuild);
 		else if (histEvent.getEventName().equals("INFO"))
 			fillInfoEvent(histEvent, myBuild);
+	}
+
+	private void completeEvent() {
                 setTestCase(fillTestInfo(getCrashDir()));
 		//extra step : format data for specific event
 		new FormatParser(this).execFormat();
 
 		FileOps.compressFolderContent(getCrashDir());
+		setVariant(Build.getVariant());
+		setIngredients(Build.getIngredients());
+		setUniqueKeyComponent(IngredientManager.INSTANCE.getUniqueKeyList().toString());
+		pdStatus = PDStatus.INSTANCE.computePDStatus(this, PDSTATUS_TIME.INSERTION_TIME);
 	}
 
 	private com.intel.crashtoolserver.bean.TestCase fillTestInfo(String path) {
@@ -184,65 +227,74 @@ public class Event extends GeneralEvent{
 		return new com.intel.crashtoolserver.bean.TestCase(uuid, name, iter, date_dut, date_host, engine);
 	}
 
-	private void fillCrashEvent(HistoryEvent histevent, String myBuild, boolean isUserBuild) {
+	/**
+	 * Sets the fields the parsers of a CRASH event rely on.
+	 *
+	 * @return the crashfile of the event, null if not found
+	 */
+	private CrashFile prepareCrashEvent(HistoryEvent histevent, String myBuild) {
 
 		setCrashDir(histevent.getOption());
+		//Name and type should be specified before parsing
+		setEventId(histevent.getEventId());
+		setEventName(histevent.getEventName());;
+		setType(histevent.getType());
+		date = convertDate(histevent.getDate());
 		try {
 			//crashfile is only used to get data and should not be parsed here
 			CrashFile crashFile = new CrashFile(getCrashDir(),false);
-			//Name and type should be specified before parsing
-			setEventId(histevent.getEventId());
-			setEventName(histevent.getEventName());;
-			setType(histevent.getType());
-			date = convertDate(histevent.getDate());
 			setBuildId(myBuild);
 			setDeviceId(crashFile.getSn());
 			if(!crashFile.getImei().isEmpty())
 				setImei(crashFile.getImei());
 			else setImei(readImeiFromSystem());
 			setUptime(crashFile.getUptime());
-			//DATA0-5 expected to be set by parserContainer
-			if (!ParserContainer.INSTANCE.parseEvent(this)){
-				Log.w("parser error, could not get a valid parsing");
-				throw new FileNotFoundException("invalid parsing");
-			}else{
-				Log.d("parser succes");
-			}
-
-			if (getType().equals("JAVACRASH") ||
-					getType().equals("ANR") ||
-					getType().equals("TOMBSTONE")) {
-				if(!isUserBuild)
-					this.setDataReady(false);
-			} else if (getType().contains("MPANIC") && (!isUserBuild) &&
-					!DeviceManager.INSTANCE.hasModemExtension(false) &&
-					DeviceManager.INSTANCE.isModemUnknown()) {
-				this.setDataReady(false);
-				DeviceManager.INSTANCE.addEventMPanicNotReady(this.getEventId());
-				this.setData3("not_ready");
-			} else if (crashFile.getDataReady() == 0){
-				if(!isUserBuild)
-					this.setDataReady(false);
-			}
-			/* Get origin logfile name for dropbox events (only) to manage duplicate */
-			if (this.isDropboxEvent()) {
-				try {
-					DropboxEvent dropboxFile = new DropboxEvent(getCrashDir(), getType());
-					origin = dropboxFile.getDropboxFileName();
-				} catch (FileNotFoundException e) {
-					Log.w(toString() + ", origin dropbox logfile not found, path: " + getCrashDir());
-				}
-			}
+			return crashFile;
 		} catch (FileNotFoundException e) {
-			setEventId(histevent.getEventId());
-			setEventName(histevent.getEventName());;
-			setType(histevent.getType());
-			date = convertDate(histevent.getDate());
-			ParserContainer.INSTANCE.parseEvent(this);
+			return null;
+		}
+	}
+
+	/**
+	 * Completes a CRASH event once parsed, DATA0-5 being set by the parsers.
+	 */
+	private void fillCrashEvent(HistoryEvent histevent, String myBuild, boolean isUserBuild,
+			CrashFile crashFile, boolean parsed) {
+
+		if (crashFile != null && !parsed)
+			Log.w("parser error, could not get a valid parsing");
+		if (crashFile == null || !parsed) {
 			setBuildId(myBuild);
 			readDeviceIdFromFile();
 			setImei(readImeiFromSystem());
 			Log.w(toString() + ", Crashfile not found, path: " + getCrashDir());
+			return;
+		}
+		Log.d("parser succes");
+
+		if (getType().equals("JAVACRASH") ||
+				getType().equals("ANR") ||
+				getType().equals("TOMBSTONE")) {
+			if(!isUserBuild)
+				this.setDataReady(false);
+		} else if (getType().contains("MPANIC") && (!isUserBuild) &&
+				!DeviceManager.INSTANCE.hasModemExtension(false) &&
+				DeviceManager.INSTANCE.isModemUnknown()) {
+			this.setDataReady(false);
+			DeviceManager.INSTANCE.addEventMPanicNotReady(this.getEventId());
+			this.setData3("not_ready");
+		} else if (crashFile.getDataReady() == 0){
+			if(!isUserBuild)
+				this.setDataReady(false);
+		}
+		/* Get origin logfile name for dropbox events (only) to manage duplicate */
+		if (this.isDropboxEvent()) {
+			try {
+				DropboxEvent dropboxFile = new DropboxEvent(getCrashDir(), getType());
+				origin = dropboxFile.getDropboxFileName();
+			} catch (FileNotFoundException e) {
+				Log.w(toString() + ", origin dropbox logfile not found, path: " + getCrashDir());
+			}
 		}
 	}
 
@@ -362,10 +414,18 @@ public class Event extends GeneralEvent{
 	}
 
 	public com.intel.crashtoolserver.bean.Event getEventForServer(com.intel.crashreport.specific.Build build, String sToken) {
+		return getEventForServer(build, sToken, getSPIDFromFile());
+	}
+
+	/**
+	 * @param sSpid value of getSPIDFromFile(), read once for several events
+	 */
+	public com.intel.crashtoolserver.bean.Event getEventForServer(com.intel.crashreport.specific.Build build,
+			String sToken, String sSpid) {
 		String sSSN = getSSN();
 		sSSN = (sSSN.isEmpty()) ? null : sSSN;
-		com.intel.crashtoolserver.bean.Device aDevice = new Device(getDeviceId(),
-			getImei(), sSSN, sToken, getSPIDFromFile());
+		com.intel.crashtoolserver.bean.Device aDevice = getDeviceForServer(getDeviceId(),
+			getImei(), sSSN, sToken, sSpid);
 
 		return super.getEventForServer(aDevice, build);
 	}
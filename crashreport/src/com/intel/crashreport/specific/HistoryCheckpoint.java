@@ -0,0 +1,123 @@
+/* Copyright (C) 2019 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intel.crashreport.specific;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.SharedPreferences.Editor;
+
+/**
+ * Position of the last history_event line fully processed, with the state
+ * built while reading the lines before it, so that the next check can
+ * resume from this position.
+ */
+public class HistoryCheckpoint {
+
+	private static final String HISTORY_PREFERENCES = "historyEventCheckpoint";
+	private static final String HISTORY_OFFSET = "offset";
+	private static final String HISTORY_LAST_LINE = "lastLine";
+	private static final String HISTORY_EVENT_ID = "eventId";
+	private static final String HISTORY_BOOT_MODE = "bootMode";
+	private static final String HISTORY_CORRUPTED = "corrupted";
+
+	private long mOffset = 0;
+	private String mLastLine = "";
+	private String mEventId = "";
+	private String mBootMode = "";
+	private boolean mCorrupted = false;
+
+	public HistoryCheckpoint() {
+	}
+
+	public static HistoryCheckpoint load(Context aContext) {
+		SharedPreferences prefs = aContext.getSharedPreferences(HISTORY_PREFERENCES, Context.MODE_PRIVATE);
+		HistoryCheckpoint checkpoint = new HistoryCheckpoint();
+		checkpoint.mOffset = prefs.getLong(HISTORY_OFFSET, 0);
+		checkpoint.mLastLine = prefs.getString(HISTORY_LAST_LINE, "");
+		checkpoint.mEventId = prefs.getString(HISTORY_EVENT_ID, "");
+		checkpoint.mBootMode = prefs.getString(HISTORY_BOOT_MODE, "");
+		checkpoint.mCorrupted = prefs.getBoolean(HISTORY_CORRUPTED, false);
+		return checkpoint;
+	}
+
+	public void save(Context aContext) {
+		Editor editor = aContext.getSharedPreferences(HISTORY_PREFERENCES, Context.MODE_PRIVATE).edit();
+		editor.putLong(HISTORY_OFFSET, mOffset);
+		editor.putString(HISTORY_LAST_LINE, mLastLine);
+		editor.putString(HISTORY_EVENT_ID, mEventId);
+		editor.putString(HISTORY_BOOT_MODE, mBootMode);
+		editor.putBoolean(HISTORY_CORRUPTED, mCorrupted);
+		editor.commit();
+	}
+
+	/**
+	 * Forgets the position : next read starts from the beginning of the file.
+	 */
+	public void reset() {
+		mOffset = 0;
+		mLastLine = "";
+		mEventId = "";
+		mBootMode = "";
+		mCorrupted = false;
+	}
+
+	/**
+	 * @param aOffset offset just after the last processed line
+	 * @param aLastLine content of that line, used to check the file is the same
+	 */
+	public void setPosition(long aOffset, String aLastLine) {
+		mOffset = aOffset;
+		mLastLine = aLastLine;
+	}
+
+	public long getOffset() {
+		return mOffset;
+	}
+
+	public String getLastLine() {
+		return mLastLine;
+	}
+
+	/**
+	 * @return id of the last processed event known by the database, empty
+	 * if none
+	 */
+	public String getEventId() {
+		return mEventId;
+	}
+
+	public void setEventId(String aEventId) {
+		mEventId = aEventId;
+	}
+
+	public String getBootMode() {
+		return mBootMode;
+	}
+
+	public void setBootMode(String aBootMode) {
+		mBootMode = aBootMode;
+	}
+
+	public boolean isCorrupted() {
+		return mCorrupted;
+	}
+
+	public void setCorrupted(boolean aCorrupted) {
+		mCorrupted = aCorrupted;
+	}
+}
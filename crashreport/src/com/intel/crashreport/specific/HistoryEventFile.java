@@ -16,9 +16,14 @@
 
 package com.intel.crashreport.specific;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.util.Scanner;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 
 import com.intel.crashreport.Log;
 import com.intel.phonedoctor.Constants;
@@ -27,56 +32,194 @@ public class HistoryEventFile {
 
 	private static final String HISTORY_EVENT_FILE_PATH = Constants.LOGS_DIR + "/history_event";
 
-	private Scanner scanner;
+	private InputStream input;
+	private ByteArrayOutputStream lineBuffer = new ByteArrayOutputStream(256);
+	private int nextByte = -1;
+	private long offset = 0;
+	private long checkpointOffset = 0;
+	private String checkpointLine = "";
+	private boolean resumed = false;
 
 	public HistoryEventFile() {
 	}
 
 	public Boolean hasNext() throws  FileNotFoundException {
-		try{
-			return scanner.hasNext();
-		} catch (IllegalStateException e) {
-			Log.w("IllegalStateException : considered as file not found exception");
-			throw new FileNotFoundException("Illegal state");
-		}
+		return peek() != -1;
 	}
 
 	public String getNextEvent() throws  FileNotFoundException {
 		String line;
-		try {
-			while(scanner.hasNext()) {
-				line = scanner.nextLine();
-				if (line != null){
-					if ((line.length() > 0) && (line.charAt(0) != '#')) {
-						return line;
-					}
-				}
+		while((line = readLine()) != null) {
+			if ((line.length() > 0) && (line.charAt(0) != '#')) {
+				return line;
 			}
-		} catch (IllegalStateException e) {
-			Log.w("IllegalStateException : considered as file not found exception");
-			throw new FileNotFoundException("Illegal state");
 		}
 		return "";
 	}
 
 	public void open() throws FileNotFoundException {
+		open(null);
+	}
+
+	/**
+	 * Opens the file and skips the lines already processed according to
+	 * aCheckpoint. The whole file is read again if the line stored in the
+	 * checkpoint is not found at its position, which means the file was
+	 * rotated, truncated or rewritten.
+	 *
+	 * @param aCheckpoint position to resume from, null to read the whole file
+	 */
+	public void open(HistoryCheckpoint aCheckpoint) throws FileNotFoundException {
 		String path = HISTORY_EVENT_FILE_PATH;
 		File histFile = new File(path);
 		if (!histFile.canRead())
 			Log.w("HistoryEventFile: can't read file : " + path);
-		scanner = new Scanner(histFile);
+		FileInputStream fileInput = new FileInputStream(histFile);
+		resumed = false;
+		offset = 0;
+		checkpointOffset = 0;
+		checkpointLine = "";
+		if (aCheckpoint != null && aCheckpoint.getOffset() > 0) {
+			resumed = seekAfterLine(fileInput, aCheckpoint.getOffset(), aCheckpoint.getLastLine());
+			if (resumed) {
+				offset = aCheckpoint.getOffset();
+				checkpointOffset = offset;
+				checkpointLine = aCheckpoint.getLastLine();
+			} else {
+				Log.i("HistoryEventFile: file changed since last check, full read");
+				try {
+					fileInput.getChannel().position(0);
+				} catch (IOException e) {
+					Log.w("HistoryEventFile: can't rewind file : " + e.getMessage());
+					closeQuietly(fileInput);
+					throw new FileNotFoundException("Illegal state");
+				}
+			}
+		}
+		input = new BufferedInputStream(fileInput);
+		nextByte = -1;
+	}
+
+	/**
+	 * @return true if the file was opened after the checkpoint position
+	 */
+	public boolean isResumed() {
+		return resumed;
+	}
+
+	/**
+	 * @return offset just after the last complete line read
+	 */
+	public long getCheckpointOffset() {
+		return checkpointOffset;
+	}
+
+	/**
+	 * @return content of the last complete line read
+	 */
+	public String getCheckpointLine() {
+		return checkpointLine;
+	}
+
+	/**
+	 * @return true if all lines returned so far are complete : a line
+	 * still being written by crashlogd is returned but not checkpointed
+	 */
+	public boolean isCheckpointed() {
+		return checkpointOffset == offset;
 	}
 
 	public void close() {
-		scanner.close();
+		if (input != null) {
+			closeQuietly(input);
+			input = null;
+		}
 	}
 
 	protected void finalize() throws Throwable {
 		try {
-			scanner.close();        // close open files
+			close();        // close open files
 		} finally {
 			super.finalize();
 		}
 	}
 
+	private boolean seekAfterLine(FileInputStream aInput, long aOffset, String aLine) {
+		byte[] expected = (aLine + "\n").getBytes();
+		long lStart = aOffset - expected.length;
+		if (lStart < 0) {
+			return false;
+		}
+		try {
+			if (aInput.getChannel().size() < aOffset) {
+				return false;
+			}
+			aInput.getChannel().position(lStart);
+			byte[] found = new byte[expected.length];
+			int iRead = 0;
+			while (iRead < found.length) {
+				int iCount = aInput.read(found, iRead, found.length - iRead);
+				if (iCount < 0) {
+					return false;
+				}
+				iRead += iCount;
+			}
+			return Arrays.equals(expected, found);
+		} catch (IOException e) {
+			Log.w("HistoryEventFile: can't check position : " + e.getMessage());
+			return false;
+		}
+	}
+
+	private int peek() throws FileNotFoundException {
+		if (nextByte == -1) {
+			nextByte = read();
+		}
+		return nextByte;
+	}
+
+	private int read() throws FileNotFoundException {
+		if (input == null) {
+			throw new FileNotFoundException("Illegal state");
+		}
+		try {
+			return input.read();
+		} catch (IOException e) {
+			Log.w("IOException : considered as file not found exception");
+			throw new FileNotFoundException("Illegal state");
+		}
+	}
+
+	private String readLine() throws FileNotFoundException {
+		int iByte = peek();
+		if (iByte == -1) {
+			return null;
+		}
+		nextByte = -1;
+		lineBuffer.reset();
+		while (iByte != -1 && iByte != '\n') {
+			lineBuffer.write(iByte);
+			iByte = read();
+		}
+		offset += lineBuffer.size();
+		String line = lineBuffer.toString();
+		if (iByte == '\n') {
+			offset++;
+			checkpointOffset = offset;
+			checkpointLine = line;
+		}
+		if (line.endsWith("\r")) {
+			line = line.substring(0, line.length() - 1);
+		}
+		return line;
+	}
+
+	private static void closeQuietly(InputStream aInput) {
+		try {
+			aInput.close();
+		} catch (IOException e) {
+			Log.w("HistoryEventFile: can't close file : " + e.getMessage());
+		}
+	}
+
 }
@@ -63,6 +63,8 @@ public class NotificationReceiver extends GeneralNotificationReceiver {
 				CrashReport app = (CrashReport)context.getApplicationContext();
 				if(!app.isServiceStarted())
 					context.startServiceAsUser(new Intent(context, CrashReportService.class), UserHandle.CURRENT);
+				else
+					app.setNeedToUpload(true);
 			}
 
 		};
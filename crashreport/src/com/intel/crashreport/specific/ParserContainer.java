@@ -16,11 +16,17 @@
 
 package com.intel.crashreport.specific;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 import android.content.Context;
 import android.content.res.AssetManager;
 
 import com.intel.crashreport.Log;
+import com.intel.crashreport.core.ParsableEvent;
 import com.intel.parsing.ParserDirector;
+import com.intel.parsing.ParsingResult;
 
 public enum ParserContainer {
 	INSTANCE;
@@ -30,7 +36,7 @@ public enum ParserContainer {
 	public void initDirector(Context aContext){
 		Log.i("CrashReport: init of parser container");
 		mDirector = new ParserDirector();
-		mDirector.initParserWithManager(aContext.getAssets());
+		mDirector.initParserWithManager(aContext.getAssets(), aContext.getCacheDir());
 		int iParserCount = mDirector.getParserCount();
 		Log.i("CrashReport: " + iParserCount + " parser(s) found" );
 	}
@@ -43,4 +49,20 @@ public enum ParserContainer {
 			return false;
 		}
 	}
+
+	/**
+	 * Parses a batch of events in parallel, see ParserDirector.parseEvents().
+	 */
+	public List<ParsingResult> parseEvents(Collection<Event> aEvents){
+		List<ParsableEvent> parsableEvents = new ArrayList<ParsableEvent>();
+		for (Event aEvent : aEvents) {
+			parsableEvents.add(aEvent.getParsableEvent());
+		}
+		if (mDirector != null){
+			return mDirector.parseEvents(parsableEvents);
+		} else {
+			Log.e("CrashReport: mDirector is null");
+			return new ArrayList<ParsingResult>();
+		}
+	}
 }
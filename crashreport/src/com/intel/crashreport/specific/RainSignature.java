@@ -16,6 +16,8 @@
 
 package com.intel.crashreport.specific;
 
+import com.intel.crashreport.database.Selection;
+
 /**
  * @brief RainSignature represents a signature for a rain of crashes. It is made
  * of the characteristic data of the events composing this rain.
@@ -110,28 +112,21 @@ public class RainSignature {
 		return data3;
 	}
 
-	private String replaceEscapeSequence(String sequence){
-		return sequence.replace("'", "''");
-	}
-
 	/**
-	 * @brief return the query (with rain signature) for requests on rain of
+	 * @brief return the selection (with rain signature) for requests on rain of
 	 * crashes database
 	 *
-	 * @return the string containing the query
+	 * @return the selection with the signature data as arguments
 	 */
-	public String querySignature() {
-		String query = KEY_TYPE + " = '" + replaceEscapeSequence(type) + "' and " +
-			KEY_DATA0 + " = '" + replaceEscapeSequence(data0) + "' and " +
-			KEY_DATA1 + " = '" + replaceEscapeSequence(data1) + "' and " +
-			KEY_DATA2 + " = '" + replaceEscapeSequence(data2) + "'";
-
+	public Selection getSelection() {
 		if (this.type.equals("TOMBSTONE")) {
-			query += " and " +
-				KEY_DATA3 + " = '" + replaceEscapeSequence(data3) + "'";
+			return new Selection(KEY_TYPE + " = ? and " + KEY_DATA0 + " = ? and "
+					+ KEY_DATA1 + " = ? and " + KEY_DATA2 + " = ? and " + KEY_DATA3 + " = ?",
+					type, data0, data1, data2, data3);
 		}
-
-		return query;
+		return new Selection(KEY_TYPE + " = ? and " + KEY_DATA0 + " = ? and "
+				+ KEY_DATA1 + " = ? and " + KEY_DATA2 + " = ?",
+				type, data0, data1, data2);
 	}
 
 	/**
@@ -24,12 +24,13 @@ import java.net.UnknownHostException;
 import java.util.TimeZone;
 
 import android.content.Context;
-import android.database.Cursor;
 import android.database.SQLException;
 
 import com.intel.crashreport.ApplicationPreferences;
 import com.intel.crashreport.Connector;
 import com.intel.crashreport.CrashLogs;
+import com.intel.crashreport.CrashLogsDedup;
+import com.intel.crashreport.CrashLogsPackager;
 import com.intel.crashreport.CrashReport;
 import com.intel.crashreport.CrashReportService;
 import com.intel.crashreport.CrashReportService.ServiceHandler;
@@ -38,7 +39,9 @@ import com.intel.crashreport.Log;
 import com.intel.crashreport.NotificationMgr;
 import com.intel.crashreport.R;
 import com.intel.crashreport.specific.Build;
+import com.intel.crashreport.core.GeneralEvent;
 import com.intel.crashreport.database.EventDB;
+import com.intel.crashreport.database.RowIterator;
 import com.intel.crashreport.specific.Event;
 import com.intel.crashreport.specific.PhoneInspector;
 import com.intel.crashtoolserver.bean.FileInfo;
@@ -46,6 +49,9 @@ import com.intel.phonedoctor.Constants;
 
 public class EventUploadThread implements Runnable {
 
+	//events whose logs are to upload read at once
+	private static final int LOGS_PAGE_SIZE = 16;
+
 	private final ApplicationPreferences prefs;
 	private final Context context;
 	private final ServiceHandler serviceHandler;
@@ -197,8 +203,6 @@ public class EventUploadThread implements Runnable {
 	private void doCrashLogsUpload() throws InterruptedException, ProtocolException {
 		String[] crashTypes = prefs.getCrashLogsUploadTypes();
 		CrashReport app = (CrashReport) this.context;
-		Cursor cursor = null;
-
 		Build myBuild = app.getMyBuild();
 		Thread theRunningThread = this.getRunningThread();
 		if(null == theRunningThread) {
@@ -215,29 +219,21 @@ public class EventUploadThread implements Runnable {
 		do {
 			this.needsWifi = false;
 
-			if(!eventDb.isThereEventToUpload(crashTypes))
-				break;
-
-			cursor = eventDb.fetchNotUploadedLogs(crashTypes);
-			if (cursor == null) {
-				break;
-			}
-
-			if (cursor.getCount() == 0) {
+			int logsNumber = eventDb.getEventNumberLogToUpload(crashTypes);
+			if (logsNumber <= 0)
 				break;
-			}
 
 			crashNumber = eventDb.getNewCrashNumber();
 			wifiAvailable = this.connector.getWifiConnectionAvailability();
 			boolean canUploadWithoutWifi = eventDb.isThereLogToUploadWithoutWifi(crashTypes);
 
 			if (requiresWifi && !wifiAvailable) {
-				this.notificationManager.notifyEventDataWifiOnly(cursor.getCount());
+				this.notificationManager.notifyEventDataWifiOnly(logsNumber);
 				cancelNotify = false;
 				break;
 			} else {
 				this.notificationManager.notifyUploadingLogs(
-						cursor.getCount(),
+						logsNumber,
 						crashNumber);
 				cancelNotify = true;
 			}
@@ -247,18 +243,22 @@ public class EventUploadThread implements Runnable {
 				break;
 			}
 
-			while (!cursor.isAfterLast()) {
-				if (theRunningThread.isInterrupted()) {
-					cursor.close();
-					throw new InterruptedException();
+			RowIterator<GeneralEvent> events = eventDb.fetchNotUploadedLogs(crashTypes,
+					LOGS_PAGE_SIZE);
+			try {
+				Event next = nextEvent(events);
+				while (next != null) {
+					if (theRunningThread.isInterrupted()) {
+						throw new InterruptedException();
+					}
+					Event event = next;
+					next = nextEvent(events);
+					if (processEvent(myBuild, theRunningThread, event, next))
+						break;
 				}
-
-				if (processNextEvent(myBuild, theRunningThread, cursor))
-					break;
+			} finally {
+				events.close();
 			}
-
-			if (!cursor.isClosed())
-				cursor.close();
 		} while (true);
 		if (cancelNotify)
 			this.notificationManager.cancelNotifUploadingLogs();
@@ -268,8 +268,6 @@ public class EventUploadThread implements Runnable {
 			this.needsWifi = true;
 			this.notificationManager.notifyConnectWifiOrMpta();
 		}
-		if (cursor != null && !cursor.isClosed())
-			cursor.close();
 
 		Log.i(
 				EventUploadThread.class.getSimpleName() +
@@ -314,65 +312,136 @@ public class EventUploadThread implements Runnable {
 		}
 	}
 
-	private boolean processNextEvent(Build myBuild, Thread theRunningThread, Cursor cursor)
+	/**
+	 * Crashlogs are streamed when the server supports it and they are small
+	 * enough to be sent without wifi. Bigger ones are zipped in the cache
+	 * directory first, so that their upload can be resumed.
+	 *
+	 * The logs size of the event is only an estimate, and a streamed zip is
+	 * never measured before it is sent : the upper bound of its size is
+	 * checked instead.
+	 */
+	private boolean canStreamLogs(Event event) {
+		return this.connector.isLogsStreamSupported()
+				&& event.getLogsSize() > 0
+				&& !CrashLogs.hasCrashLogsFile(context, event.getEventId())
+				&& CrashLogs.hasCrashLogs(event.getCrashDir())
+				&& CrashLogs.getCrashLogsMaxSize(event.getCrashDir()) < wifiLogSize;
+	}
+
+	private String getDayDate(Event event) {
+		CrashReportService.DAY_DF.setTimeZone(TimeZone.getTimeZone("GMT"));
+		return CrashReportService.DAY_DF.format(event.getDate());
+	}
+
+	/**
+	 * Upload the crashlogs of an event, from the crashLogs zip file or
+	 * streamed from its crash directory if crashLogs is null
+	 */
+	private void uploadLogs(Event event, FileInfo fileInfo, File crashLogs,
+			Thread theRunningThread)
 			throws InterruptedException, ProtocolException {
-		Event event = new Event(eventDb.fillEventFromCursor(cursor));
-		if (PhoneInspector.getInstance(this.context).isUploadableLog(event.getEventId())){
-			File crashLogs = CrashLogs.getCrashLogsFile(
-					context,
-					event.getCrashDir(),
-					event.getEventId());
-			if (crashLogs != null) {
-				boolean wifiAvailable = this.connector.getWifiConnectionAvailability();
-				boolean logsAreTooBig = crashLogs.length() >= wifiLogSize;
-				if(logsAreTooBig && !wifiAvailable) {
-					this.needsWifi = true;
-				} else {
-					CrashReportService.DAY_DF.setTimeZone(TimeZone.getTimeZone("GMT"));
-					String dayDate = CrashReportService.DAY_DF.format(event.getDate());
-					FileInfo fileInfo = new FileInfo(
-							crashLogs.getName(),
-							crashLogs.getAbsolutePath(),
-							crashLogs.length(),
-							dayDate,
-							event.getEventId());
-					Log.i(
-							EventUploadThread.class.getSimpleName() +
-							":uploadEvent : Upload crashlog of "+event);
-					if (event.getEventName().equals("APLOG")) {
-						crService.showProgressBar();
-						crService.updateProgressBar(0);
-					}
+		Log.i(
+				EventUploadThread.class.getSimpleName() +
+				":uploadEvent : Upload crashlog of "+event);
+		if (event.getEventName().equals("APLOG")) {
+			crService.showProgressBar();
+			crService.updateProgressBar(0);
+		}
 
-					if (this.connector.sendLogsFile(fileInfo, theRunningThread)) {
-						this.updateEventData(eventDb, event, crashLogs);
-					} else {
-						if (event.getEventName().equals("APLOG")) {
-							crService.updateProgressBar(0);
-							crService.hideProgressBar();
-						}
-						Log.w(
-								EventUploadThread.class.getSimpleName() +
-								":uploadEvent : Fail upload of " +
-								crashLogs.getAbsolutePath());
-						cursor.close();
-						throw new ProtocolException();
-					}
-				}
+		boolean sent = (crashLogs != null)
+				? this.connector.sendLogsFile(fileInfo, theRunningThread)
+				: this.connector.sendLogsStream(fileInfo, event.getCrashDir(), theRunningThread);
+		if (sent) {
+			CrashLogsDedup.getInstance().onUploaded(event.getEventId());
+			this.updateEventData(eventDb, event, crashLogs);
+		} else {
+			if (event.getEventName().equals("APLOG")) {
+				crService.updateProgressBar(0);
+				crService.hideProgressBar();
+			}
+			Log.w(
+					EventUploadThread.class.getSimpleName() +
+					":uploadEvent : Fail upload of " +
+					fileInfo.getPath());
+			throw new ProtocolException();
+		}
+	}
+
+	/**
+	 * @return the next event of events, null if none
+	 */
+	private Event nextEvent(RowIterator<GeneralEvent> events) {
+		return events.hasNext() ? new Event(events.next()) : null;
+	}
+
+	/**
+	 * Upload the crashlogs of an event from its zip file in cache directory
+	 */
+	private void uploadLogsFile(Event event, Thread theRunningThread)
+			throws InterruptedException, ProtocolException {
+		File crashLogs = CrashLogs.getCrashLogsFile(
+				context,
+				event.getCrashDir(),
+				event.getEventId(),
+				this.connector.isLogsDedupSupported());
+		if (crashLogs != null) {
+			boolean wifiAvailable = this.connector.getWifiConnectionAvailability();
+			boolean logsAreTooBig = crashLogs.length() >= wifiLogSize;
+			if(logsAreTooBig && !wifiAvailable) {
+				this.needsWifi = true;
 			} else {
-				Log.d(
-						EventUploadThread.class.getSimpleName() +
-						":uploadEvent : No crashlog to upload for " +
-						event);
-				PhoneInspector.getInstance(this.context).addEventLogUploadFailure(event.getEventId());
+				FileInfo fileInfo = new FileInfo(
+						crashLogs.getName(),
+						crashLogs.getAbsolutePath(),
+						crashLogs.length(),
+						this.getDayDate(event),
+						event.getEventId());
+				this.uploadLogs(event, fileInfo, crashLogs, theRunningThread);
+			}
+		} else {
+			Log.d(
+					EventUploadThread.class.getSimpleName() +
+					":uploadEvent : No crashlog to upload for " +
+					event);
+			PhoneInspector.getInstance(this.context).addEventLogUploadFailure(event.getEventId());
+		}
+	}
+
+	/**
+	 * Upload the crashlogs of event, the ones of next being zipped meanwhile
+	 *
+	 * @param next the event following event, null if none
+	 * @return true if new events were sent, so that the logs to upload
+	 * have to be selected again
+	 */
+	private boolean processEvent(Build myBuild, Thread theRunningThread, Event event, Event next)
+			throws InterruptedException, ProtocolException {
+		if (PhoneInspector.getInstance(this.context).isUploadableLog(event.getEventId())){
+			// The next crashlogs are zipped while these ones are sent
+			CrashLogsPackager packager = CrashLogsPackager.getInstance(this.context);
+			packager.claim(event.getEventId());
+			if (next != null)
+				packager.enqueue(next.getEventId(), next.getCrashDir(), next.getLogsSize());
+			if (this.canStreamLogs(event)) {
+				// Small crashlogs are compressed directly on the socket
+				FileInfo fileInfo = new FileInfo(
+						CrashLogs.getCrashLogsFileName(event.getEventId()),
+						event.getCrashDir(),
+						event.getLogsSize(),
+						this.getDayDate(event),
+						event.getEventId());
+				this.uploadLogs(event, fileInfo, null, theRunningThread);
+			} else {
+				this.uploadLogsFile(event, theRunningThread);
 			}
 		} else {
 			Log.w(EventUploadThread.class.getSimpleName()+":uploadEvent : too much log failure for "+event);
 		}
-		cursor.moveToNext();
+		//new events are flagged when added, instead of being counted after each upload
 		boolean newLogsToUpload = false;
-		if(eventDb.isThereEventToUpload()) {
-			cursor.close();
+		if(crService.getApp().getNeedToUpload()) {
+			crService.getApp().setNeedToUpload(false);
 			crService.updateEventsSummary(eventDb);
 			crService.sendEvents(
 					eventDb,
@@ -380,10 +449,6 @@ public class EventUploadThread implements Runnable {
 					myBuild);
 			newLogsToUpload = true;
 		}
-		if(crService.getApp().getNeedToUpload()) {
-			crService.getApp().setNeedToUpload(false);
-			newLogsToUpload = true;
-		}
 
 		return newLogsToUpload;
 	}
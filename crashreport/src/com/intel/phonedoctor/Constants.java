@@ -67,6 +67,13 @@ public class Constants {
      */
     public static final int CRASH_POSTPONE_DELAY = 120;
 
+    /**
+     * Number of history_event lines read as one chunk : their events are built
+     * first, then only their database writes are committed together
+     */
+    public static final int HISTORY_BATCH_SIZE =
+            SystemProperties.getInt("persist.vendor.crashreport.history_batch", 64);
+
     /**
      * Array defining event type that are automatically defined as invalid
      * to prevent any log upload to crashtool server.
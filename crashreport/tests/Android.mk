@@ -0,0 +1,30 @@
+#
+# Copyright (C) 2019 Intel Corporation
+#
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+#      http://www.apache.org/licenses/LICENSE-2.0
+#
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+
+LOCAL_PATH:= $(call my-dir)
+
+# CrashReport tests, run with
+# adb shell am instrument -w com.intel.crashreport.tests/androidx.test.runner.AndroidJUnitRunner
+include $(CLEAR_VARS)
+LOCAL_PACKAGE_NAME := CrashReportTests
+LOCAL_MODULE_TAGS := tests
+LOCAL_MODULE_OWNER := intel
+LOCAL_SRC_FILES := $(call all-java-files-under, src)
+LOCAL_STATIC_JAVA_LIBRARIES := androidx.test.runner junit
+LOCAL_INSTRUMENTATION_FOR := CrashReport
+LOCAL_CERTIFICATE := platform
+LOCAL_PRIVATE_PLATFORM_APIS := true
+include $(BUILD_PACKAGE)
@@ -0,0 +1,209 @@
+/* Copyright (C) 2019 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intel.crashreport;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.intel.crashtoolserver.bean.ChunkedFileInfo;
+import com.intel.crashtoolserver.bean.FileInfo;
+
+public class LogsFileSenderTest {
+
+	private static final int CHUNK_SIZE = 1024;
+	private static final int FILE_SIZE = 20 * CHUNK_SIZE + 100;
+
+	private StubCrashtoolServer mServer;
+	private File mFile;
+	private byte mContent[];
+	//file data committed by the server, kept across connections
+	private final ByteArrayOutputStream mCommitted = new ByteArrayOutputStream();
+
+	@Before
+	public void setUp() throws Exception {
+		mServer = new StubCrashtoolServer();
+		mContent = new byte[FILE_SIZE];
+		new Random(16).nextBytes(mContent);
+		mFile = File.createTempFile("crashlogs", ".zip");
+		FileOutputStream out = new FileOutputStream(mFile);
+		try {
+			out.write(mContent);
+		} finally {
+			out.close();
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		mServer.close();
+		mFile.delete();
+	}
+
+	/**
+	 * Server side of ChunkedFileInfo : answers the committed offset, then
+	 * commits the frames matching their CRC32 until the first mismatch
+	 */
+	private class ChunkedFileSession implements StubCrashtoolServer.Session {
+		//frames read before the connection is dropped, -1 to read the whole file
+		private final int mDropAfter;
+		long mOffset;
+
+		ChunkedFileSession(int aDropAfter) {
+			mDropAfter = aDropAfter;
+		}
+
+		public void run(Socket aSocket) throws Exception {
+			ObjectInputStream objectInput = new ObjectInputStream(aSocket.getInputStream());
+			ChunkedFileInfo info = (ChunkedFileInfo) objectInput.readObject();
+			assertEquals(CHUNK_SIZE, info.getChunkSize());
+			mOffset = mCommitted.size();
+			StubCrashtoolServer.println(aSocket, ChunkedFileInfo.OFFSET_PREFIX + mOffset);
+
+			//frames are written on the socket stream, after the object
+			DataInputStream input = new DataInputStream(aSocket.getInputStream());
+			CRC32 crc = new CRC32();
+			boolean corrupted = false;
+			int frames = 0;
+			int length;
+			while ((length = input.readInt()) != 0) {
+				byte data[] = new byte[length];
+				input.readFully(data);
+				crc.reset();
+				crc.update(data);
+				if (input.readLong() != crc.getValue())
+					corrupted = true;
+				if (!corrupted)
+					mCommitted.write(data);
+				if (++frames == mDropAfter) {
+					aSocket.close();
+					return;
+				}
+			}
+			StubCrashtoolServer.println(aSocket, corrupted
+					? ChunkedFileInfo.NACK_PREFIX + mCommitted.size() : "ACK");
+		}
+	}
+
+	/**
+	 * Flips a bit in the data of one frame written
+	 */
+	private static class CorruptingOutputStream extends FilterOutputStream {
+		private final int mCorruptedWrite;
+		private int mWrites = 0;
+
+		CorruptingOutputStream(OutputStream aOut, int aCorruptedWrite) {
+			super(aOut);
+			mCorruptedWrite = aCorruptedWrite;
+		}
+
+		@Override
+		public void write(byte b[], int off, int len) throws IOException {
+			//LogsFileSender writes a frame at once : int length, data, CRC32
+			if (mWrites++ == mCorruptedWrite) {
+				b = b.clone();
+				b[off + 4] ^= 1;
+			}
+			out.write(b, off, len);
+		}
+	}
+
+	/**
+	 * @param aCorruptedFrame index of the frame corrupted on the wire, -1 for none
+	 * @return true if the server acknowledged the file, false if it refused
+	 * it or the connection was lost
+	 */
+	private boolean send(ChunkedFileSession aSession, int aCorruptedFrame, UploadStats aStats)
+			throws Exception {
+		Socket socket = mServer.connect(aSession);
+		boolean sent = false;
+		try {
+			ObjectOutputStream objectOutput = new ObjectOutputStream(socket.getOutputStream());
+			OutputStream output = new CorruptingOutputStream(socket.getOutputStream(), aCorruptedFrame);
+			BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+			FileInfo fileInfo = new FileInfo(mFile.getName(), mFile.getPath(),
+					mFile.length(), "", "event0", "");
+			sent = new LogsFileSender(objectOutput, output, input, CHUNK_SIZE)
+					.send(fileInfo, true, aStats, null, Thread.currentThread());
+		} catch (IOException e) {
+			//connection dropped by the server
+		} finally {
+			socket.close();
+		}
+		mServer.join();
+		return sent;
+	}
+
+	@Test
+	public void sendsWholeFile() throws Exception {
+		UploadStats stats = new UploadStats(mFile.getName());
+		assertTrue(send(new ChunkedFileSession(-1), -1, stats));
+		assertEquals(0, stats.getResumeOffset());
+		assertArrayEquals(mContent, mCommitted.toByteArray());
+	}
+
+	/**
+	 * The connection drops in the middle of the file : the next upload
+	 * starts at the offset the server committed.
+	 */
+	@Test
+	public void resumesAtCommittedOffset() throws Exception {
+		assertFalse(send(new ChunkedFileSession(5), -1, new UploadStats(mFile.getName())));
+		assertEquals(5 * CHUNK_SIZE, mCommitted.size());
+
+		UploadStats stats = new UploadStats(mFile.getName());
+		assertTrue(send(new ChunkedFileSession(-1), -1, stats));
+		assertEquals(5 * CHUNK_SIZE, stats.getResumeOffset());
+		assertEquals(FILE_SIZE - 5 * CHUNK_SIZE, stats.getBytes());
+		assertArrayEquals(mContent, mCommitted.toByteArray());
+	}
+
+	/**
+	 * A frame with a bad CRC32 is refused by a NACK : the upload fails, and
+	 * the next one resends the file from the last valid frame.
+	 */
+	@Test
+	public void handlesNackOfCorruptedFrame() throws Exception {
+		assertFalse(send(new ChunkedFileSession(-1), 3, new UploadStats(mFile.getName())));
+		assertEquals(3 * CHUNK_SIZE, mCommitted.size());
+
+		UploadStats stats = new UploadStats(mFile.getName());
+		assertTrue(send(new ChunkedFileSession(-1), -1, stats));
+		assertEquals(3 * CHUNK_SIZE, stats.getResumeOffset());
+		assertArrayEquals(mContent, mCommitted.toByteArray());
+	}
+}
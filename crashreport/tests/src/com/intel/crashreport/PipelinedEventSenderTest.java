@@ -0,0 +1,148 @@
+/* Copyright (C) 2019 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intel.crashreport;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.intel.crashtoolserver.bean.Event;
+
+public class PipelinedEventSenderTest {
+
+	private static final int EVENTS = 10;
+	private static final int WINDOW = 4;
+
+	private StubCrashtoolServer mServer;
+	private Socket mSocket;
+	//event IDs received by the server, in order
+	private final List<String> mReceived = new ArrayList<String>();
+
+	@Before
+	public void setUp() throws Exception {
+		mServer = new StubCrashtoolServer();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (mSocket != null)
+			mSocket.close();
+		mServer.close();
+	}
+
+	private static List<Event> createEvents() {
+		List<Event> events = new ArrayList<Event>();
+		for (int i = 0; i < EVENTS; i++) {
+			Event event = new Event();
+			event.setEventId("event" + i);
+			events.add(event);
+		}
+		return events;
+	}
+
+	private int send(StubCrashtoolServer.Session aSession) throws Exception {
+		mSocket = mServer.connect(aSession);
+		ObjectOutputStream output = new ObjectOutputStream(mSocket.getOutputStream());
+		BufferedReader input = new BufferedReader(new InputStreamReader(mSocket.getInputStream()));
+		int acked = new PipelinedEventSender(output, input, WINDOW).send(createEvents());
+		mSocket.close();
+		mServer.join();
+		return acked;
+	}
+
+	private String receive(ObjectInputStream aInput) throws Exception {
+		String eventId = ((Event) aInput.readObject()).getEventId();
+		mReceived.add(eventId);
+		return eventId;
+	}
+
+	/**
+	 * The server only answers once a whole window is received : the sender
+	 * must not wait for an ACK before writing the next events.
+	 */
+	@Test
+	public void acksWindowInOrder() throws Exception {
+		int acked = send(new StubCrashtoolServer.Session() {
+			public void run(Socket aSocket) throws Exception {
+				ObjectInputStream input = new ObjectInputStream(aSocket.getInputStream());
+				int received = 0;
+				while (received < EVENTS) {
+					int count = Math.min(WINDOW, EVENTS - received);
+					for (int i = 0; i < count; i++)
+						receive(input);
+					for (int i = 0; i < count; i++)
+						StubCrashtoolServer.println(aSocket, "ACK");
+					received += count;
+				}
+			}
+		});
+		assertEquals(EVENTS, acked);
+		for (int i = 0; i < EVENTS; i++)
+			assertEquals("event" + i, mReceived.get(i));
+	}
+
+	/**
+	 * A NAK in the middle of a window : only the events acknowledged before
+	 * it are reported, even if the following ones were already sent.
+	 */
+	@Test
+	public void nakMidWindowReportsAcknowledgedPrefix() throws Exception {
+		final int nakEvent = 6;
+		int acked = send(new StubCrashtoolServer.Session() {
+			public void run(Socket aSocket) throws Exception {
+				ObjectInputStream input = new ObjectInputStream(aSocket.getInputStream());
+				//the window is full before the first answer
+				for (int i = 0; i < WINDOW; i++)
+					receive(input);
+				for (int i = 0; i < nakEvent; i++) {
+					StubCrashtoolServer.println(aSocket, "ACK");
+					if (mReceived.size() < EVENTS)
+						receive(input);
+				}
+				StubCrashtoolServer.println(aSocket, "NAK");
+			}
+		});
+		assertEquals(nakEvent, acked);
+		//events after the NAK were in flight
+		assertEquals(nakEvent + WINDOW, mReceived.size());
+	}
+
+	@Test
+	public void connectionLostReportsAcknowledgedPrefix() throws Exception {
+		int acked = send(new StubCrashtoolServer.Session() {
+			public void run(Socket aSocket) throws Exception {
+				ObjectInputStream input = new ObjectInputStream(aSocket.getInputStream());
+				for (int i = 0; i < 3; i++) {
+					receive(input);
+					StubCrashtoolServer.println(aSocket, "ACK");
+				}
+				StubCrashtoolServer.hangUp(aSocket);
+			}
+		});
+		assertEquals(3, acked);
+	}
+}
@@ -0,0 +1,124 @@
+/* Copyright (C) 2019 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intel.crashreport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * Local stand-in for the crashtool server : each connection of a test is
+ * answered on the loopback interface by a scripted Session, run on its own
+ * thread.
+ */
+final class StubCrashtoolServer implements Closeable {
+
+	/**
+	 * Server side of one connection
+	 */
+	interface Session {
+		void run(Socket aSocket) throws Exception;
+	}
+
+	private static final int TIMEOUT_MS = 5000;
+
+	private final ServerSocket mServerSocket;
+	private Thread mThread = null;
+	private volatile Throwable mError = null;
+
+	StubCrashtoolServer() throws IOException {
+		mServerSocket = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+	}
+
+	/**
+	 * Opens a connection answered by aSession
+	 *
+	 * @return the client socket
+	 */
+	Socket connect(final Session aSession) throws IOException {
+		mError = null;
+		mThread = new Thread(new Runnable() {
+			public void run() {
+				Socket socket = null;
+				try {
+					socket = mServerSocket.accept();
+					socket.setSoTimeout(TIMEOUT_MS);
+					aSession.run(socket);
+				} catch (Throwable e) {
+					mError = e;
+				} finally {
+					if (socket != null) {
+						try {
+							socket.close();
+						} catch (IOException e) {
+							//the session is over anyway
+						}
+					}
+				}
+			}
+		}, "StubCrashtoolServer");
+		mThread.start();
+		Socket socket = new Socket(mServerSocket.getInetAddress(), mServerSocket.getLocalPort());
+		//a client waiting for an answer the server won't send fails instead of hanging
+		socket.setSoTimeout(TIMEOUT_MS);
+		return socket;
+	}
+
+	/**
+	 * Waits for the end of the last session
+	 *
+	 * @throws Exception the failure of the session, if any
+	 */
+	void join() throws Exception {
+		mThread.join(2 * TIMEOUT_MS);
+		if (mThread.isAlive())
+			throw new AssertionError("server session still running");
+		if (mError instanceof Exception)
+			throw (Exception) mError;
+		if (mError != null)
+			throw (Error) mError;
+	}
+
+	/**
+	 * Answers a line of the text protocol
+	 */
+	static void println(Socket aSocket, String aLine) throws IOException {
+		OutputStream out = aSocket.getOutputStream();
+		out.write((aLine + "\n").getBytes("UTF-8"));
+		out.flush();
+	}
+
+	/**
+	 * Closes the connection on the server side, the data already written
+	 * being still readable by the client
+	 */
+	static void hangUp(Socket aSocket) throws IOException {
+		aSocket.shutdownOutput();
+		//closing with unread data would reset the connection
+		InputStream in = aSocket.getInputStream();
+		byte buffer[] = new byte[4096];
+		while (in.read(buffer) != -1);
+	}
+
+	public void close() throws IOException {
+		mServerSocket.close();
+	}
+}
@@ -16,30 +16,46 @@
 
 package com.intel.crashreport;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
 
 import com.intel.phonedoctor.utils.FileOps;
+import com.intel.phonedoctor.utils.ParallelZip;
 import com.intel.crashreport.database.EventDB;
 import com.intel.crashreport.common.IEventLog;
 import com.intel.crashreport.core.Logger;
+import com.intel.crashtoolserver.bean.DedupManifest;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteException;
 import android.content.Context;
 
 public class CrashLogs {
 
-	private static final int BUFFER_SIZE = 1024;
+	private static final int BUFFER_SIZE = 16 * 1024;
 	private static final IEventLog log = Logger.getLog();
 	public static final String NO_UPLOAD_PATTERN = "noupload_";
+	public static final String CRASHLOGS_FILE_PREFIX = "EVENT";
+	public static final String CRASHLOGS_FILE_SUFFIX = ".zip";
+	//zip being written, renamed once complete
+	public static final String TMP_FILE_SUFFIX = ".tmp";
+
+	/**
+	 * @return the name of the zipped crashlog file of an event in the application cache directory
+	 */
+	public static String getCrashLogsFileName(String eventId) {
+		return CRASHLOGS_FILE_PREFIX + eventId + CRASHLOGS_FILE_SUFFIX;
+	}
 
 	/**
 	 * Compress a crashlog directory content and return it as a zipped file. If this zipped file
@@ -53,6 +69,17 @@ public class CrashLogs {
 	 * @throws SQLiteException if the event crashdir database key needs to be updated but database is not available
 	 */
 	public static File getCrashLogsFile(Context context, String crashDir, String eventId) throws SQLException, SQLiteException {
+		return getCrashLogsFile(context, crashDir, eventId, false);
+	}
+
+	/**
+	 * Compress a crashlog directory content and return it as a zipped file, see
+	 * getCrashLogsFile(Context, String, String).
+	 *
+	 * @param dedup true to leave out the files already uploaded, see CrashLogsDedup. Only for a
+	 * server advertising DedupManifest.CAPABILITY.
+	 */
+	public static File getCrashLogsFile(Context context, String crashDir, String eventId, boolean dedup) throws SQLException, SQLiteException {
 		if ((crashDir == null) || (crashDir.isEmpty())) {
 			return null;
 		}
@@ -60,14 +87,14 @@ public class CrashLogs {
 		if ((cacheDir == null) || !cacheDir.exists() ) {
 			return null;
 		}
-		String crashLogsFileName = "EVENT"+eventId+".zip";
+		String crashLogsFileName = getCrashLogsFileName(eventId);
 		File crashLogsFile = new File(cacheDir, crashLogsFileName);
 		crashLogsFile.deleteOnExit();
 		if (crashLogsFile.exists()) {
 			//A crashlog zipped file already exists in cache directory
 			log.w("getCrashLogsFile: " + crashLogsFileName + " exists in cachedir");
 			try {
-				if (FileOps.isValidZipFile(crashLogsFile))
+				if (isValidCrashLogsFile(crashLogsFile, dedup))
 					return crashLogsFile;
 				else
 					log.w("CrashLogs: unvalid zip file in cache "
@@ -83,7 +110,10 @@ public class CrashLogs {
 		//Nominal case : the crashlog directory needs to be compressed and returned as a zipped file
 		log.d("getCrashLogsFile: start "+crashLogsFileName+" creation");
 		try {
-			return createCrashLogsZip(crashDir, crashLogsFileName, cacheDir);
+			File createdFile = createCrashLogsZip(crashDir, crashLogsFileName, cacheDir, dedup ? eventId : null);
+			if (createdFile != null)
+				onCrashLogsFileCreated(context, eventId, createdFile);
+			return createdFile;
 		} catch (IllegalArgumentException e) {
 			log.d("CrashLogs: exception while compressing crash directory: " + e);
 		} catch (UnsupportedOperationException e) {
@@ -100,6 +130,23 @@ public class CrashLogs {
 		return null;
 	}
 
+	/**
+	 * Save what the size estimator learned from a new zipped crashlog file, and replace the
+	 * estimated size of the event crashlogs by the real one
+	 */
+	private static void onCrashLogsFileCreated(Context context, String eventId, File crashLogsFile) {
+		CrashLogsSizeEstimator.getInstance(context).save();
+		EventDB db = new EventDB(context);
+		try {
+			db.open();
+			db.updateEventLogsSize(eventId, (int)Math.min(crashLogsFile.length(), Integer.MAX_VALUE));
+		} catch (SQLException e) {
+			log.w("CrashLogs: can't update logs size of event " + eventId);
+		} finally {
+			db.close();
+		}
+	}
+
 	/**
 	 * Write a zip file from the input crash directory crashDirPath. This file is named fileName
 	 * and stored in outDir directory
@@ -107,154 +154,264 @@ public class CrashLogs {
 	 * @param crashDirPath is the path of the directory to compress
 	 * @param fileName is a string defining the name of the zip file to create. It shall NOT be null.
 	 * @param outDir is the directory where the output zip file will be stored. It shall exist and NOT be null.
+	 * @param dedupEventId is the id of the event to dedup the files of, null to zip all files
 	 * @return the created zip file or null if crashDirPath directory is empty or creation failed
 	 * @throws IllegalArgumentException if crashDirPath is not an existing directory
 	 * @throws UnsupportedOperationException if crashDirPath is an empty directory
 	 */
-	private static File createCrashLogsZip(String crashDirPath, String fileName, File outDir) throws IllegalArgumentException, UnsupportedOperationException {
+	private static File createCrashLogsZip(String crashDirPath, String fileName, File outDir, String dedupEventId) throws IllegalArgumentException, UnsupportedOperationException {
+		File fileList[] = listCrashLogs(crashDirPath);
+		File crashLogsFile = new File(outDir, fileName + TMP_FILE_SUFFIX); //fileName necessary not null
+		try {
+			writeCrashLogsZip(crashLogsFile, fileList, dedupEventId);
+			if (FileOps.isValidZipFile(crashLogsFile)) {
+				//the zip only appears under its name once complete
+				File completeFile = new File(outDir, fileName);
+				if (crashLogsFile.renameTo(completeFile))
+					return completeFile;
+				log.w("CrashLogs: can't rename file: " + crashLogsFile.getName());
+			} else
+				log.w("CrashLogs: unvalid zip file : "
+					+ crashLogsFile.getName());
+		} catch (FileNotFoundException e) {
+			log.w("CrashLogs: file read error ", e);
+		} catch (IOException e) { //catches all IOExceptions concerning stream and zip entries operations
+			log.w("CrashLogs: IOException when writing "
+				+ "in zipfile: "+crashLogsFile.getName(), e);
+		}
+		if (!crashLogsFile.delete())
+			log.w("CrashLogs: can't delete file: " + crashLogsFile.getName());
+		return null;
+	}
+
+	/**
+	 * List the files of a crash directory to be compressed
+	 *
+	 * @param crashDirPath is the path of the crash directory
+	 * @return the files of the crash directory, never empty
+	 * @throws IllegalArgumentException if crashDirPath is not an existing directory
+	 * @throws UnsupportedOperationException if crashDirPath is an empty directory
+	 */
+	private static File[] listCrashLogs(String crashDirPath) throws IllegalArgumentException, UnsupportedOperationException {
 		File crashDir = new File(crashDirPath);
 		if ( !(crashDir.exists() && crashDir.isDirectory()) ) {
-			log.w("CrashLogs: createCrashLogsZip input " + crashDirPath
+			log.w("CrashLogs: input " + crashDirPath
 				+ " arg doesn't exist or is not a directory");
 			throw new IllegalArgumentException();
 		}
 		/*Check crashlog directory is not empty*/
 		File fileList[] = crashDir.listFiles();
-		if ((fileList != null) && fileList.length > 0) {
-			File crashLogsFile = new File(outDir, fileName); //fileName necessary not null
-			try {
-				writeCrashLogsZip(crashLogsFile, fileList);
-				if (FileOps.isValidZipFile(crashLogsFile))
-					return crashLogsFile;
-				else
-					log.w("CrashLogs: unvalid zip file : "
-						+ crashLogsFile.getName());
-			} catch (FileNotFoundException e) {
-				log.w("CrashLogs: file read error ", e);
-			} catch (IOException e) { //catches all IOExceptions concerning stream and zip entries operations
-				log.w("CrashLogs: IOException when writing "
-					+ "in zipfile: "+crashLogsFile.getName(), e);
-			}
-			if (!crashLogsFile.delete())
-				log.w("CrashLogs: can't delete file: " + crashLogsFile.getName());
-		}
-		else
-		{
-			log.w("CrashLogs: " + fileName + " creation cancelled : "
-				+ crashDir.getAbsolutePath() + " is empty");
+		if ((fileList == null) || fileList.length == 0) {
+			log.w("CrashLogs: " + crashDir.getAbsolutePath() + " is empty");
 			throw new UnsupportedOperationException();
 		}
-		return null;
+		return fileList;
+	}
+
+	/**
+	 * Check a crash directory has files to be compressed
+	 *
+	 * @param crashDirPath is the path of the crash directory
+	 * @return true if crashDirPath is an existing and non empty directory
+	 */
+	public static boolean hasCrashLogs(String crashDirPath) {
+		if ((crashDirPath == null) || (crashDirPath.isEmpty())) {
+			return false;
+		}
+		File fileList[] = new File(crashDirPath).listFiles();
+		return (fileList != null) && fileList.length > 0;
+	}
+
+	/**
+	 * Check a zipped crashlog file of an event is already in the application cache directory,
+	 * e.g. left by a previous failed upload.
+	 *
+	 * @param context is the current application context
+	 * @param eventId is the id of the event
+	 * @return true if the file "EVENTeventId.zip" exists in the application cache directory
+	 */
+	public static boolean hasCrashLogsFile(Context context, String eventId) {
+		File cacheDir = context.getCacheDir();
+		return (cacheDir != null) && new File(cacheDir, getCrashLogsFileName(eventId)).exists();
+	}
+
+	/**
+	 * Check a zipped crashlog file can be uploaded
+	 *
+	 * @param zipFile is the zipped crashlog file
+	 * @param dedup true if the file may reference already uploaded files
+	 * @return true if zipFile is a valid zip file, without DedupManifest unless dedup is true
+	 * @throws IOException when zip integrity check fails.
+	 */
+	private static boolean isValidCrashLogsFile(File zipFile, boolean dedup) throws IOException {
+		ZipFile zip;
+		try {
+			zip = new ZipFile(zipFile);
+		} catch (ZipException e) {
+			return false;
+		}
+		try {
+			return dedup || (zip.getEntry(DedupManifest.ENTRY_NAME) == null);
+		} finally {
+			zip.close();
+		}
+	}
+
+	/**
+	 * Compress a crashlog directory content directly in an output stream, without any
+	 * intermediate file. The output stream is not closed.
+	 *
+	 * @param crashDirPath is the path of the directory to compress
+	 * @param zipName is the name of the zip, only used in logs
+	 * @param dedupEventId is the id of the event to dedup the files of, null to zip all files
+	 * @param os is the stream receiving the zip data
+	 * @return the number of zip bytes written in os
+	 * @throws IllegalArgumentException if crashDirPath is not an existing directory
+	 * @throws UnsupportedOperationException if crashDirPath is an empty directory
+	 * @throws IOException if an error occurs when reading a file or writing in os
+	 */
+	public static long writeCrashLogs(String crashDirPath, String zipName, String dedupEventId, OutputStream os) throws IOException {
+		File fileList[] = listCrashLogs(crashDirPath);
+		return writeCrashLogsZip(os, zipName, fileList, dedupEventId);
 	}
 
 	/**
 	 * Write files from fileList in crashLogsFile under zip format
 	 * @param crashLogsFile is the zip file storing files from fileList. It shall NOT be null.
 	 * @param fileList is the list of files to store in the zip file crashLogsFile. It shall NOT be null.
+	 * @param dedupEventId is the id of the event to dedup the files of, null to zip all files
 	 * @throws FileNotFoundException if crashLogsFile can't be read
 	 * @throws IOException if an error occurs when storing an entry in zip file
 	 */
-	private static void writeCrashLogsZip(File crashLogsFile, File fileList[]) throws FileNotFoundException, IOException {
+	private static void writeCrashLogsZip(File crashLogsFile, File fileList[], String dedupEventId) throws FileNotFoundException, IOException {
 		/* We do something only if input parameters are not null */
 		if(crashLogsFile == null || fileList == null) {
 			String errorMessage = "Cannot write <null> file or cannot read from <null> file list.";
 			log.e(errorMessage);
 			throw new IOException(errorMessage);
 		}
-		ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(crashLogsFile)));
-		File fileInfo = null;
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(crashLogsFile), BUFFER_SIZE);
 		try {
-			for(int i=0; i < fileList.length; i++) {
-				if (fileList[i].getName().startsWith(NO_UPLOAD_PATTERN)) {
-					log.d("File " + fileList[i].getName() + " not added to " + crashLogsFile.getName());
-					continue;
-				}
+			writeCrashLogsZip(out, crashLogsFile.getName(), fileList, dedupEventId);
+		}
+		finally {
+			out.close();
+		}
+	}
 
-				log.d("Compress Adding: " + fileList[i].getName());
+	/**
+	 * Write files from fileList in a stream under zip format. Files are compressed in parallel,
+	 * already compressed ones are only stored.
+	 * @param out is the stream storing files from fileList
+	 * @param zipName is the name of the zip, only used in logs
+	 * @param fileList is the list of files to store in the zip
+	 * @param dedupEventId is the id of the event to dedup the files of, null to zip all files
+	 * @return the number of zip bytes written in out
+	 * @throws IOException if an error occurs when storing an entry in zip stream
+	 */
+	private static long writeCrashLogsZip(OutputStream out, String zipName, File fileList[], String dedupEventId) throws IOException {
+		File fileInfo = null;
+		List<File> zipFiles = new ArrayList<File>();
+		for(int i=0; i < fileList.length; i++) {
+			if (fileList[i].getName().startsWith(NO_UPLOAD_PATTERN)) {
+				log.d("File " + fileList[i].getName() + " not added to " + zipName);
+				continue;
+			}
 
-				if (!(fileList[i].exists() && fileList[i].canRead() && (fileList[i].getName().length() < Integer.MAX_VALUE))){
-					log.w("CrashLogs: can't read file " + fileList[i].getName()
-						+ " to be added in " + crashLogsFile.getName());
-					FileWriter info = null;
-					try{
-						boolean append = true;
-						if(fileInfo == null) {
-							fileInfo = new File(fileList[i].getParent() + "/unavailableFiles");
-							if(fileInfo.exists())
-								append = false;
-						}
-						info = new FileWriter(fileInfo, append);
-						info.write(fileList[i].getName()+"\n");
+			log.d("Compress Adding: " + fileList[i].getName());
+
+			if (!(fileList[i].exists() && fileList[i].canRead() && (fileList[i].getName().length() < Integer.MAX_VALUE))){
+				log.w("CrashLogs: can't read file " + fileList[i].getName()
+					+ " to be added in " + zipName);
+				FileWriter info = null;
+				try{
+					boolean append = true;
+					if(fileInfo == null) {
+						fileInfo = new File(fileList[i].getParent() + "/unavailableFiles");
+						if(fileInfo.exists())
+							append = false;
 					}
-					catch(IOException e){
-						log.e("CrashLogs: Can't write "
-							+ fileList[i].getName() + " in "
-							+ fileList[i].getParent()
-							+ "/unavailableFiles");
-					} finally {
-						if(info != null) {
-							info.close();
-						}
+					info = new FileWriter(fileInfo, append);
+					info.write(fileList[i].getName()+"\n");
+				}
+				catch(IOException e){
+					log.e("CrashLogs: Can't write "
+						+ fileList[i].getName() + " in "
+						+ fileList[i].getParent()
+						+ "/unavailableFiles");
+				} finally {
+					if(info != null) {
+						info.close();
 					}
-					continue;
 				}
-				if(fileList[i] != null && !fileList[i].getName().contains("unavailableFiles"))
-					addFileToZip(fileList[i], out);
-			}
-			if(fileInfo != null) {
-				if (!(fileInfo.exists() && fileInfo.canRead() && (fileInfo.getName().length() < Integer.MAX_VALUE)))
-					log.w("CrashLogs: can't read file " + fileInfo.getName()
-						+ " to be added in " + crashLogsFile.getName());
-				else
-					addFileToZip(fileInfo, out);
+				continue;
 			}
+			if(fileList[i] != null && !fileList[i].getName().contains("unavailableFiles"))
+				zipFiles.add(fileList[i]);
 		}
-		finally {
-			out.close();
+		if(fileInfo != null) {
+			if (!(fileInfo.exists() && fileInfo.canRead() && (fileInfo.getName().length() < Integer.MAX_VALUE)))
+				log.w("CrashLogs: can't read file " + fileInfo.getName()
+					+ " to be added in " + zipName);
+			else
+				zipFiles.add(fileInfo);
+		}
+		Map<String, byte[]> memoryEntries = null;
+		if (dedupEventId != null) {
+			DedupManifest manifest = CrashLogsDedup.getInstance().dedup(dedupEventId, zipFiles);
+			if (!manifest.isEmpty()) {
+				log.i("CrashLogs: " + manifest.getCount() + " file(s) already uploaded left out of " + zipName);
+				memoryEntries = new HashMap<String, byte[]>();
+				memoryEntries.put(DedupManifest.ENTRY_NAME, manifest.toBytes());
+			}
 		}
+		return new ParallelZip()
+				.setEntryListener(CrashLogsSizeEstimator.getLoadedInstance())
+				.write(zipFiles, memoryEntries, out);
 	}
 
 	/**
-	 * Get the size of a given directory
+	 * Get the estimated size of the zipped crashlogs of a given directory, see
+	 * CrashLogsSizeEstimator. No file is compressed. The crashdir of an event
+	 * whose directory is empty is only reset when its zip is built, see
+	 * getCrashLogsFile().
 	 * @param repository The directory
-	 * @return size of a given directory
+	 * @return estimated size of the zipped crashlogs of a given directory, 0 if none
 	 */
-	public static int getCrashLogsSize(Context context, String repository, String eventId) {
-		int totalSize = 0;
-		try{
-			File logsToUpload = getCrashLogsFile(context, repository, eventId);
-			if(logsToUpload != null) {
-				totalSize = (int)logsToUpload.length();
-				logsToUpload.delete();
-			}
+	public static int getCrashLogsSize(Context context, String repository) {
+		if ((repository == null) || (repository.isEmpty())) {
+			return 0;
 		}
-		catch(SQLException e){
-			log.w("CrashLogs:getCrashLogsSize: can't access Database");
+		try {
+			File fileList[] = listCrashLogs(repository);
+			long size = CrashLogsSizeEstimator.getInstance(context).estimate(fileList);
+			return (int)Math.min(size, Integer.MAX_VALUE);
+		} catch (IllegalArgumentException e) {
+			log.d("CrashLogs:getCrashLogsSize: " + repository + " isn't a directory");
+		} catch (UnsupportedOperationException e) {
+			log.d("CrashLogs:getCrashLogsSize: " + repository + " is empty");
 		}
-		return totalSize;
+		return 0;
 	}
 
 	/**
-	 * Add a file in a zip file
-	 * @param file the file to add
-	 * @param out the zip file where add the file
-	 * @throws IOException
+	 * Get an upper bound of the size of the zipped crashlogs of a given
+	 * directory, see CrashLogsSizeEstimator.getMaxSize(). Unlike
+	 * getCrashLogsSize(), it never underestimates.
+	 * @param repository The directory
+	 * @return upper bound of the size of the zipped crashlogs of a given directory, 0 if none
 	 */
-	private static void addFileToZip(File file, ZipOutputStream out) throws FileNotFoundException,IOException{
-		BufferedInputStream origin = null;
-		byte data[] = new byte[BUFFER_SIZE];
-		try{
-			FileInputStream fi = new FileInputStream(file);
-			origin = new BufferedInputStream(fi, BUFFER_SIZE);
-			ZipEntry entry = new ZipEntry(file.getName());
-			out.putNextEntry(entry);
-			int count;
-			while ((count = origin.read(data)) != -1)
-				out.write(data, 0, count);
+	public static long getCrashLogsMaxSize(String repository) {
+		if ((repository == null) || (repository.isEmpty())) {
+			return 0;
 		}
-		finally{
-			if (origin != null)
-				origin.close();
+		try {
+			return CrashLogsSizeEstimator.getMaxSize(listCrashLogs(repository));
+		} catch (IllegalArgumentException e) {
+			log.d("CrashLogs:getCrashLogsMaxSize: " + repository + " isn't a directory");
+		} catch (UnsupportedOperationException e) {
+			log.d("CrashLogs:getCrashLogsMaxSize: " + repository + " is empty");
 		}
+		return 0;
 	}
 }
@@ -0,0 +1,198 @@
+/* Copyright (C) 2019 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intel.crashreport;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.intel.crashreport.common.IEventLog;
+import com.intel.crashreport.core.Logger;
+import com.intel.crashtoolserver.bean.DedupManifest;
+
+/**
+ * Index of the crashlog files already uploaded today, by content.
+ *
+ * A big file of a crash directory whose content was already uploaded in
+ * the zip of another event is left out of the zip, and referenced in its
+ * DedupManifest instead. Files only become referenceable once the server
+ * acknowledged the zip holding them, see onUploaded(). The index is kept
+ * in memory and cleared when the day changes.
+ */
+public final class CrashLogsDedup {
+
+	/** Smaller files are always zipped, hashing them isn't worth it */
+	public static final long MIN_FILE_SIZE = 256 * 1024;
+	private static final int MAX_UPLOADED_FILES = 512;
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final IEventLog log = Logger.getLog();
+	private static final CrashLogsDedup sInstance = new CrashLogsDedup();
+	//set by the last connection to the server, for zips built ahead of upload
+	private static volatile boolean sServerSupported = false;
+
+	//uploaded files by content key, the least recently used dropped first
+	private final Map<String, FileRef> mUploaded =
+			new LinkedHashMap<String, FileRef>(MAX_UPLOADED_FILES, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, FileRef> eldest) {
+			return size() > MAX_UPLOADED_FILES;
+		}
+	};
+	//files zipped for an event, not yet acknowledged by the server
+	private final Map<String, List<FileRef>> mPending = new HashMap<String, List<FileRef>>();
+	private int mDay = -1;
+
+	private static class FileRef {
+		final String key;
+		final String sha1;
+		final long size;
+		final String eventId;
+		final String name;
+
+		FileRef(String key, String sha1, long size, String eventId, String name) {
+			this.key = key;
+			this.sha1 = sha1;
+			this.size = size;
+			this.eventId = eventId;
+			this.name = name;
+		}
+	}
+
+	private CrashLogsDedup() {
+	}
+
+	public static CrashLogsDedup getInstance() {
+		return sInstance;
+	}
+
+	/**
+	 * @param supported true if the last server connected advertised DedupManifest.CAPABILITY
+	 */
+	public static void setServerSupported(boolean supported) {
+		sServerSupported = supported;
+	}
+
+	public static boolean isServerSupported() {
+		return sServerSupported;
+	}
+
+	/**
+	 * Remove from files the ones already uploaded, and describe them in a manifest.
+	 * The other big files are remembered as pending for eventId.
+	 *
+	 * @param eventId the event whose crashlogs are zipped
+	 * @param files the files to zip, updated
+	 * @return the manifest of the removed files, empty if none
+	 */
+	public synchronized DedupManifest dedup(String eventId, List<File> files) {
+		checkDay();
+		DedupManifest manifest = new DedupManifest();
+		List<FileRef> pending = new ArrayList<FileRef>();
+		List<File> kept = new ArrayList<File>(files.size());
+		for (File file : files) {
+			long size = file.length();
+			String sha1 = (size >= MIN_FILE_SIZE) ? sha1(file) : null;
+			if (sha1 == null) {
+				kept.add(file);
+				continue;
+			}
+			String key = sha1 + ":" + size;
+			FileRef uploaded = mUploaded.get(key);
+			if (uploaded != null && !uploaded.eventId.equals(eventId)) {
+				manifest.add(file.getName(), sha1, size, uploaded.eventId, uploaded.name);
+				log.d("CrashLogsDedup: " + file.getName() + " already uploaded as "
+					+ uploaded.name + " of event " + uploaded.eventId);
+				continue;
+			}
+			pending.add(new FileRef(key, sha1, size, eventId, file.getName()));
+			kept.add(file);
+		}
+		//a zip rebuilt for an event replaces the previous one
+		mPending.put(eventId, pending);
+		files.clear();
+		files.addAll(kept);
+		return manifest;
+	}
+
+	/**
+	 * The zip of an event is acknowledged : its files become referenceable
+	 */
+	public synchronized void onUploaded(String eventId) {
+		List<FileRef> pending = mPending.remove(eventId);
+		if (pending == null)
+			return;
+		checkDay();
+		for (FileRef ref : pending)
+			mUploaded.put(ref.key, ref);
+	}
+
+	/**
+	 * Clear the index when the day changes
+	 */
+	private void checkDay() {
+		Calendar now = Calendar.getInstance();
+		int day = now.get(Calendar.YEAR) * 1000 + now.get(Calendar.DAY_OF_YEAR);
+		if (day != mDay) {
+			mDay = day;
+			mUploaded.clear();
+		}
+	}
+
+	/**
+	 * @return SHA-1 of the file content in hex, null if it can't be read
+	 */
+	private static String sha1(File file) {
+		FileInputStream in = null;
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			in = new FileInputStream(file);
+			byte data[] = new byte[BUFFER_SIZE];
+			int count;
+			while ((count = in.read(data)) != -1)
+				digest.update(data, 0, count);
+			StringBuilder hex = new StringBuilder();
+			for (byte b : digest.digest())
+				hex.append(String.format("%02x", b & 0xff));
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			log.w("CrashLogsDedup: no SHA-1");
+		} catch (IOException e) {
+			log.w("CrashLogsDedup: can't read " + file.getName());
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+					log.w("CrashLogsDedup: can't close " + file.getName());
+				}
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,240 @@
+/* Copyright (C) 2019 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intel.crashreport;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+import android.content.Context;
+
+import com.intel.crashreport.common.IEventLog;
+import com.intel.crashreport.core.Logger;
+import com.intel.phonedoctor.utils.ParallelZip;
+
+/**
+ * Estimates the size of a crashlog zip from the size of its files, without
+ * compressing them.
+ *
+ * The compression ratio of a file depends on its extension, or on its name
+ * for files without extension like aplogs, and is learned from the zips
+ * really built, see onEntry(). The model is saved in the application files
+ * directory.
+ */
+public final class CrashLogsSizeEstimator implements ParallelZip.EntryListener {
+
+	private static final String MODEL_FILE_NAME = "logs_size_model.properties";
+	//ratio used before anything is learned, typical of text logs
+	private static final double DEFAULT_RATIO = 0.25;
+	private static final int MAX_KEYS = 64;
+	//learned sizes are halved beyond, so that the model follows new logs
+	private static final long MAX_LEARNED_SIZE = 64 * 1024 * 1024;
+	//zip local and central headers of an entry, without its name
+	private static final int ENTRY_OVERHEAD = 30 + 46;
+	private static final int END_OVERHEAD = 22;
+	//data descriptor following the data of an entry, with its signature
+	private static final int DESCRIPTOR_SIZE = 16;
+
+	private static final IEventLog log = Logger.getLog();
+	private static CrashLogsSizeEstimator sInstance = null;
+
+	private final File mModelFile;
+	private final ParallelZip mZip = new ParallelZip();
+	//learned {size, compressed size} by key, see getKey()
+	private final Map<String, long[]> mSizes = new HashMap<String, long[]>();
+	//sum of the learned sizes, for the files whose key wasn't learned yet
+	private final long mTotal[] = new long[2];
+	private boolean mModified = false;
+
+	private CrashLogsSizeEstimator(File modelFile) {
+		mModelFile = modelFile;
+		load();
+	}
+
+	public static synchronized CrashLogsSizeEstimator getInstance(Context context) {
+		if (sInstance == null)
+			sInstance = new CrashLogsSizeEstimator(new File(context.getFilesDir(), MODEL_FILE_NAME));
+		return sInstance;
+	}
+
+	/**
+	 * @return the estimator if already created, to learn from zips built without context
+	 */
+	static synchronized CrashLogsSizeEstimator getLoadedInstance() {
+		return sInstance;
+	}
+
+	/**
+	 * @param fileList files of a crash directory
+	 * @return estimated size of the zip of fileList
+	 */
+	public synchronized long estimate(File fileList[]) {
+		long size = END_OVERHEAD;
+		for (File file : fileList) {
+			String name = file.getName();
+			if (name.startsWith(CrashLogs.NO_UPLOAD_PATTERN) || !file.isFile())
+				continue;
+			size += ENTRY_OVERHEAD + 2 * name.length();
+			size += (long)(file.length() * getRatio(name));
+		}
+		return size;
+	}
+
+	/**
+	 * @param fileList files of a crash directory
+	 * @return upper bound of the size of the zip of fileList, whatever the
+	 * compression ratio of its files
+	 */
+	public static long getMaxSize(File fileList[]) {
+		long size = END_OVERHEAD;
+		for (File file : fileList) {
+			String name = file.getName();
+			if (name.startsWith(CrashLogs.NO_UPLOAD_PATTERN) || !file.isFile())
+				continue;
+			size += ENTRY_OVERHEAD + DESCRIPTOR_SIZE + 2 * name.length();
+			//incompressible data is deflated in stored blocks of 5 bytes overhead
+			long length = file.length();
+			size += length + (length >> 10) + 64;
+		}
+		return size;
+	}
+
+	private double getRatio(String name) {
+		if (mZip.getLevel(name) == ParallelZip.STORE)
+			return 1.0;
+		long sizes[] = mSizes.get(getKey(name));
+		if (sizes == null || sizes[0] == 0)
+			sizes = mTotal;
+		if (sizes[0] == 0)
+			return DEFAULT_RATIO;
+		return (double)sizes[1] / sizes[0];
+	}
+
+	public synchronized void onEntry(String name, int level, long size, long compressedSize) {
+		if (level == ParallelZip.STORE || size == 0)
+			return;
+		String key = getKey(name);
+		long sizes[] = mSizes.get(key);
+		if (sizes == null && mSizes.size() < MAX_KEYS) {
+			sizes = new long[2];
+			mSizes.put(key, sizes);
+		}
+		if (sizes != null)
+			learn(sizes, size, compressedSize);
+		learn(mTotal, size, compressedSize);
+		mModified = true;
+	}
+
+	private static void learn(long sizes[], long size, long compressedSize) {
+		sizes[0] += size;
+		sizes[1] += compressedSize;
+		while (sizes[0] > MAX_LEARNED_SIZE) {
+			sizes[0] /= 2;
+			sizes[1] /= 2;
+		}
+	}
+
+	/**
+	 * @return the extension of a file name ignoring rotation numbers, e.g. ".txt"
+	 * for "kernel.txt.2", or its name if none, e.g. "aplog" for "aplog.12"
+	 */
+	static String getKey(String name) {
+		String base = name.toLowerCase(Locale.US);
+		int dot;
+		while ((dot = base.lastIndexOf('.')) >= 0 && isNumber(base.substring(dot + 1)))
+			base = base.substring(0, dot);
+		dot = base.lastIndexOf('.');
+		return (dot >= 0) ? base.substring(dot) : base;
+	}
+
+	private static boolean isNumber(String s) {
+		if (s.isEmpty())
+			return false;
+		for (int i = 0; i < s.length(); i++) {
+			if (!Character.isDigit(s.charAt(i)))
+				return false;
+		}
+		return true;
+	}
+
+	private void load() {
+		if (!mModelFile.exists())
+			return;
+		Properties model = new Properties();
+		FileInputStream in = null;
+		try {
+			in = new FileInputStream(mModelFile);
+			model.load(in);
+		} catch (IOException e) {
+			log.w("CrashLogsSizeEstimator: can't read " + mModelFile.getName());
+			return;
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+					log.w("CrashLogsSizeEstimator: can't close " + mModelFile.getName());
+				}
+			}
+		}
+		for (String key : model.stringPropertyNames()) {
+			String values[] = model.getProperty(key).split(" ");
+			if (values.length != 2 || mSizes.size() >= MAX_KEYS)
+				continue;
+			try {
+				long sizes[] = { Long.parseLong(values[0]), Long.parseLong(values[1]) };
+				mSizes.put(key, sizes);
+				learn(mTotal, sizes[0], sizes[1]);
+			} catch (NumberFormatException e) {
+				log.w("CrashLogsSizeEstimator: invalid model for " + key);
+			}
+		}
+	}
+
+	/**
+	 * Save the model if it learned since the last save
+	 */
+	public synchronized void save() {
+		if (!mModified)
+			return;
+		Properties model = new Properties();
+		for (Map.Entry<String, long[]> entry : mSizes.entrySet())
+			model.setProperty(entry.getKey(), entry.getValue()[0] + " " + entry.getValue()[1]);
+		FileOutputStream out = null;
+		try {
+			out = new FileOutputStream(mModelFile);
+			model.store(out, null);
+			mModified = false;
+		} catch (IOException e) {
+			log.w("CrashLogsSizeEstimator: can't write " + mModelFile.getName());
+		} finally {
+			if (out != null) {
+				try {
+					out.close();
+				} catch (IOException e) {
+					log.w("CrashLogsSizeEstimator: can't close " + mModelFile.getName());
+				}
+			}
+		}
+	}
+}
@@ -29,13 +29,16 @@ import java.io.BufferedInputStream;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.LinkedList;
-import java.util.zip.ZipEntry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
 import java.util.zip.GZIPOutputStream;
-import java.util.zip.ZipOutputStream;
 
 import android.graphics.BitmapFactory;
 import android.graphics.Bitmap;
@@ -45,6 +48,7 @@ import android.graphics.Bitmap;
  */
 public class FileOps {
 	private static long GZIP_THRESHOLD_IN_BYTES = 1 * 1024 * 1024; /* 1 MB */
+	private static final int BUFFER_SIZE = 64 * 1024;
 	private static final IEventLog log = Logger.getLog();
 
 	/**
@@ -268,6 +272,7 @@ public class FileOps {
 		if(files == null)
 			return;
 
+		List<File> toCompress = new ArrayList<File>();
 		for(File f: files) {
 			if (isGz(f.getName()))
 				continue;
@@ -286,25 +291,64 @@ public class FileOps {
 				log.d("File " + f.getName() + " not processed.");
 				continue;
 			}
+			toCompress.add(f);
+		}
 
-			String source = f.getAbsolutePath();
-			String destination = source + ".gz";
-			if (compressFile(source, destination)) {
-				String result = f.getAbsolutePath() + " (" +
-						Long.toString(f.length()) + " bytes) -> " +
-						f.getAbsolutePath() + ".gz";
-				File f2 =new File(destination);
-				if (!f2.exists() || f2.length() == 0) {
-					log.e("Compression failed: " + result);
-					continue;
+		int threads = Math.min(Runtime.getRuntime().availableProcessors(), toCompress.size());
+		if (threads <= 1) {
+			for (File f: toCompress)
+				compressFolderFile(f);
+			return;
+		}
+
+		//big files are gzipped at once, each by a thread
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		try {
+			for (final File f: toCompress) {
+				futures.add(executor.submit(new Runnable() {
+					public void run() {
+						compressFolderFile(f);
+					}
+				}));
+			}
+			for (Future<?> future: futures) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					log.e("File compression failed: " + e.getCause());
 				}
+			}
+		} catch (InterruptedException e) {
+			log.w("Folder compression interrupted: " + path);
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
 
-				result += " (" + Long.toString(f2.length()) + " bytes)";
-				f.delete();
-				log.d("File compressed: " + result);
-			} else {
-				log.e("File could not be compressed: " + source);
+	/**
+	 * Replace a file by its gzipped version, with the extension gz
+	 * @param f file to compress
+	 */
+	private static void compressFolderFile(File f) {
+		String source = f.getAbsolutePath();
+		String destination = source + ".gz";
+		if (compressFile(source, destination)) {
+			String result = f.getAbsolutePath() + " (" +
+					Long.toString(f.length()) + " bytes) -> " +
+					f.getAbsolutePath() + ".gz";
+			File f2 =new File(destination);
+			if (!f2.exists() || f2.length() == 0) {
+				log.e("Compression failed: " + result);
+				return;
 			}
+
+			result += " (" + Long.toString(f2.length()) + " bytes)";
+			f.delete();
+			log.d("File compressed: " + result);
+		} else {
+			log.e("File could not be compressed: " + source);
 		}
 	}
 
@@ -339,7 +383,7 @@ public class FileOps {
 	 */
 	public static boolean compressFile(String source, String destination) {
 		int length, errorCount = 0;
-		byte[] buffer = new byte[1024];
+		byte[] buffer = new byte[BUFFER_SIZE];
 		FileInputStream in = null;
 		GZIPOutputStream out = null;
 
@@ -347,7 +391,7 @@ public class FileOps {
 			return false;
 
 		try {
-			out = new GZIPOutputStream(new FileOutputStream(destination));
+			out = new GZIPOutputStream(new FileOutputStream(destination), BUFFER_SIZE);
 			in = new FileInputStream(source);
 
 			while ((length = in.read(buffer)) != -1)
@@ -390,12 +434,14 @@ public class FileOps {
 		}
 	}
 
+	/**
+	 * Compress the files of a folder in a zip file, see ParallelZip
+	 * @param pathToCompress - path of the folder to compress
+	 * @param dest - path of the zip file
+	 */
 	public static void compressFolderAndMove(String pathToCompress, String dest) throws IOException {
 		File folder = null;
 		File[] files = null;
-		int length;
-		byte[] buffer = new byte[1024];
-		FileInputStream in = null;
 		OutputStream os;
 
 		if (pathToCompress == null || pathToCompress.isEmpty())
@@ -410,28 +456,25 @@ public class FileOps {
 		if (files == null)
 			return;
 
+		List<File> zipFiles = new ArrayList<File>();
+		for (File f: files) {
+			if (f.isFile() && f.canRead())
+				zipFiles.add(f);
+		}
+
 		try {
 			os = new FileOutputStream(dest);
 		} catch (FileNotFoundException e) {
 			log.e("Error on output stream path: " + e.getMessage());
 			return;
 		}
-		ZipOutputStream zos = new ZipOutputStream(new BufferedOutputStream(os));
+		OutputStream out = new BufferedOutputStream(os, BUFFER_SIZE);
 		try {
-			for (File f: files) {
-				if (!f.isFile() || !f.canRead())
-					continue;
-				ZipEntry entry = new ZipEntry(f.getName());
-				zos.putNextEntry(entry);
-				in = new FileInputStream(f);
-				while ((length = in.read(buffer)) > 0)
-					zos.write(buffer, 0, length);
-				in.close();
-				zos.closeEntry();
-				log.e("File compressed: " + f.getName());
-			}
+			long size = new ParallelZip().write(zipFiles, out);
+			log.d("Folder " + pathToCompress + " compressed: " + zipFiles.size()
+				+ " files, " + size + " bytes");
 		} finally {
-			zos.close();
+			out.close();
 		}
 	}
 }
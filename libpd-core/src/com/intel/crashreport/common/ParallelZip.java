@@ -0,0 +1,654 @@
+/* Copyright (C) 2019 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intel.phonedoctor.utils;
+
+import android.os.Process;
+
+import com.intel.crashreport.common.IEventLog;
+import com.intel.crashreport.core.Logger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Zip writer compressing several entries at once.
+ *
+ * Files are cut in chunks deflated by a pool of threads, each chunk being
+ * primed with the end of the previous one and closed by a sync flush so
+ * that the chunks of a file form one deflate stream. Chunks are written in
+ * the zip in the order of the input files as soon as they are ready, the
+ * entry sizes and CRC32 following the data in a data descriptor : only a
+ * few chunks are held in memory, whatever the size of the files.
+ * The compression level is chosen per file extension : already compressed
+ * files (.gz, .tar.gz coredumps...) are stored as is, and copied from the
+ * disk to the zip when written.
+ * The threads of the pool run at the priority of the thread writing the
+ * zip, so that a zip built in background doesn't compete with the UI.
+ */
+public class ParallelZip {
+	/** Level storing files without compression */
+	public static final int STORE = Deflater.NO_COMPRESSION;
+
+	private static final int MAX_THREADS = 4;
+	//chunks compressed ahead of the one being written, per thread
+	private static final int CHUNKS_AHEAD_PER_THREAD = 2;
+	private static final int CHUNK_SIZE = 256 * 1024;
+	//deflate window, size of the dictionary priming a chunk
+	private static final int DICTIONARY_SIZE = 32 * 1024;
+	private static final int BUFFER_SIZE = 64 * 1024;
+	//largest array the VM can allocate
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+	private static final String[] STORED_EXTENSIONS = {
+		".gz", ".tgz", ".zip", ".bz2", ".xz", ".png", ".jpg" };
+
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+	private static final int END_SIGNATURE = 0x06054b50;
+	private static final int DESCRIPTOR_SIGNATURE = 0x08074b50;
+	private static final int VERSION = 20;
+	//entry names are encoded in UTF-8
+	private static final int FLAG_UTF8 = 0x0800;
+	//sizes and CRC32 follow the entry data
+	private static final int FLAG_DATA_DESCRIPTOR = 0x0008;
+	private static final int METHOD_STORED = 0;
+	private static final int METHOD_DEFLATED = 8;
+	private static final long MAX_ZIP_SIZE = 0xFFFFFFFFL;
+	private static final int MAX_ENTRIES = 0xFFFF;
+
+	private static final IEventLog log = Logger.getLog();
+
+	/**
+	 * Notified of each entry written in the zip
+	 */
+	public interface EntryListener {
+		void onEntry(String name, int level, long size, long compressedSize);
+	}
+
+	private final Map<String, Integer> mLevels = new HashMap<String, Integer>();
+	private int mDefaultLevel = Deflater.DEFAULT_COMPRESSION;
+	private int mThreads;
+	private EntryListener mListener = null;
+
+	public ParallelZip() {
+		mThreads = Math.min(Runtime.getRuntime().availableProcessors(), MAX_THREADS);
+		for (String extension : STORED_EXTENSIONS)
+			mLevels.put(extension, STORE);
+	}
+
+	/**
+	 * @param threads maximum number of entries compressed at once
+	 */
+	public ParallelZip setThreads(int threads) {
+		mThreads = Math.max(1, threads);
+		return this;
+	}
+
+	/**
+	 * @param extension file name suffix, e.g. ".txt" or ".tar.gz"
+	 * @param level deflate level of the files ending with extension, or STORE
+	 */
+	public ParallelZip setLevel(String extension, int level) {
+		mLevels.put(extension.toLowerCase(Locale.US), level);
+		return this;
+	}
+
+	/**
+	 * @param listener notified of each entry written, may be null
+	 */
+	public ParallelZip setEntryListener(EntryListener listener) {
+		mListener = listener;
+		return this;
+	}
+
+	/**
+	 * @param level deflate level of the files without a configured extension
+	 */
+	public ParallelZip setDefaultLevel(int level) {
+		mDefaultLevel = level;
+		return this;
+	}
+
+	/**
+	 * @return the level of a file, the one of its longest matching extension
+	 */
+	public int getLevel(String fileName) {
+		String name = fileName.toLowerCase(Locale.US);
+		int level = mDefaultLevel;
+		int matchLength = 0;
+		for (Map.Entry<String, Integer> entry : mLevels.entrySet()) {
+			String extension = entry.getKey();
+			if (extension.length() > matchLength && name.endsWith(extension)) {
+				level = entry.getValue();
+				matchLength = extension.length();
+			}
+		}
+		return level;
+	}
+
+	/**
+	 * Write files in a zip stream, each entry being named after its file.
+	 * The output stream is not closed.
+	 *
+	 * @param files the files to store, their names shall be unique
+	 * @param os the stream receiving the zip
+	 * @return the number of bytes written in os
+	 * @throws IOException if a file can't be read, or if os can't be written
+	 */
+	public long write(List<File> files, OutputStream os) throws IOException {
+		return write(files, null, os);
+	}
+
+	/**
+	 * Write files, then in-memory entries, in a zip stream.
+	 * The output stream is not closed.
+	 *
+	 * @param files the files to store, their names shall be unique
+	 * @param memoryEntries data of small generated entries by name, may be null
+	 * @param os the stream receiving the zip
+	 * @return the number of bytes written in os
+	 * @throws IOException if a file can't be read, or if os can't be written
+	 */
+	public long write(List<File> files, Map<String, byte[]> memoryEntries, OutputStream os) throws IOException {
+		ZipWriter writer = new ZipWriter(os, mListener);
+		writeFiles(files, writer);
+		if (memoryEntries != null) {
+			for (Map.Entry<String, byte[]> memoryEntry : memoryEntries.entrySet())
+				writer.writeEntry(compress(memoryEntry.getKey(), memoryEntry.getValue()));
+		}
+		return writer.finish();
+	}
+
+	private void writeFiles(List<File> files, ZipWriter writer) throws IOException {
+		LinkedList<Chunk> chunks = new LinkedList<Chunk>();
+		for (File file : files)
+			addChunks(file, chunks);
+		int threads = Math.min(mThreads, chunks.size());
+		if (threads <= 1) {
+			while (!chunks.isEmpty())
+				writer.writeChunk(compress(chunks.removeFirst()));
+			return;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads,
+				new WorkerFactory(Process.getThreadPriority(Process.myTid())));
+		LinkedList<Future<Chunk>> pending = new LinkedList<Future<Chunk>>();
+		try {
+			while (!chunks.isEmpty() || !pending.isEmpty()) {
+				while (!chunks.isEmpty() && pending.size() < threads * CHUNKS_AHEAD_PER_THREAD) {
+					final Chunk chunk = chunks.removeFirst();
+					pending.add(executor.submit(new Callable<Chunk>() {
+						public Chunk call() throws IOException {
+							return compress(chunk);
+						}
+					}));
+				}
+				writer.writeChunk(getChunk(pending.removeFirst()));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Creates the threads of the pool with a given priority
+	 */
+	private static class WorkerFactory implements ThreadFactory {
+		private final int mPriority;
+
+		WorkerFactory(int priority) {
+			mPriority = priority;
+		}
+
+		public Thread newThread(final Runnable runnable) {
+			return new Thread(new Runnable() {
+				public void run() {
+					Process.setThreadPriority(mPriority);
+					runnable.run();
+				}
+			}, "ParallelZip");
+		}
+	}
+
+	/**
+	 * Cut a file in chunks, a stored file being a single chunk
+	 */
+	private void addChunks(File file, List<Chunk> chunks) {
+		Entry entry = new Entry(file, getLevel(file.getName()));
+		long length = file.length();
+		if (entry.method == METHOD_STORED) {
+			chunks.add(new Chunk(entry, 0, 0, true));
+			return;
+		}
+		long offset = 0;
+		do {
+			int chunkLength = (int)Math.min(CHUNK_SIZE, length - offset);
+			chunks.add(new Chunk(entry, offset, chunkLength, offset + chunkLength >= length));
+			offset += chunkLength;
+		} while (offset < length);
+	}
+
+	private static Chunk getChunk(Future<Chunk> future) throws IOException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException)e.getCause();
+			throw new IOException("Compression failed: " + e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Compression interrupted");
+		}
+	}
+
+	/**
+	 * Read and deflate a chunk, or only compute the CRC32 of a stored file
+	 */
+	private Chunk compress(Chunk chunk) throws IOException {
+		Entry entry = chunk.entry;
+		if (entry.method == METHOD_STORED) {
+			checksum(entry);
+			return chunk;
+		}
+		int dictionaryLength = (int)Math.min(DICTIONARY_SIZE, chunk.offset);
+		byte data[] = new byte[dictionaryLength + chunk.length];
+		int count = 0;
+		RandomAccessFile in = new RandomAccessFile(entry.file, "r");
+		try {
+			in.seek(chunk.offset - dictionaryLength);
+			int read;
+			while (count < data.length && (read = in.read(data, count, data.length - count)) != -1)
+				count += read;
+		} finally {
+			in.close();
+		}
+		if (count < dictionaryLength)
+			throw new IOException(entry.name + " truncated while compressed");
+
+		Deflater deflater = new Deflater(entry.level, true);
+		DeflatedData compressed = new DeflatedData(chunk.length / 2 + 1024);
+		try {
+			if (dictionaryLength > 0)
+				deflater.setDictionary(data, 0, dictionaryLength);
+			deflater.setInput(data, dictionaryLength, count - dictionaryLength);
+			if (chunk.last) {
+				deflater.finish();
+				while (!deflater.finished())
+					compressed.deflate(deflater, Deflater.NO_FLUSH);
+			} else {
+				//a sync flush ends the chunk on a byte boundary
+				while (!compressed.deflate(deflater, Deflater.SYNC_FLUSH));
+			}
+		} finally {
+			deflater.end();
+		}
+		chunk.raw = data;
+		chunk.rawOffset = dictionaryLength;
+		chunk.rawCount = count - dictionaryLength;
+		chunk.data = compressed.mData;
+		chunk.dataCount = compressed.mCount;
+		return chunk;
+	}
+
+	/**
+	 * Compute the size and CRC32 of a stored file
+	 */
+	private static void checksum(Entry entry) throws IOException {
+		CRC32 crc = new CRC32();
+		byte data[] = new byte[BUFFER_SIZE];
+		FileInputStream in = new FileInputStream(entry.file);
+		try {
+			int count;
+			while ((count = in.read(data)) != -1) {
+				crc.update(data, 0, count);
+				entry.size += count;
+			}
+		} finally {
+			in.close();
+		}
+		entry.crc = crc.getValue();
+		entry.compressedSize = entry.size;
+	}
+
+	/**
+	 * Compress an in-memory entry
+	 */
+	private Entry compress(String name, byte data[]) throws IOException {
+		int level = getLevel(name);
+		Entry entry = new Entry(null, name, level, System.currentTimeMillis());
+		CRC32 crc = new CRC32();
+		crc.update(data, 0, data.length);
+		entry.crc = crc.getValue();
+		entry.size = data.length;
+		if (entry.method == METHOD_DEFLATED) {
+			Deflater deflater = new Deflater(level, true);
+			DeflatedData compressed = new DeflatedData(data.length + 64);
+			deflater.setInput(data, 0, data.length);
+			deflater.finish();
+			while (!deflater.finished())
+				compressed.deflate(deflater, Deflater.NO_FLUSH);
+			deflater.end();
+			entry.data = compressed.mData;
+			entry.compressedSize = compressed.mCount;
+		} else {
+			entry.data = data;
+			entry.compressedSize = data.length;
+		}
+		return entry;
+	}
+
+	private static class Entry {
+		//null for an in-memory entry
+		final File file;
+		final String name;
+		final int level;
+		final int method;
+		final long time;
+		//sizes and CRC32 written after the data
+		final boolean descriptor;
+		long crc;
+		long size;
+		long compressedSize;
+		//entry data as written in the zip, null for a file
+		byte data[];
+		long offset;
+
+		Entry(File file, int level) {
+			this(file, file.getName(), level, file.lastModified());
+		}
+
+		Entry(File file, String name, int level, long time) {
+			this.file = file;
+			this.name = name;
+			this.level = level;
+			this.method = (level == STORE) ? METHOD_STORED : METHOD_DEFLATED;
+			this.time = time;
+			this.descriptor = (file != null) && (method == METHOD_DEFLATED);
+		}
+	}
+
+	/**
+	 * Part of a file compressed at once
+	 */
+	private static class Chunk {
+		final Entry entry;
+		final long offset;
+		final int length;
+		//the chunk ending the entry
+		final boolean last;
+		//file data read, after the dictionary
+		byte raw[];
+		int rawOffset;
+		int rawCount;
+		byte data[];
+		int dataCount;
+
+		Chunk(Entry entry, long offset, int length, boolean last) {
+			this.entry = entry;
+			this.offset = offset;
+			this.length = length;
+			this.last = last;
+		}
+	}
+
+	/**
+	 * Growable buffer receiving deflated data
+	 */
+	private static class DeflatedData {
+		byte mData[];
+		int mCount = 0;
+
+		DeflatedData(int capacity) {
+			mData = new byte[Math.max(capacity, 1024)];
+		}
+
+		/**
+		 * @return true if the deflater output is flushed, i.e. the buffer was not filled
+		 */
+		boolean deflate(Deflater deflater, int flush) throws IOException {
+			if (mCount == mData.length) {
+				if (mData.length >= MAX_ARRAY_SIZE)
+					throw new IOException("Entry too big to be compressed in memory");
+				byte grown[] = new byte[(int)Math.min((long)mData.length * 2, MAX_ARRAY_SIZE)];
+				System.arraycopy(mData, 0, grown, 0, mCount);
+				mData = grown;
+			}
+			mCount += deflater.deflate(mData, mCount, mData.length - mCount, flush);
+			return mCount < mData.length;
+		}
+	}
+
+	/**
+	 * Writes the zip format : local headers and data of the entries, then
+	 * the central directory
+	 */
+	private static class ZipWriter {
+		private final OutputStream mOut;
+		private final EntryListener mListener;
+		private final List<Entry> mEntries = new ArrayList<Entry>();
+		private final byte mHeader[] = new byte[64];
+		private final byte mData[] = new byte[BUFFER_SIZE];
+		private long mWritten = 0;
+		//deflated file being written, see writeChunk()
+		private Entry mCurrent = null;
+		private final CRC32 mCrc = new CRC32();
+
+		ZipWriter(OutputStream out, EntryListener listener) {
+			mOut = out;
+			mListener = listener;
+		}
+
+		/**
+		 * Write a chunk, chunks of a file being written in order
+		 */
+		void writeChunk(Chunk chunk) throws IOException {
+			Entry entry = chunk.entry;
+			if (!entry.descriptor) {
+				writeEntry(entry);
+				return;
+			}
+			if (chunk.offset == 0) {
+				//sizes and CRC32 are not known yet
+				writeLocalHeader(entry);
+				mCurrent = entry;
+				mCrc.reset();
+			}
+			mCrc.update(chunk.raw, chunk.rawOffset, chunk.rawCount);
+			entry.size += chunk.rawCount;
+			write(chunk.data, 0, chunk.dataCount);
+			entry.compressedSize += chunk.dataCount;
+			//chunk data is no more needed
+			chunk.raw = null;
+			chunk.data = null;
+			if (mWritten > MAX_ZIP_SIZE)
+				throw new IOException("Zip too big");
+			if (!chunk.last)
+				return;
+			entry.crc = mCrc.getValue();
+			mCurrent = null;
+			if (entry.size > MAX_ZIP_SIZE)
+				throw new IOException(entry.name + " too big for zip");
+			int length = 0;
+			length = putInt(mHeader, length, DESCRIPTOR_SIGNATURE);
+			length = putInt(mHeader, length, (int)entry.crc);
+			length = putInt(mHeader, length, (int)entry.compressedSize);
+			length = putInt(mHeader, length, (int)entry.size);
+			write(mHeader, 0, length);
+			addEntry(entry);
+		}
+
+		void writeEntry(Entry entry) throws IOException {
+			writeLocalHeader(entry);
+			if (entry.data != null) {
+				write(entry.data, 0, (int)entry.compressedSize);
+				//deflated data is no more needed
+				entry.data = null;
+			} else {
+				copy(entry);
+			}
+			if (mWritten > MAX_ZIP_SIZE)
+				throw new IOException("Zip too big");
+			addEntry(entry);
+		}
+
+		private void writeLocalHeader(Entry entry) throws IOException {
+			if (mEntries.size() >= MAX_ENTRIES)
+				throw new IOException("Too many zip entries");
+			entry.offset = mWritten;
+			byte name[] = entry.name.getBytes("UTF-8");
+			int length = 0;
+			length = putInt(mHeader, length, LOCAL_HEADER_SIGNATURE);
+			length = putShort(mHeader, length, VERSION);
+			length = putEntryInfo(mHeader, length, entry, name);
+			length = putShort(mHeader, length, 0); //extra field length
+			write(mHeader, 0, length);
+			write(name, 0, name.length);
+		}
+
+		private void addEntry(Entry entry) {
+			mEntries.add(entry);
+			log.d("Compress Added: " + entry.name + " (" + entry.size + " -> "
+					+ entry.compressedSize + " bytes)");
+			if (mListener != null)
+				mListener.onEntry(entry.name, entry.level, entry.size, entry.compressedSize);
+		}
+
+		long finish() throws IOException {
+			if (mCurrent != null)
+				throw new IOException(mCurrent.name + " not entirely written");
+			long centralOffset = mWritten;
+			for (Entry entry : mEntries) {
+				byte name[] = entry.name.getBytes("UTF-8");
+				int length = 0;
+				length = putInt(mHeader, length, CENTRAL_HEADER_SIGNATURE);
+				length = putShort(mHeader, length, VERSION); //version made by
+				length = putShort(mHeader, length, VERSION); //version needed
+				length = putEntryInfo(mHeader, length, entry, name);
+				length = putShort(mHeader, length, 0); //extra field length
+				length = putShort(mHeader, length, 0); //comment length
+				length = putShort(mHeader, length, 0); //disk number
+				length = putShort(mHeader, length, 0); //internal attributes
+				length = putInt(mHeader, length, 0); //external attributes
+				length = putInt(mHeader, length, (int)entry.offset);
+				write(mHeader, 0, length);
+				write(name, 0, name.length);
+			}
+			long centralSize = mWritten - centralOffset;
+			int length = 0;
+			length = putInt(mHeader, length, END_SIGNATURE);
+			length = putShort(mHeader, length, 0); //disk number
+			length = putShort(mHeader, length, 0); //central directory disk
+			length = putShort(mHeader, length, mEntries.size());
+			length = putShort(mHeader, length, mEntries.size());
+			length = putInt(mHeader, length, (int)centralSize);
+			length = putInt(mHeader, length, (int)centralOffset);
+			length = putShort(mHeader, length, 0); //comment length
+			write(mHeader, 0, length);
+			if (mWritten > MAX_ZIP_SIZE)
+				throw new IOException("Zip too big");
+			mOut.flush();
+			return mWritten;
+		}
+
+		/**
+		 * Copy a stored file, it shall not have changed since its CRC32 was computed
+		 */
+		private void copy(Entry entry) throws IOException {
+			FileInputStream in = new FileInputStream(entry.file);
+			try {
+				long remaining = entry.size;
+				int count;
+				while (remaining > 0 && (count = in.read(mData, 0, (int)Math.min(mData.length, remaining))) != -1) {
+					write(mData, 0, count);
+					remaining -= count;
+				}
+				if (remaining > 0)
+					throw new IOException(entry.name + " truncated while compressed");
+			} finally {
+				in.close();
+			}
+		}
+
+		private void write(byte b[], int off, int len) throws IOException {
+			mOut.write(b, off, len);
+			mWritten += len;
+		}
+
+		/**
+		 * Put the fields shared by the local and central headers, from the
+		 * general purpose flags to the extra field length excluded
+		 */
+		private static int putEntryInfo(byte b[], int off, Entry entry, byte name[]) throws IOException {
+			if (entry.size > MAX_ZIP_SIZE || entry.compressedSize > MAX_ZIP_SIZE)
+				throw new IOException(entry.name + " too big for zip");
+			off = putShort(b, off, entry.descriptor ? FLAG_UTF8 | FLAG_DATA_DESCRIPTOR : FLAG_UTF8);
+			off = putShort(b, off, entry.method);
+			off = putInt(b, off, toDosTime(entry.time));
+			off = putInt(b, off, (int)entry.crc);
+			off = putInt(b, off, (int)entry.compressedSize);
+			off = putInt(b, off, (int)entry.size);
+			off = putShort(b, off, name.length);
+			return off;
+		}
+
+		private static int putShort(byte b[], int off, int value) {
+			b[off] = (byte)value;
+			b[off + 1] = (byte)(value >> 8);
+			return off + 2;
+		}
+
+		private static int putInt(byte b[], int off, int value) {
+			off = putShort(b, off, value);
+			return putShort(b, off, value >> 16);
+		}
+
+		/**
+		 * @return the MS-DOS time and date of a time in ms since epoch, in local time
+		 */
+		private static int toDosTime(long time) {
+			Calendar calendar = Calendar.getInstance();
+			calendar.setTimeInMillis(time);
+			int year = calendar.get(Calendar.YEAR);
+			if (year < 1980)
+				return (1 << 21) | (1 << 16);
+			return (year - 1980) << 25
+					| (calendar.get(Calendar.MONTH) + 1) << 21
+					| calendar.get(Calendar.DAY_OF_MONTH) << 16
+					| calendar.get(Calendar.HOUR_OF_DAY) << 11
+					| calendar.get(Calendar.MINUTE) << 5
+					| calendar.get(Calendar.SECOND) >> 1;
+		}
+	}
+}
@@ -21,6 +21,8 @@ import java.io.FileNotFoundException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Scanner;
 import java.util.TimeZone;
 
@@ -60,6 +62,12 @@ public class GeneralEvent {
 	protected final static SimpleDateFormat EVENT_DF = new SimpleDateFormat("yyyy-MM-dd/HH:mm:ss");
 	protected final static SimpleDateFormat EVENT_DF_OLD = new SimpleDateFormat("yy-MM-dd-HH-mm-ss");
 
+	//server beans shared by the events having the same build or device
+	private static final int SERVER_BEAN_CACHE_SIZE = 8;
+	private static final Map<String, com.intel.crashtoolserver.bean.Build> sServerBuilds =
+			newServerBeanCache();
+	private static final Map<String, Device> sServerDevices = newServerBeanCache();
+
 	protected ParsableEvent mParsableEvent;
 	protected String ingredients = "";
 	protected String osBootMode = "";
@@ -474,17 +482,7 @@ public class GeneralEvent {
 			Device device, GeneralBuild altBuild) {
 		com.intel.crashtoolserver.bean.Event retEvent;
 
-		GeneralBuild build = new GeneralBuild(this.getBuildId());
-		if (build.getBuildId().contentEquals("") && altBuild != null)
-				build = altBuild;
-
-		com.intel.crashtoolserver.bean.Build sBuild = build.getBuildForServer();
-		sBuild.setVariant(this.getVariant());
-		sBuild.setIngredientsJson(this.ingredients);
-		// do not use "uniquekey" of crashtool object, it is for internal use only
-		//uniqueKeyComponents should be used
-		sBuild.setUniqueKeyComponents(Utils.parseUniqueKey(this.uniqueKeyComponent));
-		sBuild.setOrganization(com.intel.crashtoolserver.bean.Build.DEFAULT_ORGANIZATION);
+		com.intel.crashtoolserver.bean.Build sBuild = getBuildForServer(altBuild);
 
                 com.intel.crashtoolserver.bean.TestCase tc = null;
 
@@ -505,6 +503,62 @@ public class GeneralEvent {
 		return retEvent;
 	}
 
+	/**
+	 * Returns the build bean of the event, shared with the other events
+	 * having the same build : it must not be modified.
+	 */
+	private com.intel.crashtoolserver.bean.Build getBuildForServer(GeneralBuild altBuild) {
+		String key = this.getBuildId() + '\n' + ((altBuild != null) ? altBuild.toString() : "")
+				+ '\n' + this.getVariant() + '\n' + this.ingredients + '\n' + this.uniqueKeyComponent;
+		synchronized (sServerBuilds) {
+			com.intel.crashtoolserver.bean.Build sBuild = sServerBuilds.get(key);
+			if (sBuild != null)
+				return sBuild;
+
+			GeneralBuild build = new GeneralBuild(this.getBuildId());
+			if (build.getBuildId().contentEquals("") && altBuild != null)
+					build = altBuild;
+
+			sBuild = build.getBuildForServer();
+			sBuild.setVariant(this.getVariant());
+			sBuild.setIngredientsJson(this.ingredients);
+			// do not use "uniquekey" of crashtool object, it is for internal use only
+			//uniqueKeyComponents should be used
+			sBuild.setUniqueKeyComponents(Utils.parseUniqueKey(this.uniqueKeyComponent));
+			sBuild.setOrganization(com.intel.crashtoolserver.bean.Build.DEFAULT_ORGANIZATION);
+			sServerBuilds.put(key, sBuild);
+			return sBuild;
+		}
+	}
+
+	/**
+	 * Returns a device bean shared with the other events having the same
+	 * device : it must not be modified.
+	 */
+	public static Device getDeviceForServer(String deviceId, String imei, String ssn,
+			String gcmToken, String spid) {
+		String key = deviceId + '\n' + imei + '\n' + ssn + '\n' + gcmToken + '\n' + spid;
+		synchronized (sServerDevices) {
+			Device device = sServerDevices.get(key);
+			if (device == null) {
+				device = new Device(deviceId, imei, ssn, gcmToken, spid);
+				sServerDevices.put(key, device);
+			}
+			return device;
+		}
+	}
+
+	private static <V> Map<String, V> newServerBeanCache() {
+		return new LinkedHashMap<String, V>(SERVER_BEAN_CACHE_SIZE, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+				return size() > SERVER_BEAN_CACHE_SIZE;
+			}
+		};
+	}
+
 	public ParsableEvent getParsableEvent(){
 		return mParsableEvent;
 	}
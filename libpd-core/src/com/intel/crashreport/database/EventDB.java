@@ -39,6 +39,10 @@ public class EventDB extends GeneralEventDB{
 
 	private static final int BEGIN_FIBONACCI = 13;
 	private static final int BEGIN_FIBONACCI_BEFORE = 8;
+	//shared by all instances opened on the application database
+	private static final EventIdFilter sBlackEventIds = new EventIdFilter();
+	private static final String BLACK_EVENT_INSERT = insertStatement(DATABASE_BLACK_EVENTS_TABLE,
+			KEY_ID, KEY_REASON, KEY_CRASHDIR, KEY_RAINID);
 
 	public EventDB() {
 		super();
@@ -48,11 +52,10 @@ public class EventDB extends GeneralEventDB{
 		super(ctx);
 	}
 
-	public int getMatchingRainEventsCount(int lastEvent, String signature) {
+	public int getMatchingRainEventsCount(int lastEvent, Selection signature) {
 
 		return getEntriesCount(DATABASE_TABLE,
-				signature + " AND "
-				+ KEY_DATE + " > " + lastEvent);
+				signature.and(KEY_DATE + " > ?", Integer.toString(lastEvent)));
 	}
 
 	/**
@@ -63,24 +66,23 @@ public class EventDB extends GeneralEventDB{
 	 * @return the row ID of the newly inserted row, or -1 if an error occurred
 	 * @throws SQLException
 	 */
-	public long addBlackEvent(GeneralEvent event, String reason, String signature)
+	public long addBlackEvent(GeneralEvent event, String reason, Selection signature)
 			throws SQLException {
-		ContentValues initialValues = new ContentValues();
+		String rainId = null;
 
 		if(reason.equals("RAIN")) {
 			Cursor cursor = getRainEventInfo(signature);
 			if(cursor != null){
-				initialValues.put(KEY_RAINID,
-						cursor.getString(cursor.getColumnIndex(KEY_ID)));
+				rainId = cursor.getString(cursor.getColumnIndex(KEY_ID));
 				cursor.close();
 			}
 		}
 
-		initialValues.put(KEY_ID, event.getEventId());
-		initialValues.put(KEY_REASON, reason);
-		initialValues.put(KEY_CRASHDIR, event.getCrashDir());
-
-		return mDb.insert(DATABASE_BLACK_EVENTS_TABLE, null, initialValues);
+		long ret = executeInsert(bindArgs(getStatement(BLACK_EVENT_INSERT),
+				event.getEventId(), reason, event.getCrashDir(), rainId));
+		if (ret != -1)
+			addToIdFilter(sBlackEventIds, event.getEventId());
+		return ret;
 	}
 
 	public Cursor fetchAllBlackEvents() throws SQLException {
@@ -104,9 +106,14 @@ public class EventDB extends GeneralEventDB{
 		return selectEntries(DATABASE_RAIN_OF_CRASHES_TABLE, rainTableColums, query);
 	}
 
+	public Cursor fetchRainOfCrashesFromQuery(Selection query) throws SQLException {
+		return selectEntries(DATABASE_RAIN_OF_CRASHES_TABLE, rainTableColums, query);
+	}
+
 	public Cursor fetchBlackEventsRain(String rainId) throws SQLException {
-		String query = KEY_RAINID + " = '"+ rainId +"'";
-		return fetchBlackEventsFromQuery(query);
+		return selectEntries(DATABASE_BLACK_EVENTS_TABLE,
+				new String[] {KEY_ID, KEY_REASON, KEY_CRASHDIR},
+				Selection.equal(KEY_RAINID, rainId));
 	}
 
 	/**
@@ -120,7 +127,8 @@ public class EventDB extends GeneralEventDB{
 	public Cursor fetchLastRain(Date date, int maxDuration) throws SQLException {
 		int mDate = Utils.convertDateForDb(date);
 		mDate -= maxDuration;
-		return fetchRainOfCrashesFromQuery(KEY_DATE + " < " + mDate);
+		return fetchRainOfCrashesFromQuery(new Selection(KEY_DATE + " < ?",
+				Integer.toString(mDate)));
 	}
 
 	/**
@@ -146,7 +154,7 @@ public class EventDB extends GeneralEventDB{
 		return mDb.insert(DATABASE_RAIN_OF_CRASHES_TABLE, null, initialValues);
 	}
 
-	public Cursor getRainEventInfo(String signature) throws SQLException {
+	public Cursor getRainEventInfo(Selection signature) throws SQLException {
 		return fetchRainOfCrashesFromQuery(signature);
 	}
 
@@ -162,7 +170,7 @@ public class EventDB extends GeneralEventDB{
 		return cursor.getInt(cursor.getColumnIndex(KEY_OCCURRENCES));
 	}
 
-	public int getRainOccurances(String signature) {
+	public int getRainOccurances(Selection signature) {
 		Cursor cursor = getRainEventInfo(signature);
 		int occurances = 0;
 		if (cursor != null) {
@@ -172,25 +180,25 @@ public class EventDB extends GeneralEventDB{
 		return occurances;
 	}
 
-	public boolean resetRainEvent(String signature, Date date)
+	public boolean resetRainEvent(Selection signature, Date date)
 			throws SQLException {
 		ContentValues args = new ContentValues();
 		args.put(KEY_OCCURRENCES, 1);
 		args.put(KEY_DATE, Utils.convertDateForDb(date));
 		args.put(KEY_LAST_FIBONACCI, BEGIN_FIBONACCI_BEFORE);
 		args.put(KEY_NEXT_FIBONACCI, BEGIN_FIBONACCI);
-		return mDb.update(DATABASE_RAIN_OF_CRASHES_TABLE, args, signature, null) > 0;
+		return updateEntries(DATABASE_RAIN_OF_CRASHES_TABLE, args, signature) > 0;
 	}
 
-	public boolean updateRainEvent(String signature, Date date, int occurences) {
+	public boolean updateRainEvent(Selection signature, Date date, int occurences) {
 		ContentValues args = new ContentValues();
 		args.put(KEY_DATE, Utils.convertDateForDb(date));
 		args.put(KEY_OCCURRENCES, occurences);
 
-		return mDb.update(DATABASE_RAIN_OF_CRASHES_TABLE, args, signature, null) > 0;
+		return updateEntries(DATABASE_RAIN_OF_CRASHES_TABLE, args, signature) > 0;
 	}
 
-	public boolean updateRainEvent(String signature, Date date, int occurences,
+	public boolean updateRainEvent(Selection signature, Date date, int occurences,
 			int nextFibo, int lastFibo) {
 		ContentValues args = new ContentValues();
 		args.put(KEY_DATE, Utils.convertDateForDb(date) );
@@ -198,16 +206,15 @@ public class EventDB extends GeneralEventDB{
 		args.put(KEY_NEXT_FIBONACCI, nextFibo);
 		args.put(KEY_LAST_FIBONACCI, lastFibo);
 
-		return mDb.update(DATABASE_RAIN_OF_CRASHES_TABLE, args, signature, null) > 0;
+		return updateEntries(DATABASE_RAIN_OF_CRASHES_TABLE, args, signature) > 0;
 	}
 
-	public boolean deleteRainEvent(String signature) {
-		return mDb.delete(DATABASE_RAIN_OF_CRASHES_TABLE, signature, null) > 0;
+	public boolean deleteRainEvent(Selection signature) {
+		return deleteEntries(DATABASE_RAIN_OF_CRASHES_TABLE, signature) > 0;
 	}
 
-	public boolean isRainEventExist(String signature) {
-		return ((getEntriesCount(DATABASE_RAIN_OF_CRASHES_TABLE,
-				signature) > 0) ? true : false);
+	public boolean isRainEventExist(Selection signature) {
+		return hasEntries(DATABASE_RAIN_OF_CRASHES_TABLE, signature);
 	}
 
 	/**
@@ -218,8 +225,10 @@ public class EventDB extends GeneralEventDB{
 	 * @throws SQLException
 	 */
 	public boolean isEventInBlackList(String eventId) throws SQLException{
-		return ((getEntriesCount(DATABASE_BLACK_EVENTS_TABLE,
-				KEY_ID + " = '" + eventId + "'") > 0) ? true : false);
+		EventIdFilter filter = getIdFilter(sBlackEventIds, DATABASE_BLACK_EVENTS_TABLE);
+		if (filter != null && !filter.mightContain(eventId))
+			return false;
+		return hasEntries(DATABASE_BLACK_EVENTS_TABLE, Selection.equal(KEY_ID, eventId));
 	}
 
 	/**
@@ -231,7 +240,7 @@ public class EventDB extends GeneralEventDB{
 	 * @return true only if the event belongs to the current rain with matching signature.
 	 * @throws SQLException
 	 */
-	public boolean isInTheCurrentRain(GeneralEvent event, String signature, int maxDelay)
+	public boolean isInTheCurrentRain(GeneralEvent event, Selection signature, int maxDelay)
 			throws SQLException {
 		Date date = event.getDate();
 
@@ -260,7 +269,7 @@ public class EventDB extends GeneralEventDB{
 	 * the input signature. 0 if no rain matching the input signature exist.
 	 * @throws SQLException
 	 */
-	public int getLastCrashDate(String signature) throws SQLException {
+	public int getLastCrashDate(Selection signature) throws SQLException {
 
 		Cursor cursor = getRainEventInfo(signature);
 		if (cursor != null) {
@@ -276,7 +285,7 @@ public class EventDB extends GeneralEventDB{
 		int ret;
 		Cursor cursor = selectEntries(DATABASE_TABLE,
 				new String[] {KEY_UPLOADLOG},
-				KEY_CRASHDIR + " = '" + sPath + "'");
+				Selection.equal(KEY_CRASHDIR, sPath));
 
 		if (cursor == null)
 			return -1;
@@ -455,13 +464,13 @@ public class EventDB extends GeneralEventDB{
 		if (update_log)
 			args.put(KEY_UPLOADLOG, upload_log);
 
-		return mDb.update(DATABASE_TABLE, args, KEY_ROWID + "='" + row + "'", null) > 0;
+		return updateEntries(DATABASE_TABLE, args, Selection.equal(KEY_ROWID, row)) > 0;
 	}
 
 	public boolean cleanCrashDirByID(int row){
 		ContentValues args = new ContentValues();
 		args.put(KEY_CRASHDIR, "");
-		return mDb.update(DATABASE_TABLE, args, KEY_ROWID + "='" + row + "'", null) > 0;
+		return updateEntries(DATABASE_TABLE, args, Selection.equal(KEY_ROWID, row)) > 0;
 	}
 
 	public boolean cleanCrashDirByTime(String sTime){
@@ -480,7 +489,8 @@ public class EventDB extends GeneralEventDB{
 		Cursor cursor;
 		String[] sResultLogsDir = new String[0];
 
-		cursor = selectEntries(DATABASE_TABLE, new String[] {KEY_CRASHDIR}, where);
+		cursor = selectDistinctEntries(DATABASE_TABLE, new String[] {KEY_CRASHDIR},
+				new Selection(where));
 		if (cursor != null) {
 			int i = 0;
 			sResultLogsDir = new String[cursor.getCount()];
@@ -0,0 +1,144 @@
+/* Copyright (C) 2019 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intel.crashreport.database;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Bloom filter of event IDs stored in a table.
+ *
+ * A negative answer is definitive, so the table does not need to be
+ * queried. A positive answer must be confirmed by a query.
+ * IDs are never removed : deleted rows only make the filter less selective.
+ *
+ * The filter is loaded from the committed rows, so the IDs inserted by a
+ * transaction not committed yet are kept pending across a load, until
+ * commit().
+ */
+final class EventIdFilter {
+
+	private static final int BITS_PER_ID = 10;
+	private static final int HASH_COUNT = 5;
+	private static final int MIN_CAPACITY = 1024;
+
+	private long[] mBits;
+	private int mBitCount;
+	private int mCapacity;
+	private int mCount;
+	private final Set<String> mPending = new HashSet<String>();
+
+	/**
+	 * @return true if the filter has to be (re)loaded from the table
+	 */
+	synchronized boolean needsLoad() {
+		return mBits == null;
+	}
+
+	/**
+	 * Empties the filter and sizes it for aExpectedCount IDs.
+	 */
+	synchronized void reset(int aExpectedCount) {
+		mCapacity = Math.max(MIN_CAPACITY, aExpectedCount * 2);
+		mBitCount = mCapacity * BITS_PER_ID;
+		mBits = new long[(mBitCount + 63) / 64];
+		mCount = 0;
+		for (String aId : mPending) {
+			add(aId);
+		}
+	}
+
+	/**
+	 * Drops the filter content : it will be loaded again on next use.
+	 */
+	synchronized void invalidate() {
+		mBits = null;
+	}
+
+	synchronized void add(String aId) {
+		if (mBits == null || aId == null) {
+			return;
+		}
+		if (mCount >= mCapacity) {
+			//too many IDs for the size : false positive rate would increase
+			mBits = null;
+			return;
+		}
+		int iHash1 = aId.hashCode();
+		int iHash2 = secondHash(aId);
+		for (int i = 0; i < HASH_COUNT; i++) {
+			int iBit = bitIndex(iHash1 + i * iHash2);
+			mBits[iBit >>> 6] |= 1L << iBit;
+		}
+		mCount++;
+	}
+
+	/**
+	 * Adds aId, inserted by a transaction not committed yet
+	 */
+	synchronized void addPending(String aId) {
+		if (aId == null) {
+			return;
+		}
+		mPending.add(aId);
+		add(aId);
+	}
+
+	/**
+	 * Called once the transaction which inserted aIds is committed : a load
+	 * now reads them from the table.
+	 */
+	synchronized void commit(Collection<String> aIds) {
+		mPending.removeAll(aIds);
+	}
+
+	/**
+	 * @return false if aId is surely not in the table, true if it may be
+	 * or if the filter is not loaded
+	 */
+	synchronized boolean mightContain(String aId) {
+		if (mBits == null || aId == null) {
+			return true;
+		}
+		int iHash1 = aId.hashCode();
+		int iHash2 = secondHash(aId);
+		for (int i = 0; i < HASH_COUNT; i++) {
+			int iBit = bitIndex(iHash1 + i * iHash2);
+			if ((mBits[iBit >>> 6] & (1L << iBit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int bitIndex(int aHash) {
+		return (aHash & Integer.MAX_VALUE) % mBitCount;
+	}
+
+	//FNV-1a, independent from String.hashCode()
+	private static int secondHash(String aId) {
+		int iHash = 0x811c9dc5;
+		for (int i = 0; i < aId.length(); i++) {
+			iHash ^= aId.charAt(i);
+			iHash *= 0x01000193;
+		}
+		//odd value : successive probes never collapse on the same bit
+		return iHash | 1;
+	}
+}
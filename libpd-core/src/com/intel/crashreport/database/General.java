@@ -24,12 +24,16 @@ import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteException;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 
 import com.intel.crashreport.common.IEventLog;
 import com.intel.crashreport.core.Logger;
 
 import java.io.Closeable;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class General implements Closeable {
 
@@ -39,14 +43,28 @@ public class General implements Closeable {
 	protected String mDbName;
 	protected int mDbVersion;
 	protected List<Table> mTables;
+	protected List<Migration> mMigrations;
 
 	protected Context mCtx;
 
+	//statements compiled on mDb, by SQL : their SQL only binds values, so
+	//that they are a few
+	private final Map<String, SQLiteStatement> mStatements =
+			new HashMap<String, SQLiteStatement>();
+	//unit of work, see beginBatch()
+	private boolean mInBatch = false;
+
 	public General(Context ctx, String dbName, int dbVersion, List<Table> tables) {
+		this(ctx, dbName, dbVersion, tables, Collections.<Migration>emptyList());
+	}
+
+	public General(Context ctx, String dbName, int dbVersion, List<Table> tables,
+			List<Migration> migrations) {
 		this.mCtx = ctx;
 		this.mDbName = dbName;
 		this.mDbVersion = dbVersion;
 		this.mTables = tables;
+		this.mMigrations = migrations;
 	}
 
 	public General() { }
@@ -60,7 +78,7 @@ public class General implements Closeable {
 	}
 
 	public General open() throws SQLException, SQLiteException {
-		mDbHelper = new DatabaseHelper(mCtx, mDbName, mDbVersion, mTables);
+		mDbHelper = new DatabaseHelper(mCtx, mDbName, mDbVersion, mTables, mMigrations);
 		mDb = mDbHelper.getWritableDatabase();
 		return this;
 	}
@@ -80,13 +98,115 @@ public class General implements Closeable {
 		return this;
 	}
 
+	/**
+	 * Commits the current unit of work, if any, and closes the database
+	 */
 	public void close() {
-		if (mDb != null)
+		if (mDb == null)
+			return;
+		try {
+			endBatch();
+		} finally {
+			for (SQLiteStatement statement : mStatements.values())
+				statement.close();
+			mStatements.clear();
 			mDb.close();
+		}
+	}
+
+	/**
+	 * Starts a unit of work : the following writes are committed together
+	 * by endBatch(), instead of one transaction, i.e. one sync of the
+	 * database file, per statement. Other connections can read the database
+	 * meanwhile, but their writes wait for the commit : a unit of work only
+	 * holds writes ready to be done, not the work preparing them.
+	 * The unit of work is ended by endBatch() or close().
+	 */
+	public void beginBatch() {
+		if (isInBatch())
+			return;
+		mDb.beginTransactionNonExclusive();
+		mInBatch = true;
+	}
+
+	public boolean isInBatch() {
+		return mInBatch;
+	}
+
+	/**
+	 * Commits the writes of the unit of work and ends it
+	 */
+	public void endBatch() {
+		if (!isInBatch())
+			return;
+		mInBatch = false;
+		commitBatch();
+	}
+
+	private void commitBatch() {
+		mDb.setTransactionSuccessful();
+		mDb.endTransaction();
+		onBatchCommit();
+	}
+
+	/**
+	 * Called when the writes of the unit of work are committed, to publish
+	 * them and drop what was cached for the transaction
+	 */
+	protected void onBatchCommit() { }
+
+	/**
+	 * @return the statement compiled for sql on this connection, kept until
+	 * the database is closed, with no argument bound
+	 */
+	protected SQLiteStatement getStatement(String sql) {
+		SQLiteStatement statement = mStatements.get(sql);
+		if (statement == null) {
+			statement = mDb.compileStatement(sql);
+			mStatements.put(sql, statement);
+		} else
+			statement.clearBindings();
+		return statement;
+	}
+
+	/**
+	 * Inserts a row like SQLiteDatabase.insert()
+	 *
+	 * @return the row ID of the inserted row, or -1 if an error occurred
+	 */
+	protected static long executeInsert(SQLiteStatement statement) {
+		try {
+			return statement.executeInsert();
+		} catch (SQLException e) {
+			log.e("Error inserting " + statement, e);
+			return -1;
+		}
+	}
+
+	/**
+	 * @return the SQL inserting a row with the columns values bound as arguments
+	 */
+	protected static String insertStatement(String table, String... columns) {
+		StringBuilder sql = new StringBuilder("insert into " + table + " (");
+		StringBuilder values = new StringBuilder(") values (");
+		for (int i = 0; i < columns.length; i++) {
+			sql.append((i > 0) ? ", " : "").append(columns[i]);
+			values.append((i > 0) ? ", ?" : "?");
+		}
+		return sql.append(values).append(")").toString();
+	}
+
+	/**
+	 * Binds args to statement, from index 1. A null arg is bound as NULL.
+	 */
+	protected static SQLiteStatement bindArgs(SQLiteStatement statement, Object... args) {
+		for (int i = 0; i < args.length; i++)
+			DatabaseUtils.bindObjectToProgram(statement, i + 1, args[i]);
+		return statement;
 	}
 
 	public Cursor selectEntries(String table, String[] fields) {
-		return selectEntries(table, fields, null, null, false, null);
+		return selectEntries(table, fields, (String) null, null, false, null);
 	}
 
 	public Cursor selectEntries(String table, String[] fields, String where) {
@@ -104,10 +224,38 @@ public class General implements Closeable {
 
 	public Cursor selectEntries(String table, String[] fields, String where, String orderBy,
 			boolean orderDesc, String limit) {
+		return selectEntries(table, fields, new Selection(where), orderBy, orderDesc, limit);
+	}
+
+	public Cursor selectEntries(String table, String[] fields, Selection selection) {
+		return selectEntries(table, fields, selection, null, false, null);
+	}
+
+	/**
+	 * @return a cursor set on the first selected row, null if none
+	 */
+	public Cursor selectEntries(String table, String[] fields, Selection selection,
+			String orderBy, boolean orderDesc, String limit) {
+		return selectEntries(false, table, fields, selection, orderBy, orderDesc, limit);
+	}
+
+	/**
+	 * Like selectEntries(), but without the duplicated rows : only worth
+	 * its sort when the selected columns may repeat.
+	 *
+	 * @return a cursor set on the first selected row, null if none
+	 */
+	public Cursor selectDistinctEntries(String table, String[] fields, Selection selection) {
+		return selectEntries(true, table, fields, selection, null, false, null);
+	}
+
+	private Cursor selectEntries(boolean distinct, String table, String[] fields,
+			Selection selection, String orderBy, boolean orderDesc, String limit) {
 		Cursor cursor;
 
 		if (orderBy != null) orderBy += (orderDesc) ? " DESC" : " ASC";
-		cursor = mDb.query(true, table, fields, where, null, null, null, orderBy, limit);
+		cursor = mDb.query(distinct, table, fields, selection.getWhere(), selection.getArgs(),
+				null, null, orderBy, limit);
 		if (cursor != null && !cursor.moveToFirst()) {
 			cursor.close();
 			cursor = null;
@@ -115,8 +263,63 @@ public class General implements Closeable {
 		return cursor;
 	}
 
+	/**
+	 * Iterates over the selected rows by pages of pageSize rows, see
+	 * RowIterator. Each element is the cursor set on the row.
+	 *
+	 * @param fields selected columns, must contain the row id
+	 * @param limit maximum number of rows, -1 if not limited
+	 */
+	public RowIterator<Cursor> iterateEntries(String table, String[] fields,
+			Selection selection, boolean orderDesc, int pageSize, int limit) {
+		return new RowIterator<Cursor>(this, table, fields, selection, orderDesc,
+				pageSize, limit) {
+			@Override
+			protected Cursor fromCursor(Cursor cursor) {
+				return cursor;
+			}
+		};
+	}
+
+	/**
+	 * Counts the rows with a statement compiled once for this connection :
+	 * the selection must not embed values, but bind them.
+	 *
+	 * @return the number of rows of table matching selection
+	 */
+	public int getEntriesCount(String table, Selection selection) {
+		return (int) bindArgs(getStatement("SELECT count(*) FROM " + table
+				+ " WHERE " + selection.getWhere()),
+				(Object[]) selection.getArgs()).simpleQueryForLong();
+	}
+
+	/**
+	 * Like getEntriesCount(), but stops at the first matching row
+	 *
+	 * @return true if a row of table matches selection
+	 */
+	public boolean hasEntries(String table, Selection selection) {
+		return bindArgs(getStatement("SELECT EXISTS (SELECT 1 FROM " + table
+				+ " WHERE " + selection.getWhere() + ")"),
+				(Object[]) selection.getArgs()).simpleQueryForLong() != 0;
+	}
+
+	/**
+	 * @return the number of rows updated
+	 */
+	public int updateEntries(String table, ContentValues values, Selection selection) {
+		return mDb.update(table, values, selection.getWhere(), selection.getArgs());
+	}
+
+	/**
+	 * @return the number of rows deleted
+	 */
+	public int deleteEntries(String table, Selection selection) {
+		return mDb.delete(table, selection.getWhere(), selection.getArgs());
+	}
+
 	public int getEntriesCount(String table) {
-		return getEntriesCount(table, null);
+		return getEntriesCount(table, (String) null);
 	}
 
 	public int getEntriesCount(String table, String where) {
@@ -144,10 +347,12 @@ public class General implements Closeable {
 	public static class Table {
 		String mName;
 		String mCreateStatement;
+		String mIndexStatements[];
 
-		public Table(String name, String createStatement) {
+		public Table(String name, String createStatement, String... indexStatements) {
 			mName = name;
 			mCreateStatement = createStatement;
+			mIndexStatements = indexStatements;
 		}
 
 		public String getName() {
@@ -157,20 +362,83 @@ public class General implements Closeable {
 		public String getCreateStatement() {
 			return mCreateStatement;
 		}
+
+		public String[] getIndexStatements() {
+			return mIndexStatements;
+		}
+	}
+
+	/**
+	 * Statements upgrading a database in place from a version to the next one
+	 */
+	public static class Migration {
+		int mFromVersion;
+		String mStatements[];
+
+		public Migration(int fromVersion, String... statements) {
+			mFromVersion = fromVersion;
+			mStatements = statements;
+		}
+
+		public int getFromVersion() {
+			return mFromVersion;
+		}
+
+		public String[] getStatements() {
+			return mStatements;
+		}
 	}
 
 	private static class DatabaseHelper extends SQLiteOpenHelper {
 		List<Table> mTables;
+		List<Migration> mMigrations;
 
-		DatabaseHelper(Context context, String name, int version, List<Table> tables) {
+		DatabaseHelper(Context context, String name, int version, List<Table> tables,
+				List<Migration> migrations) {
 			super(context, name, null, version);
 			mTables = tables;
+			mMigrations = migrations;
 		}
 
 		@Override
 		public void onCreate(SQLiteDatabase db) {
-			for(int i = 0; i < mTables.size(); i++)
+			for(int i = 0; i < mTables.size(); i++) {
 				db.execSQL(mTables.get(i).getCreateStatement());
+				for (String index : mTables.get(i).getIndexStatements())
+					db.execSQL(index);
+			}
+		}
+
+		private Migration getMigration(int fromVersion) {
+			for (Migration migration : mMigrations)
+				if (migration.getFromVersion() == fromVersion)
+					return migration;
+			return null;
+		}
+
+		/**
+		 * Upgrades the database keeping its data, if there is a migration
+		 * for each version between oldVersion and newVersion.
+		 *
+		 * @return true if the database is upgraded, false if the tables
+		 * have to be regenerated
+		 */
+		private boolean migrate(SQLiteDatabase db, int oldVersion, int newVersion) {
+			for (int version = oldVersion; version < newVersion; version++)
+				if (getMigration(version) == null)
+					return false;
+			try {
+				for (int version = oldVersion; version < newVersion; version++) {
+					log.i("Migrating database from version " + version
+						+ " to " + (version + 1));
+					for (String statement : getMigration(version).getStatements())
+						db.execSQL(statement);
+				}
+			} catch (SQLException e) {
+				log.e("Database migration failed", e);
+				return false;
+			}
+			return true;
 		}
 
 		private void regenerate_tables(SQLiteDatabase db, int reason,
@@ -186,7 +454,8 @@ public class General implements Closeable {
 
 		@Override
 		public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-			regenerate_tables(db, 1, oldVersion, newVersion);
+			if (!migrate(db, oldVersion, newVersion))
+				regenerate_tables(db, 1, oldVersion, newVersion);
 		}
 
 		@Override
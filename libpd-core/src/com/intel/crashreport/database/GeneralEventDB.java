@@ -18,8 +18,11 @@ package com.intel.crashreport.database;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.TimeZone;
 
 import android.content.ContentValues;
@@ -49,7 +52,7 @@ public class GeneralEventDB extends General {
 	protected static final String DATABASE_RAIN_OF_CRASHES_TABLE = "rain_of_crashes";
 	protected static final String DATABASE_GCM_MESSAGES_TABLE = "gcm_messages";
 	protected static final String DATABASE_DEVICE_TABLE = "device";
-	protected static final int DATABASE_VERSION = 18;
+	protected static final int DATABASE_VERSION = 20;
 
 	public static final String KEY_ROWID = "_id";
 	public static final String KEY_ID = "eventId";
@@ -138,6 +141,47 @@ public class GeneralEventDB extends General {
 					KEY_CRITICAL + " integer, " +
 					KEY_TEST_CASE + " text);";
 
+	/*
+	 * Indexes of the events table for the frequent queries. The partial index
+	 * condition is written like in the queries, with a quoted value, else
+	 * SQLite doesn't use it.
+	 */
+	private static final String DATABASE_EVENTID_INDEX_CREATE =
+			"create index if not exists events_eventId_idx on " + DATABASE_TABLE +
+					" (" + KEY_ID + ");";
+	//only the events not uploaded, i.e. a few rows
+	private static final String DATABASE_TO_UPLOAD_INDEX_CREATE =
+			"create index if not exists events_to_upload_idx on " + DATABASE_TABLE +
+					" (" + KEY_DATA_READY + ", " + KEY_NAME + ")" +
+					" where " + KEY_UPLOAD + "='0';";
+	//not partial, so that it's used by each part of the 'or' in the logs queries
+	private static final String DATABASE_LOGS_INDEX_CREATE =
+			"create index if not exists events_logs_idx on " + DATABASE_TABLE +
+					" (" + KEY_UPLOADLOG + ", " + KEY_NAME + ", " + KEY_LOGS_SIZE + ");";
+	/*
+	 * Keyset pages of the events to upload and of their logs : these indexes
+	 * list the rows in row id order after their columns, so that a page is
+	 * searched instead of sorted.
+	 */
+	private static final String DATABASE_UPLOAD_ORDER_INDEX_CREATE =
+			"create index if not exists events_upload_order_idx on " + DATABASE_TABLE +
+					" (" + KEY_DATA_READY + ")" +
+					" where " + KEY_UPLOAD + "='0';";
+	private static final String DATABASE_LOGS_ORDER_INDEX_CREATE =
+			"create index if not exists events_logs_order_idx on " + DATABASE_TABLE +
+					" (" + KEY_UPLOADLOG + ", " + KEY_UPLOAD + ");";
+	private static final String DATABASE_CRASHDIR_INDEX_CREATE =
+			"create index if not exists events_crashdir_idx on " + DATABASE_TABLE +
+					" (" + KEY_CRASHDIR + ");";
+	private static final String DATABASE_ORIGIN_INDEX_CREATE =
+			"create index if not exists events_origin_idx on " + DATABASE_TABLE +
+					" (" + KEY_ORIGIN + ");";
+
+	private static final String[] DATABASE_INDEXES_CREATE = new String[] {
+			DATABASE_EVENTID_INDEX_CREATE, DATABASE_TO_UPLOAD_INDEX_CREATE,
+			DATABASE_LOGS_INDEX_CREATE, DATABASE_CRASHDIR_INDEX_CREATE,
+			DATABASE_ORIGIN_INDEX_CREATE, DATABASE_UPLOAD_ORDER_INDEX_CREATE,
+			DATABASE_LOGS_ORDER_INDEX_CREATE};
 
 	private static final String DATABASE_BLACK_EVENTS_CREATE =
 			"create table " + DATABASE_BLACK_EVENTS_TABLE + " ("+
@@ -222,8 +266,17 @@ public class GeneralEventDB extends General {
 				KEY_DESCRIPTION, KEY_SEVERITY, KEY_BZ_TYPE, KEY_BZ_COMPONENT,
 				KEY_SCREENSHOT, KEY_SCREENSHOT_PATH};
 
+	//columns of the events inserted by addEvent(), in the order of its arguments
+	private static final String EVENT_INSERT = insertStatement(DATABASE_TABLE,
+			KEY_ID, KEY_NAME, KEY_TYPE, KEY_DATA0, KEY_DATA1, KEY_DATA2,
+			KEY_DATA3, KEY_DATA4, KEY_DATA5, KEY_DATE, KEY_BUILDID, KEY_DEVICEID,
+			KEY_IMEI, KEY_UPTIME, KEY_UPLOAD, KEY_CRASHDIR, KEY_UPLOADLOG,
+			KEY_NOTIFIED, KEY_DATA_READY, KEY_LOGS_SIZE, KEY_ORIGIN, KEY_PDSTATUS,
+			KEY_VARIANT, KEY_INGREDIENTS, KEY_OS_BOOT_MODE, KEY_UNIQUEKEY_COMPONENT,
+			KEY_MODEM_VERSION_USED, KEY_CRITICAL, KEY_TEST_CASE);
+
 	public static final List<Table> tables = Arrays.asList(
-		new Table(DATABASE_TABLE, DATABASE_CREATE),
+		new Table(DATABASE_TABLE, DATABASE_CREATE, DATABASE_INDEXES_CREATE),
 		new Table(DATABASE_BLACK_EVENTS_TABLE, DATABASE_BLACK_EVENTS_CREATE),
 		new Table(DATABASE_RAIN_OF_CRASHES_TABLE, DATABASE_RAIN_CREATE),
 		new Table(DATABASE_BZ_TABLE, DATABASE_BZ_CREATE),
@@ -231,12 +284,90 @@ public class GeneralEventDB extends General {
 		new Table(DATABASE_DEVICE_TABLE, DATABASE_DEVICE_CREATE)
 	);
 
+	//in place upgrades, the older databases are regenerated
+	public static final List<Migration> migrations = Arrays.asList(
+		new Migration(18, DATABASE_EVENTID_INDEX_CREATE, DATABASE_TO_UPLOAD_INDEX_CREATE,
+				DATABASE_LOGS_INDEX_CREATE, DATABASE_CRASHDIR_INDEX_CREATE,
+				DATABASE_ORIGIN_INDEX_CREATE),
+		new Migration(19, DATABASE_UPLOAD_ORDER_INDEX_CREATE, DATABASE_LOGS_ORDER_INDEX_CREATE)
+	);
+
+	//shared by all instances opened on the application database
+	private static final EventIdFilter sEventIds = new EventIdFilter();
+
+	/**
+	 * Notified when the crashlogs of an event are ready to be uploaded
+	 */
+	public interface DataReadyListener {
+		void onDataReady(String eventId, String eventName, String type, String crashDir, int logsSize);
+	}
+
+	private static volatile DataReadyListener sDataReadyListener = null;
+
+	//device information written in the current transaction, see beginBatch()
+	private String mBatchDevice[] = null;
+	//events ready in the current transaction
+	private final List<DataReady> mBatchDataReady = new ArrayList<DataReady>();
+	//IDs inserted in the current transaction, by filter
+	private final Map<EventIdFilter, List<String>> mBatchIds =
+			new HashMap<EventIdFilter, List<String>>();
+
+	private static final class DataReady {
+		final String mEventId;
+		final String mEventName;
+		final String mType;
+		final String mCrashDir;
+		final int mLogsSize;
+
+		DataReady(String eventId, String eventName, String type, String crashDir, int logsSize) {
+			mEventId = eventId;
+			mEventName = eventName;
+			mType = type;
+			mCrashDir = crashDir;
+			mLogsSize = logsSize;
+		}
+	}
+
+	public static void setDataReadyListener(DataReadyListener listener) {
+		sDataReadyListener = listener;
+	}
+
+	private static void notifyDataReady(DataReady dataReady) {
+		DataReadyListener listener = sDataReadyListener;
+		if (listener != null && dataReady.mLogsSize > 0)
+			listener.onDataReady(dataReady.mEventId, dataReady.mEventName, dataReady.mType,
+					dataReady.mCrashDir, dataReady.mLogsSize);
+	}
+
+	/**
+	 * Notifies the listener once the event is committed, so that it can
+	 * read it from another connection
+	 */
+	private void onDataReady(String eventId, String eventName, String type, String crashDir, int logsSize) {
+		DataReady dataReady = new DataReady(eventId, eventName, type, crashDir, logsSize);
+		if (isInBatch())
+			mBatchDataReady.add(dataReady);
+		else
+			notifyDataReady(dataReady);
+	}
+
+	@Override
+	protected void onBatchCommit() {
+		mBatchDevice = null;
+		for (DataReady dataReady : mBatchDataReady)
+			notifyDataReady(dataReady);
+		mBatchDataReady.clear();
+		for (Map.Entry<EventIdFilter, List<String>> entry : mBatchIds.entrySet())
+			entry.getKey().commit(entry.getValue());
+		mBatchIds.clear();
+	}
+
 	public GeneralEventDB() {
 		super();
 	}
 
 	public GeneralEventDB(Context ctx) {
-		super(ctx, DATABASE_NAME, DATABASE_VERSION, tables);
+		super(ctx, DATABASE_NAME, DATABASE_VERSION, tables, migrations);
 	}
 
 	public long addEvent(String eventId, String eventName, String type,
@@ -246,51 +377,74 @@ public class GeneralEventDB extends General {
 			boolean bDataReady, String origin, String pdStatus, String variant,
 			String ingredients, String osBootMode, String uniqueKeyComponent,
 			String modemVersionUsed, boolean critical, String testCase) {
-		ContentValues initialValues = new ContentValues();
 		int eventDate = Utils.convertDateForDb(date);
 		if (eventName.isEmpty()) return -2;
 		else if (eventDate == -1) return -3;
 
-		initialValues.put(KEY_ID, eventId);
-		initialValues.put(KEY_NAME, eventName);
-		initialValues.put(KEY_TYPE, type);
-		initialValues.put(KEY_DATA0, data0);
-		initialValues.put(KEY_DATA1, data1);
-		initialValues.put(KEY_DATA2, data2);
-		initialValues.put(KEY_DATA3, data3);
-		initialValues.put(KEY_DATA4, data4);
-		initialValues.put(KEY_DATA5, data5);
-		initialValues.put(KEY_DATE, eventDate);
-		initialValues.put(KEY_BUILDID, buildId);
-		initialValues.put(KEY_DEVICEID, deviceId);
-		initialValues.put(KEY_IMEI, imei);
-		initialValues.put(KEY_UPTIME, uptime);
-				/* Set event as invalid if needed */
-		initialValues.put(KEY_UPLOAD, Utils.isEventLogsValid(type) ? 0 : -1);
-		initialValues.put(KEY_CRASHDIR, crashDir);
-		initialValues.put(KEY_UPLOADLOG, Utils.isEventLogsValid(type) ? 0 : -1);
-		initialValues.put(KEY_NOTIFIED, 0);
-		if(bDataReady)
-			initialValues.put(KEY_DATA_READY, 1);
-		else
-			initialValues.put(KEY_DATA_READY, 0);
+		int logsSize = 0;
 		if (bDataReady && !crashDir.isEmpty())
-			initialValues.put(KEY_LOGS_SIZE,
-					CrashLogs.getCrashLogsSize(mCtx,crashDir,eventId));
-		else
-			initialValues.put(KEY_LOGS_SIZE, 0);
-		initialValues.put(KEY_ORIGIN, origin);
-		initialValues.put(KEY_PDSTATUS, pdStatus);
-		initialValues.put(KEY_VARIANT, variant);
-		initialValues.put(KEY_INGREDIENTS, ingredients);
-		initialValues.put(KEY_OS_BOOT_MODE, osBootMode);
-		initialValues.put(KEY_UNIQUEKEY_COMPONENT, uniqueKeyComponent);
-		initialValues.put(KEY_MODEM_VERSION_USED, modemVersionUsed);
-		initialValues.put(KEY_CRITICAL, critical);
-		initialValues.put(KEY_TEST_CASE, testCase);
+			logsSize = CrashLogs.getCrashLogsSize(mCtx, crashDir);
+		/* Set event as invalid if needed */
+		int valid = Utils.isEventLogsValid(type) ? 0 : -1;
 
 		removeOldCrashdir(crashDir);
-		return mDb.insert(DATABASE_TABLE, null, initialValues);
+		long ret = executeInsert(bindArgs(getStatement(EVENT_INSERT), eventId, eventName,
+				type, data0, data1, data2, data3, data4, data5, eventDate, buildId,
+				deviceId, imei, uptime, valid, crashDir, valid, 0, bDataReady ? 1 : 0,
+				logsSize, origin, pdStatus, variant, ingredients, osBootMode,
+				uniqueKeyComponent, modemVersionUsed, critical, testCase));
+		if (ret != -1) {
+			addToIdFilter(sEventIds, eventId);
+			onDataReady(eventId, eventName, type, crashDir, logsSize);
+		}
+		return ret;
+	}
+
+	/**
+	 * Adds aId, just inserted, to aFilter : in a transaction, the ID is kept
+	 * pending until commit, as a load from another connection can't see it.
+	 */
+	protected void addToIdFilter(EventIdFilter aFilter, String aId) {
+		if (!isInBatch()) {
+			aFilter.add(aId);
+			return;
+		}
+		aFilter.addPending(aId);
+		List<String> ids = mBatchIds.get(aFilter);
+		if (ids == null) {
+			ids = new ArrayList<String>();
+			mBatchIds.put(aFilter, ids);
+		}
+		ids.add(aId);
+	}
+
+	/**
+	 * Loads aFilter with the IDs of aTable if not done yet.
+	 *
+	 * @return the loaded filter, null if it can't be used with this database
+	 */
+	protected EventIdFilter getIdFilter(EventIdFilter aFilter, String aTable) {
+		if (mDb == null || !DATABASE_NAME.equals(mDbName))
+			return null;
+		synchronized (aFilter) {
+			if (aFilter.needsLoad()) {
+				Cursor cursor = mDb.rawQuery("SELECT " + KEY_ID + " FROM " + aTable, null);
+				if (cursor == null)
+					return null;
+				boolean bLoaded = false;
+				try {
+					aFilter.reset(cursor.getCount());
+					while (cursor.moveToNext())
+						aFilter.add(cursor.getString(0));
+					bLoaded = true;
+				} finally {
+					cursor.close();
+					if (!bLoaded)
+						aFilter.invalidate();
+				}
+			}
+		}
+		return aFilter;
 	}
 
 	public long addEvent(GeneralEvent event) {
@@ -333,16 +487,28 @@ public class GeneralEventDB extends General {
 				sQuery, KEY_ROWID, true, sNlimit);
 	}
 
-	public Cursor fetchNotUploadedEvents() throws SQLException {
-		String whereQuery = KEY_UPLOAD + "='0' and " + KEY_DATA_READY + "='1'";
-		return fetchEventFromWhereQuery(whereQuery);
+	/**
+	 * Iterates over the events to upload, ordered by row id.
+	 *
+	 * @param pageSize maximum number of events read at once
+	 */
+	public RowIterator<GeneralEvent> fetchNotUploadedEvents(int pageSize) throws SQLException {
+		return iterateEvents(new Selection(KEY_UPLOAD + "='0' and " + KEY_DATA_READY + "='1'"),
+				pageSize);
 	}
 
-	public Cursor fetchNotUploadedLogs(String crashTypes[]) throws SQLException {
-		StringBuilder bQuery = new StringBuilder(
-				"( ("+KEY_NAME+" in ( " + OTHER_EVENT_NAMES + " ) and "
-				+ KEY_UPLOADLOG + "='0') or (" + KEY_NAME + "='CRASH' and "
-				+ KEY_UPLOADLOG + "='0' and " + KEY_DATA_READY + "='1'");
+	/**
+	 * Iterates over the events whose logs are to upload, ordered by row id.
+	 *
+	 * @param crashTypes types of the crashes whose logs are not uploaded, may be null
+	 * @param pageSize maximum number of events read at once
+	 */
+	public RowIterator<GeneralEvent> fetchNotUploadedLogs(String crashTypes[], int pageSize)
+			throws SQLException {
+		//logsuploaded is out of the 'or', for events_logs_order_idx
+		StringBuilder bQuery = new StringBuilder(KEY_UPLOADLOG + "='0' and "
+				+ "( ("+KEY_NAME+" in ( " + OTHER_EVENT_NAMES + " )) or ("
+				+ KEY_NAME + "='CRASH' and " + KEY_DATA_READY + "='1'");
 
 		if (crashTypes != null) {
 			String sExcludedType = getExcludeTypeInLine(crashTypes);
@@ -356,14 +522,32 @@ public class GeneralEventDB extends General {
 		/* Only logs for events already uploaded*/
 		bQuery.append(" and " + KEY_UPLOAD + "='1' and "
 				+ KEY_CRASHDIR+" != ''");
-		return fetchEventFromWhereQuery(bQuery.toString());
+		return iterateEvents(new Selection(bQuery.toString()), pageSize);
+	}
 
+	/**
+	 * Iterates over the selected events by pages, ordered by row id
+	 *
+	 * @param pageSize maximum number of events read at once
+	 */
+	public RowIterator<GeneralEvent> iterateEvents(Selection selection, int pageSize) {
+		return new RowIterator<GeneralEvent>(this, DATABASE_TABLE, eventsTableColums,
+				selection, false, pageSize, -1) {
+			@Override
+			protected GeneralEvent fromCursor(Cursor cursor) {
+				return fillEventFromCursor(cursor);
+			}
+		};
 	}
 
 	public Cursor fetchEventFromWhereQuery(String whereQuery) throws SQLException {
 		return selectEntries(DATABASE_TABLE, eventsTableColums, whereQuery);
 	}
 
+	public Cursor fetchEventFromWhereQuery(Selection selection) throws SQLException {
+		return selectEntries(DATABASE_TABLE, eventsTableColums, selection);
+	}
+
 	public GeneralEvent fillEventFromCursor(Cursor cursor) {
 		GeneralEvent event = new GeneralEvent();
 		event.setiRowID(cursor.getInt(cursor.getColumnIndex(KEY_ROWID)));
@@ -410,11 +594,14 @@ public class GeneralEventDB extends General {
 	 * @throws SQLException
 	 */
 	public Cursor getEventFromId(String eventId) throws SQLException{
-		return fetchEventFromWhereQuery(KEY_ID + "='" + eventId +"'");
+		return fetchEventFromWhereQuery(Selection.equal(KEY_ID, eventId));
 	}
 
 	public Boolean isEventInDb(String eventId) throws SQLException {
-		return isEventInDatabase(KEY_ID + "='" + eventId + "'");
+		EventIdFilter filter = getIdFilter(sEventIds, DATABASE_TABLE);
+		if (filter != null && !filter.mightContain(eventId))
+			return false;
+		return isEventInDatabase(Selection.equal(KEY_ID, eventId));
 	}
 
 	private String getExcludeTypeInLine(String crashTypes[])
@@ -424,7 +611,7 @@ public class GeneralEventDB extends General {
 			if (i > 0){
 				sExcludedType.append(",");
 			}
-			sExcludedType.append("'" + crashTypes[i] +"'");
+			sExcludedType.append(DatabaseUtils.sqlEscapeString(crashTypes[i]));
 		}
 		return sExcludedType.toString();
 	}
@@ -482,6 +669,10 @@ public class GeneralEventDB extends General {
 		return ((getEntriesCount(DATABASE_TABLE, where) > 0) ? true : false);
 	}
 
+	protected boolean isEventInDatabase(Selection selection) throws SQLException {
+		return hasEntries(DATABASE_TABLE, selection);
+	}
+
 	public int getNewCrashNumber() {
 		return getNumberFromWhereQuery(KEY_UPLOAD + "='0' AND "
 				+ KEY_NAME + "='CRASH' and " + KEY_DATA_READY + "='1'");
@@ -514,8 +705,7 @@ public class GeneralEventDB extends General {
 		if(crashDir.isEmpty())
 			args.put(KEY_LOGS_SIZE, 0);
 
-		return mDb.update(DATABASE_TABLE, args,
-				KEY_ID + "='" + eventId + "'", null) > 0;
+		return updateEntries(DATABASE_TABLE, args, Selection.equal(KEY_ID, eventId)) > 0;
 	}
 
 	public boolean removeOldCrashdir(String crashDir) {
@@ -523,21 +713,18 @@ public class GeneralEventDB extends General {
 	}
 
 	public boolean updateEventsOnLogPaths(String crashDir, String field, String data) {
-		ContentValues args = new ContentValues();
-
 		if(crashDir.isEmpty())
 			return false;
 
-		args.put(field, data);
-		return mDb.update(DATABASE_TABLE, args,
-				KEY_CRASHDIR + "='" + crashDir + "'", null) > 0;
+		return bindArgs(getStatement("update " + DATABASE_TABLE + " set " + field + "=? where "
+				+ KEY_CRASHDIR + "=?"), data, crashDir).executeUpdateDelete() > 0;
 	}
 
 	public boolean updateEventField(String eventId, String field, String data) {
 		ContentValues args = new ContentValues();
 		args.put(field, data);
 
-		return mDb.update(DATABASE_TABLE, args, KEY_ID + "='" + eventId + "'", null) > 0;
+		return updateEntries(DATABASE_TABLE, args, Selection.equal(KEY_ID, eventId)) > 0;
 	}
 
 	private int getNumberFromWhereQuery(String where) {
@@ -605,13 +792,17 @@ public class GeneralEventDB extends General {
 
 	public boolean updateEventDataReady(String eventId) {
 		ContentValues args = new ContentValues();
-		Cursor cursor = selectEntries(DATABASE_TABLE, new String[] {KEY_CRASHDIR},
-				KEY_ID + "='" + eventId + "'");
+		Cursor cursor = selectEntries(DATABASE_TABLE, new String[] {KEY_CRASHDIR, KEY_NAME, KEY_TYPE},
+				Selection.equal(KEY_ID, eventId));
 		String crashDir = "";
+		String eventName = "";
+		String type = "";
 
 		if (cursor != null) {
 			try {
 				crashDir = cursor.getString(cursor.getColumnIndex(KEY_CRASHDIR));
+				eventName = cursor.getString(cursor.getColumnIndex(KEY_NAME));
+				type = cursor.getString(cursor.getColumnIndex(KEY_TYPE));
 			} catch (SQLException e) {
 				crashDir = "";
 			}
@@ -619,16 +810,21 @@ public class GeneralEventDB extends General {
 		}
 		args.put(KEY_DATA_READY, 1);
 
-		if(!crashDir.isEmpty())
-			args.put(KEY_LOGS_SIZE,
-					CrashLogs.getCrashLogsSize(mCtx, crashDir, eventId));
+		int logsSize = 0;
+		if(!crashDir.isEmpty()) {
+			logsSize = CrashLogs.getCrashLogsSize(mCtx, crashDir);
+			args.put(KEY_LOGS_SIZE, logsSize);
+		}
 
-		return mDb.update(DATABASE_TABLE, args, KEY_ID + "='" + eventId + "'", null) > 0;
+		if (updateEntries(DATABASE_TABLE, args, Selection.equal(KEY_ID, eventId)) > 0) {
+			onDataReady(eventId, eventName, type, crashDir, logsSize);
+			return true;
+		}
+		return false;
 	}
 
 	public boolean eventDataAreReady(String eventId) throws SQLException {
-		String whereQuery = KEY_ID + "='" + eventId + "' and " + KEY_DATA_READY + "=1";
-		return isEventInDatabase(whereQuery);
+		return isEventInDatabase(Selection.equal(KEY_ID, eventId).and(KEY_DATA_READY + "=1"));
 	}
 
 	public boolean updatePDStatus(String pdStatus, String eventId) {
@@ -636,10 +832,9 @@ public class GeneralEventDB extends General {
 	}
 
 	public void deleteEventsBeforeUpdate(String eventId){
-		String whereQuery = KEY_ROWID + " < (select " + KEY_ROWID + " from "
-				+ DATABASE_TABLE + " where " + KEY_ID + "='" + eventId+"')"
-				+ " and "+KEY_NAME+"<> 'BZ'";
-		mDb.delete(DATABASE_TABLE, whereQuery, null);
+		deleteEntries(DATABASE_TABLE, new Selection(KEY_ROWID + " < (select " + KEY_ROWID
+				+ " from " + DATABASE_TABLE + " where " + KEY_ID + "=?)"
+				+ " and " + KEY_NAME + "<> 'BZ'", eventId));
 	}
 
 	public boolean isThereLogToUploadWithoutWifi(String crashTypes[])
@@ -711,7 +906,7 @@ public class GeneralEventDB extends General {
 	}
 
 	public boolean deleteBZ(String eventId) {
-		return mDb.delete(DATABASE_BZ_TABLE, KEY_ID + "='" + eventId + "'", null) > 0;
+		return deleteEntries(DATABASE_BZ_TABLE, Selection.equal(KEY_ID, eventId)) > 0;
 	}
 
 	public Cursor fetchAllBZs() {
@@ -762,36 +957,46 @@ public class GeneralEventDB extends General {
 		ContentValues args = new ContentValues();
 		args.put(KEY_UPLOAD, 1);
 
-		return mDb.update(DATABASE_BZ_TABLE, args,
-				KEY_ID + "='" + eventId + "'", null) > 0;
+		return updateEntries(DATABASE_BZ_TABLE, args, Selection.equal(KEY_ID, eventId)) > 0;
 	}
 
 	public boolean updateBzLogsToUpload(String eventId) {
 		ContentValues args = new ContentValues();
 		args.put(KEY_UPLOADLOG, 1);
 
-		return mDb.update(DATABASE_BZ_TABLE, args,
-				KEY_ID + "='" + eventId + "'", null) > 0;
+		return updateEntries(DATABASE_BZ_TABLE, args, Selection.equal(KEY_ID, eventId)) > 0;
 	}
 
 	public int getBzNumber() {
 		return getEntriesCount(DATABASE_BZ_TABLE);
 	}
 
+	/**
+	 * Set as ready the data of the events preceding a REBOOT event. Each one
+	 * goes through updateEventDataReady(), so that its logs size is computed
+	 * and the DataReadyListener is notified.
+	 */
 	public void updateEventsNotReadyBeforeREBOOT(String eventId) {
-		String where = KEY_ROWID + " < (select " + KEY_ROWID
-				+ " from " + DATABASE_TABLE
-				+ " where " + KEY_ID + "='" + eventId
-				+ "')  AND " + KEY_DATA_READY + "=0";
-
-		ContentValues args = new ContentValues();
-		args.put(KEY_DATA_READY, 1);
-		mDb.update(DATABASE_TABLE, args, where, null);
+		Cursor cursor = selectEntries(DATABASE_TABLE, new String[] {KEY_ID},
+				new Selection(KEY_ROWID + " < (select " + KEY_ROWID
+				+ " from " + DATABASE_TABLE + " where " + KEY_ID + "=?)"
+				+ " and " + KEY_DATA_READY + "=0", eventId));
+		if (cursor == null)
+			return;
+		List<String> eventIds = new ArrayList<String>();
+		try {
+			do {
+				eventIds.add(cursor.getString(0));
+			} while (cursor.moveToNext());
+		} finally {
+			cursor.close();
+		}
+		for (String notReadyId : eventIds)
+			updateEventDataReady(notReadyId);
 	}
 
 	public boolean isOriginExist(String origin) throws SQLException {
-		String query = KEY_ORIGIN + " = '" + origin + "'";
-		return isEventInDatabase(query);
+		return isEventInDatabase(Selection.equal(KEY_ORIGIN, origin));
 	}
 
 	/**
@@ -801,8 +1006,7 @@ public class GeneralEventDB extends General {
 	 * @return true if a maching element is found in DB. False otherwise.
 	 */
 	public boolean isOriginBasenameExist(String originBasename) {
-		String query = KEY_ORIGIN + " LIKE '" + originBasename + "%'";
-		return isEventInDatabase(query);
+		return isEventInDatabase(Selection.startsWith(KEY_ORIGIN, originBasename));
 	}
 
 	/**
@@ -896,8 +1100,7 @@ public class GeneralEventDB extends General {
 	 * @return True if the delete works
 	 */
 	public boolean deleteGcmMessage(int id) {
-		return mDb.delete(DATABASE_GCM_MESSAGES_TABLE,
-			KEY_ROWID + "='" + id + "'", null) > 0;
+		return deleteEntries(DATABASE_GCM_MESSAGES_TABLE, Selection.equal(KEY_ROWID, id)) > 0;
 	}
 
 	/**
@@ -1008,6 +1211,16 @@ public class GeneralEventDB extends General {
 	 */
 	public boolean updateDeviceInformation(String deviceId, String imei,
 			String ssn, String token, String spid) {
+		String device[] = new String[] {deviceId, imei, ssn, token, spid};
+		if (isInBatch() && Arrays.equals(device, mBatchDevice))
+			return true;
+		boolean updated = writeDeviceInformation(deviceId, imei, ssn, token, spid);
+		mBatchDevice = (updated && isInBatch()) ? device : null;
+		return updated;
+	}
+
+	private boolean writeDeviceInformation(String deviceId, String imei,
+			String ssn, String token, String spid) {
 		if(isDeviceExist()) {
 			ContentValues args = new ContentValues();
 			args.put(KEY_DEVICEID, deviceId);
@@ -1033,17 +1246,43 @@ public class GeneralEventDB extends General {
 	}
 
 	public Cursor fetchMatchingLogPaths(String logsDir) {
-		return selectEntries(DATABASE_TABLE, new String[] {KEY_CRASHDIR},
-				KEY_CRASHDIR + " like '" + logsDir + "%'");
+		return selectDistinctEntries(DATABASE_TABLE, new String[] {KEY_CRASHDIR},
+				Selection.startsWith(KEY_CRASHDIR, logsDir));
 	}
 
 	public boolean updateEventFolderPath(String orginal, String target) {
 		return updateEventsOnLogPaths(orginal, KEY_CRASHDIR, target);
 	}
 
+	public boolean updateEventLogsSize(String eventId, int logsSize) {
+		ContentValues args = new ContentValues();
+		args.put(KEY_LOGS_SIZE, logsSize);
+		return updateEntries(DATABASE_TABLE, args, Selection.equal(KEY_ID, eventId)) > 0;
+	}
+
+	public boolean isEventLogToUpload(String eventId) throws SQLException {
+		return isEventLogToUpload(eventId, null);
+	}
+
+	/**
+	 * @param crashTypes types of the crashes whose logs are not uploaded, may be null
+	 */
+	public boolean isEventLogToUpload(String eventId, String crashTypes[]) throws SQLException {
+		Selection selection = Selection.equal(KEY_ID, eventId).and(
+				KEY_UPLOADLOG + "='0' and " + KEY_CRASHDIR + "!=''");
+		if (crashTypes != null && crashTypes.length > 0) {
+			StringBuilder excluded = new StringBuilder(KEY_NAME + "<>'CRASH' or "
+					+ KEY_TYPE + " not in (?");
+			for (int i = 1; i < crashTypes.length; i++)
+				excluded.append(",?");
+			selection = selection.and(excluded.append(")").toString(), crashTypes);
+		}
+		return isEventInDatabase(selection);
+	}
+
 	public boolean isEventLogCleaned(String eventID) {
 		Cursor cursor = selectEntries(DATABASE_TABLE, new String[] {KEY_EVENT_CLEANED},
-				KEY_ID + "='" + eventID + "'");
+				Selection.equal(KEY_ID, eventID));
 		boolean status = false;
 
 		if (cursor == null)
@@ -1059,13 +1298,17 @@ public class GeneralEventDB extends General {
 	}
 
 	public String getLogDirByEventId(String eventId) {
-		Cursor cursor = selectEntries(DATABASE_TABLE, new String[] {KEY_CRASHDIR},
-				KEY_ID + "='" + eventId + "'");
+		Cursor cursor = selectEntries(DATABASE_TABLE, new String[] {KEY_CRASHDIR, KEY_NAME, KEY_TYPE},
+				Selection.equal(KEY_ID, eventId));
 		String crashDir = "";
+		String eventName = "";
+		String type = "";
 
 		if (cursor != null) {
 			try {
 				crashDir = cursor.getString(cursor.getColumnIndex(KEY_CRASHDIR));
+				eventName = cursor.getString(cursor.getColumnIndex(KEY_NAME));
+				type = cursor.getString(cursor.getColumnIndex(KEY_TYPE));
 			} catch (SQLException e) {
 				crashDir = "";
 			}
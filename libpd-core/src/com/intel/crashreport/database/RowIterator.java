@@ -0,0 +1,141 @@
+/* Copyright (C) 2019 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intel.crashreport.database;
+
+import android.database.Cursor;
+import android.provider.BaseColumns;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over the rows of a selection by pages, ordered by row id.
+ *
+ * Each page is selected after the last row id read ("_id > ? LIMIT n",
+ * or "_id < ?" in descending order), so that only one page is held
+ * whatever the number of rows, and the next page reads the rows as they
+ * are then. The cursor is only set on a row until hasNext() or next() is
+ * called again.
+ */
+public abstract class RowIterator<T> implements Iterator<T>, Closeable {
+
+	private final General mDb;
+	private final String mTable;
+	private final String[] mFields;
+	private final Selection mSelection;
+	private final boolean mDescending;
+	private final int mPageSize;
+	//rows left to read, -1 if not limited
+	private int mRemaining;
+
+	private Cursor mCursor;
+	private int mRowIdColumn;
+	private long mLastRowId;
+	//the row the cursor is set on was returned by next()
+	private boolean mRead = false;
+	private boolean mStarted = false;
+	private boolean mLastPage = false;
+
+	/**
+	 * @param fields selected columns, must contain the row id
+	 * @param pageSize maximum number of rows held at once
+	 * @param limit maximum number of rows read, -1 if not limited
+	 */
+	protected RowIterator(General db, String table, String[] fields, Selection selection,
+			boolean descending, int pageSize, int limit) {
+		mDb = db;
+		mTable = table;
+		mFields = fields;
+		mSelection = (selection != null) ? selection : new Selection(null);
+		mDescending = descending;
+		mPageSize = pageSize;
+		mRemaining = limit;
+	}
+
+	/**
+	 * @return the element read from the row the cursor is set on
+	 */
+	protected abstract T fromCursor(Cursor cursor);
+
+	@Override
+	public boolean hasNext() {
+		if (mRemaining == 0)
+			return false;
+		if (mCursor != null) {
+			if (mRead) {
+				mCursor.moveToNext();
+				mRead = false;
+			}
+			if (!mCursor.isAfterLast())
+				return true;
+		}
+		return nextPage();
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext())
+			throw new NoSuchElementException();
+		mLastRowId = mCursor.getLong(mRowIdColumn);
+		mRead = true;
+		if (mRemaining > 0)
+			mRemaining--;
+		return fromCursor(mCursor);
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void close() {
+		if (mCursor != null) {
+			mCursor.close();
+			mCursor = null;
+		}
+		mLastPage = true;
+	}
+
+	private boolean nextPage() {
+		if (mCursor != null) {
+			mCursor.close();
+			mCursor = null;
+		}
+		if (mLastPage)
+			return false;
+
+		Selection page = mSelection;
+		if (mStarted)
+			page = page.and(BaseColumns._ID + (mDescending ? "<?" : ">?"),
+					Long.toString(mLastRowId));
+		int count = (mRemaining < 0) ? mPageSize : Math.min(mRemaining, mPageSize);
+		mStarted = true;
+		mCursor = mDb.selectEntries(mTable, mFields, page, BaseColumns._ID, mDescending,
+				Integer.toString(count));
+		mRead = false;
+		if (mCursor == null) {
+			mLastPage = true;
+			return false;
+		}
+		//a partial page is the last one, no need to select the next
+		mLastPage = mCursor.getCount() < count;
+		mRowIdColumn = mCursor.getColumnIndex(BaseColumns._ID);
+		return true;
+	}
+}
@@ -0,0 +1,93 @@
+/* Copyright (C) 2019 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intel.crashreport.database;
+
+import java.util.Arrays;
+
+/**
+ * WHERE clause of a query, with the values bound in place of its '?'.
+ *
+ * The clause is only made of column names and parameters, so that the
+ * statement compiled for it can be reused whatever the values, and values
+ * containing quotes don't break it.
+ */
+public final class Selection {
+
+	private final String mWhere;
+	private final String[] mArgs;
+
+	public Selection(String where, String... args) {
+		mWhere = where;
+		mArgs = args;
+	}
+
+	/**
+	 * @return a selection of the rows where column equals value
+	 */
+	public static Selection equal(String column, Object value) {
+		return new Selection(column + "=?", String.valueOf(value));
+	}
+
+	/**
+	 * @return a selection of the rows where column starts with prefix,
+	 * '%' and '_' in prefix being matched as is
+	 */
+	public static Selection startsWith(String column, String prefix) {
+		return new Selection(column + " like ? escape '\\'", escapeLike(prefix) + "%");
+	}
+
+	/**
+	 * @return a selection of the rows where column contains value
+	 */
+	public static Selection contains(String column, String value) {
+		return new Selection(column + " like ? escape '\\'", "%" + escapeLike(value) + "%");
+	}
+
+	private static String escapeLike(String value) {
+		return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+	}
+
+	/**
+	 * @return a selection of the rows matching both this selection and other
+	 */
+	public Selection and(Selection other) {
+		if (mWhere == null || mWhere.isEmpty())
+			return other;
+		if (other.mWhere == null || other.mWhere.isEmpty())
+			return this;
+		String args[] = Arrays.copyOf(mArgs, mArgs.length + other.mArgs.length);
+		System.arraycopy(other.mArgs, 0, args, mArgs.length, other.mArgs.length);
+		return new Selection("(" + mWhere + ") and (" + other.mWhere + ")", args);
+	}
+
+	public Selection and(String where, String... args) {
+		return and(new Selection(where, args));
+	}
+
+	public String getWhere() {
+		return mWhere;
+	}
+
+	public String[] getArgs() {
+		return mArgs;
+	}
+
+	@Override
+	public String toString() {
+		return mWhere + " " + Arrays.toString(mArgs);
+	}
+}
@@ -0,0 +1,135 @@
+/* Copyright (C) 2019 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intel.crashtoolserver.bean;
+
+import java.io.Serializable;
+
+/**
+ * Bean chunked file info, used to transmit a file in checksummed chunks,
+ * resuming from the bytes the server already committed.
+ *
+ * Only sent to a server advertising the resume capability when the client
+ * connects. Exchange :
+ * - the client sends this bean
+ * - the server answers OFFSET_PREFIX followed by the number of bytes of
+ *   the file it already committed, 0 if none or if the file changed (same
+ *   event id and name, but another size or last modification date)
+ * - the client sends the file from this offset in frames : an int length,
+ *   the data, and the long CRC32 of the data. A frame of length 0 ends the
+ *   file
+ * - the server commits each frame matching its CRC32, and ignores the
+ *   following ones after a mismatch. It answers "ACK" if the whole file
+ *   is committed, NACK_PREFIX followed by the committed offset otherwise
+ *
+ * A streamed file is compressed by the client while it is sent, so its
+ * size is only an estimate and its content can't be resumed : the server
+ * answers OFFSET_PREFIX followed by 0, and the file ends with the frame of
+ * length 0. Only sent to a server advertising STREAM_CAPABILITY.
+ *
+ */
+public class ChunkedFileInfo implements Serializable {
+
+	/** Serial Id */
+	private static final long serialVersionUID = -6410327799814372155L;
+
+	/** Capability advertised by the server in its connection ACK */
+	public static final String CAPABILITY = "resume";
+	/** Capability advertised by the server accepting streamed files */
+	public static final String STREAM_CAPABILITY = "stream";
+	public static final String OFFSET_PREFIX = "OFFSET ";
+	public static final String NACK_PREFIX = "NACK ";
+
+	private FileInfo fileInfo;
+	/** Last modification date of the file, in ms since epoch */
+	private long lastModified;
+	/** Maximum size of a frame data, in byte */
+	private int chunkSize;
+	/** True if the file is generated while sent, see STREAM_CAPABILITY */
+	private boolean streamed;
+
+	/**
+	 * Default constructor
+	 */
+	public ChunkedFileInfo() {
+		super();
+	}
+
+	/**
+	 *
+	 * @param fileInfo
+	 * @param lastModified
+	 * @param chunkSize
+	 */
+	public ChunkedFileInfo(FileInfo fileInfo, long lastModified, int chunkSize) {
+		this(fileInfo, lastModified, chunkSize, false);
+	}
+
+	/**
+	 *
+	 * @param fileInfo
+	 * @param lastModified
+	 * @param chunkSize
+	 * @param streamed
+	 */
+	public ChunkedFileInfo(FileInfo fileInfo, long lastModified, int chunkSize, boolean streamed) {
+		this.fileInfo = fileInfo;
+		this.lastModified = lastModified;
+		this.chunkSize = chunkSize;
+		this.streamed = streamed;
+	}
+
+	public FileInfo getFileInfo() {
+		return fileInfo;
+	}
+
+	public void setFileInfo(FileInfo fileInfo) {
+		this.fileInfo = fileInfo;
+	}
+
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	public void setLastModified(long lastModified) {
+		this.lastModified = lastModified;
+	}
+
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	public void setChunkSize(int chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
+	public boolean isStreamed() {
+		return streamed;
+	}
+
+	public void setStreamed(boolean streamed) {
+		this.streamed = streamed;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "ChunkedFileInfo [fileInfo=" + fileInfo + ", lastModified=" + lastModified
+				+ ", chunkSize=" + chunkSize + ", streamed=" + streamed + "]";
+	}
+}
@@ -0,0 +1,80 @@
+/* Copyright (C) 2019 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intel.crashtoolserver.bean;
+
+import java.io.UnsupportedEncodingException;
+
+/**
+ * Manifest of the files left out of a crashlog zip because the server
+ * already received the same content, in the zip of another event.
+ *
+ * Only written to a server advertising the dedup capability when the client
+ * connects. The manifest is the zip entry ENTRY_NAME, in UTF-8, one line per
+ * left out file :
+ * name TAB SHA-1 of the content in hex TAB size TAB event id TAB name of the
+ * file in the zip of this event
+ * The server rebuilds each file from the referenced one.
+ *
+ */
+public class DedupManifest {
+
+	/** Capability advertised by the server in its connection ACK */
+	public static final String CAPABILITY = "dedup";
+	public static final String ENTRY_NAME = "dedup.manifest";
+
+	private final StringBuilder content = new StringBuilder();
+	private int count = 0;
+
+	/**
+	 *
+	 * @param name name of the left out file
+	 * @param sha1 SHA-1 of the file content, in hex
+	 * @param size size of the file
+	 * @param eventId event whose zip holds the same content
+	 * @param eventFileName name of the file in the zip of eventId
+	 */
+	public void add(String name, String sha1, long size, String eventId, String eventFileName) {
+		content.append(name).append('\t').append(sha1).append('\t').append(size)
+				.append('\t').append(eventId).append('\t').append(eventFileName).append('\n');
+		count++;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public boolean isEmpty() {
+		return count == 0;
+	}
+
+	public byte[] toBytes() {
+		try {
+			return content.toString().getBytes("UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "DedupManifest [count=" + count + "]";
+	}
+}
@@ -0,0 +1,127 @@
+/* Copyright (C) 2019 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intel.crashtoolserver.bean;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bean event batch, used to transmit several events in one message.
+ *
+ * Only sent to a server advertising the batch capability when the client
+ * connects. The server answers one line : ACK_PREFIX followed by one
+ * character per event, ACK_ITEM if the event is stored, any other if not.
+ *
+ * Events are carried either as a list of beans, or encoded by EventCodec
+ * when the server also advertises one of EventCodec.capability().
+ *
+ */
+public class EventBatch implements Serializable {
+
+	/** Serial Id */
+	private static final long serialVersionUID = 3871046223958152201L;
+
+	/** Capability advertised by the server in its connection ACK */
+	public static final String CAPABILITY = "batch";
+	public static final String ACK_PREFIX = "ACKS ";
+	public static final char ACK_ITEM = '1';
+
+	private List<Event> events;
+	private byte[] encodedEvents;
+	private int codecVersion;
+	private int count;
+
+	/**
+	 * Default constructor
+	 */
+	public EventBatch() {
+		super();
+	}
+
+	/**
+	 *
+	 * @param events
+	 */
+	public EventBatch(List<Event> events) {
+		this.events = new ArrayList<Event>(events);
+		this.count = events.size();
+	}
+
+	/**
+	 * Builds a batch of events encoded by EventCodec
+	 *
+	 * @param codec codec of the connection
+	 * @param events
+	 * @throws IOException
+	 */
+	public static EventBatch encode(EventCodec codec, List<Event> events) throws IOException {
+		EventBatch batch = new EventBatch();
+		batch.encodedEvents = codec.encode(events);
+		batch.codecVersion = codec.getVersion();
+		batch.count = events.size();
+		return batch;
+	}
+
+	/**
+	 * @return events of the batch, null if they are encoded
+	 */
+	public List<Event> getEvents() {
+		return events;
+	}
+
+	/**
+	 * Batches of a connection must be decoded in the order they are received.
+	 *
+	 * @param codec codec of the connection
+	 * @return events of the batch, decoded if needed
+	 * @throws IOException if encoded events can't be decoded
+	 */
+	public List<Event> getEvents(EventCodec codec) throws IOException {
+		if (events == null && encodedEvents != null) {
+			events = codec.decode(encodedEvents);
+		}
+		return events;
+	}
+
+	public void setEvents(List<Event> events) {
+		this.events = events;
+		this.encodedEvents = null;
+		this.count = (events == null) ? 0 : events.size();
+	}
+
+	public boolean isEncoded() {
+		return encodedEvents != null;
+	}
+
+	public int getCodecVersion() {
+		return codecVersion;
+	}
+
+	public int size() {
+		return count;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "EventBatch [size=" + size() + ", encoded=" + isEncoded() + "]";
+	}
+}
@@ -0,0 +1,720 @@
+/* Copyright (C) 2019 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intel.crashtoolserver.bean;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary codec for a list of events, used in place of Java serialization
+ * when both client and server support it.
+ *
+ * Layout : version and event count, then for each bean its fields in a
+ * fixed order. Integers are varints (zigzag for signed values), strings
+ * are a varint length + 1 (0 for null) followed by UTF-8 bytes, nullable
+ * values and nested beans are preceded by a presence byte. Beans the
+ * client does not send (Uptime, Crashtype, Campaign, Project, ...) are
+ * kept as Java serialized blobs.
+ *
+ * From version 2, Build and Device beans are sent once per connection :
+ * a tag 0 is a null bean, 1 a bean followed by its fields and added to
+ * the dictionary of the connection (while it holds less than
+ * MAX_DICTIONARY_SIZE beans), n > 1 the bean n - 2 of the dictionary.
+ * One codec instance must thus be used per connection on each side, a
+ * bean must not be modified once encoded, and decoded events may share
+ * their Build and Device beans.
+ *
+ * Any change of the layout must increment VERSION.
+ */
+@SuppressWarnings("deprecation")
+public final class EventCodec {
+
+	public static final int VERSION = 2;
+	public static final int MIN_VERSION = 1;
+	public static final int MAX_DICTIONARY_SIZE = 256;
+
+	private static final String CAPABILITY_PREFIX = "codec";
+	private static final int TAG_NULL = 0;
+	private static final int TAG_NEW = 1;
+	private static final int TAG_FIRST_REF = 2;
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final int mVersion;
+	private final Dictionary<Build> mBuilds = new Dictionary<Build>();
+	private final Dictionary<Device> mDevices = new Dictionary<Device>();
+
+	/**
+	 * @param version codec version agreed with the other side, between
+	 * MIN_VERSION and VERSION
+	 */
+	public EventCodec(int version) {
+		if (version < MIN_VERSION || version > VERSION) {
+			throw new IllegalArgumentException("Unsupported event codec version " + version);
+		}
+		mVersion = version;
+	}
+
+	/**
+	 * @return capability advertised by the server in its connection ACK
+	 * when it supports this codec version
+	 */
+	public static String capability(int version) {
+		return CAPABILITY_PREFIX + version;
+	}
+
+	public int getVersion() {
+		return mVersion;
+	}
+
+	public byte[] encode(List<Event> events) throws IOException {
+		Output out = new Output(256 * events.size() + 16);
+		writeVarLong(out, mVersion);
+		writeVarLong(out, events.size());
+		for (Event event : events) {
+			writeEvent(out, event);
+		}
+		return out.toByteArray();
+	}
+
+	public List<Event> decode(byte[] data) throws IOException {
+		Input in = new Input(data);
+		int version = (int) readVarLong(in);
+		if (version != mVersion) {
+			throw new IOException("Unsupported event codec version " + version);
+		}
+		int count = (int) readVarLong(in);
+		List<Event> events = new ArrayList<Event>(count);
+		for (int i = 0; i < count; i++) {
+			events.add(readEvent(in));
+		}
+		return events;
+	}
+
+	private void writeEvent(Output out, Event event) throws IOException {
+		writeNullableLong(out, event.getId());
+		writeString(out, event.getEventId());
+		writeString(out, event.getEvent());
+		writeString(out, event.getType());
+		writeString(out, event.getData0());
+		writeString(out, event.getData1());
+		writeString(out, event.getData2());
+		writeString(out, event.getData3());
+		writeString(out, event.getData4());
+		writeString(out, event.getData5());
+		writeDate(out, event.getDate());
+		writeString(out, event.getDateString());
+		writeString(out, event.getBuildId());
+		writeString(out, event.getDeviceId());
+		writeString(out, event.getTestId());
+		writeSignedLong(out, event.getUptime());
+		writeString(out, (event.getLogFile() != null) ? event.getLogFile().getPath() : null);
+		writeString(out, event.getLogFileName());
+		writeString(out, event.getLogFileURI());
+		writeString(out, event.getReportFile());
+		writeString(out, event.getImei());
+		writeString(out, event.getOrigin());
+		writeString(out, event.getFileOrigin());
+		writeDate(out, event.getInsertedEventDate());
+		writeDate(out, event.getInsertedFileDate());
+		writeNullableBoolean(out, event.getRejected());
+		writeSignedLong(out, event.getBplog());
+		writeSignedLong(out, event.getRowId());
+		writeString(out, event.getPdStatus());
+		out.writeBoolean(event.isLogFileNotAvailable());
+		out.writeBoolean(event.isReportFileNotAvailable());
+		writeString(out, event.getBootMode());
+		writeBuild(out, event.getBuild());
+		writeDevice(out, event.getDevice());
+		writeBlob(out, event.getUptimeObj());
+		writeBlob(out, event.getCrashtype());
+		writeString(out, event.getProtocolVersion());
+		writeBlob(out, event.getCampaign());
+		writeModem(out, event.getModem());
+		writeString(out, event.getDeviceLogFileURI());
+		writeSignedLong(out, event.isUploaded());
+		writeSignedLong(out, event.isLogFileUploaded());
+		writeTestCase(out, event.getTestCase());
+	}
+
+	private Event readEvent(Input in) throws IOException {
+		Event event = new Event();
+		event.setId(readNullableLong(in));
+		event.setEventId(readString(in));
+		event.setEvent(readString(in));
+		event.setType(readString(in));
+		event.setData0(readString(in));
+		event.setData1(readString(in));
+		event.setData2(readString(in));
+		event.setData3(readString(in));
+		event.setData4(readString(in));
+		event.setData5(readString(in));
+		event.setDate(readDate(in));
+		event.setDateString(readString(in));
+		event.setBuildId(readString(in));
+		event.setDeviceId(readString(in));
+		event.setTestId(readString(in));
+		event.setUptime(readSignedLong(in));
+		String logFile = readString(in);
+		if (logFile != null) {
+			event.setLogFile(new File(logFile));
+		}
+		event.setLogFileName(readString(in));
+		event.setLogFileURI(readString(in));
+		event.setReportFile(readString(in));
+		event.setImei(readString(in));
+		event.setOrigin(readString(in));
+		event.setFileOrigin(readString(in));
+		event.setInsertedEventDate(readDate(in));
+		event.setInsertedFileDate(readDate(in));
+		event.setRejected(readNullableBoolean(in));
+		event.setBplog((int) readSignedLong(in));
+		event.setRowId(readSignedLong(in));
+		event.setPdStatus(readString(in));
+		event.setLogFileNotAvailable(in.readBoolean());
+		event.setReportFileNotAvailable(in.readBoolean());
+		event.setBootMode(readString(in));
+		event.setBuild(readBuild(in));
+		event.setDevice(readDevice(in));
+		event.setUptimeObj(readBlob(in, Uptime.class));
+		event.setCrashtype(readBlob(in, Crashtype.class));
+		event.setProtocolVersion(readString(in));
+		event.setCampaign(readBlob(in, Campaign.class));
+		event.setModem(readModem(in));
+		event.setDeviceLogFileURI(readString(in));
+		event.setUploaded((int) readSignedLong(in));
+		event.setLogFileUploaded((int) readSignedLong(in));
+		event.setTestCase(readTestCase(in));
+		return event;
+	}
+
+	private void writeBuild(Output out, Build build) throws IOException {
+		if (mVersion >= 2) {
+			writeShared(out, mBuilds, build);
+			return;
+		}
+		out.writeBoolean(build != null);
+		if (build != null) {
+			writeBuildFields(out, build);
+		}
+	}
+
+	private Build readBuild(Input in) throws IOException {
+		if (mVersion >= 2) {
+			return readShared(in, mBuilds);
+		}
+		return in.readBoolean() ? readBuildFields(in) : null;
+	}
+
+	private static void writeBuildFields(Output out, Build build) throws IOException {
+		writeNullableLong(out, build.getId());
+		writeString(out, build.getBuildId());
+		writeString(out, build.getName());
+		writeString(out, build.getFingerPrint());
+		writeString(out, build.getKernelVersion());
+		writeString(out, build.getBuildUserHostname());
+		writeString(out, build.getModemVersion());
+		writeString(out, build.getIfwiVersion());
+		writeString(out, build.getIafwVersion());
+		writeString(out, build.getScufwVersion());
+		writeString(out, build.getPunitVersion());
+		writeString(out, build.getValhooksVersion());
+		writeString(out, build.getVariant());
+		writeString(out, build.getType());
+		writeString(out, build.getOs());
+		writeBlob(out, build.getProject());
+		writeString(out, build.getIngredientsJson());
+		writeBlob(out, build.getIngredients());
+		writeString(out, build.getUniqueKey());
+		writeString(out, build.getUniqueKeyFull());
+		writeString(out, build.getOrganization());
+		writeModem(out, build.getModem());
+		writeModem(out, build.getModemExt());
+		writeString(out, build.getUniqueKeyGenerationMethod());
+		writeStringList(out, build.getUniqueKeyComponents());
+		writeNullableLong(out, build.getMainlineId());
+		writeBlob(out, build.getMainline());
+		writeDate(out, build.getDate());
+		writeString(out, build.getMainlineStr());
+		writeString(out, build.getTargetProduct());
+		writeString(out, build.getTargetProductScalability());
+		writeString(out, build.getProjectConfigName());
+	}
+
+	private static Build readBuildFields(Input in) throws IOException {
+		Build build = new Build();
+		build.setId(readNullableLong(in));
+		build.setBuildId(readString(in));
+		build.setName(readString(in));
+		build.setFingerPrint(readString(in));
+		build.setKernelVersion(readString(in));
+		build.setBuildUserHostname(readString(in));
+		build.setModemVersion(readString(in));
+		build.setIfwiVersion(readString(in));
+		build.setIafwVersion(readString(in));
+		build.setScufwVersion(readString(in));
+		build.setPunitVersion(readString(in));
+		build.setValhooksVersion(readString(in));
+		build.setVariant(readString(in));
+		build.setType(readString(in));
+		build.setOs(readString(in));
+		build.setProject(readBlob(in, Project.class));
+		build.setIngredientsJson(readString(in));
+		build.setIngredients(readBlob(in, Ingredients.class));
+		build.setUniqueKey(readString(in));
+		build.setUniqueKeyFull(readString(in));
+		build.setOrganization(readString(in));
+		build.setModem(readModem(in));
+		build.setModemExt(readModem(in));
+		build.setUniqueKeyGenerationMethod(readString(in));
+		build.setUniqueKeyComponents(readStringList(in));
+		build.setMainlineId(readNullableLong(in));
+		build.setMainline(readBlob(in, Mainline.class));
+		build.setDate(readDate(in));
+		build.setMainlineStr(readString(in));
+		build.setTargetProduct(readString(in));
+		build.setTargetProductScalability(readString(in));
+		build.setProjectConfigName(readString(in));
+		return build;
+	}
+
+	private void writeDevice(Output out, Device device) throws IOException {
+		if (mVersion >= 2) {
+			writeShared(out, mDevices, device);
+			return;
+		}
+		out.writeBoolean(device != null);
+		if (device != null) {
+			writeDeviceFields(out, device);
+		}
+	}
+
+	private Device readDevice(Input in) throws IOException {
+		if (mVersion >= 2) {
+			return readShared(in, mDevices);
+		}
+		return in.readBoolean() ? readDeviceFields(in) : null;
+	}
+
+	private static void writeDeviceFields(Output out, Device device) throws IOException {
+		writeNullableLong(out, device.getId());
+		writeString(out, device.getDeviceId());
+		writeString(out, device.getImei());
+		writeString(out, device.getPid());
+		writeString(out, device.getHwType());
+		writeNullableLong(out, device.getHwTypeId());
+		writeString(out, device.getPlatform());
+		writeString(out, device.getSsn());
+		writeString(out, device.getTeam());
+		writeString(out, device.getDomain());
+		writeString(out, device.getOwner());
+		writeString(out, device.getLocation());
+		writeString(out, device.getTag());
+		writeDate(out, device.getLastUpdatedDate());
+		writeString(out, device.getGcmToken());
+		writeString(out, device.getSpid());
+		writeBlob(out, device.getDeviceTracker());
+		writeString(out, device.getSku());
+	}
+
+	private static Device readDeviceFields(Input in) throws IOException {
+		Device device = new Device();
+		device.setId(readNullableLong(in));
+		device.setDeviceId(readString(in));
+		device.setImei(readString(in));
+		device.setPid(readString(in));
+		device.setHwType(readString(in));
+		device.setHwTypeId(readNullableLong(in));
+		device.setPlatform(readString(in));
+		device.setSsn(readString(in));
+		device.setTeam(readString(in));
+		device.setDomain(readString(in));
+		device.setOwner(readString(in));
+		device.setLocation(readString(in));
+		device.setTag(readString(in));
+		device.setLastUpdatedDate(readDate(in));
+		device.setGcmToken(readString(in));
+		device.setSpid(readString(in));
+		device.setDeviceTracker(readBlob(in, DeviceTracker.class));
+		device.setSku(readString(in));
+		return device;
+	}
+
+	private <T> void writeShared(Output out, Dictionary<T> dictionary, T bean) throws IOException {
+		if (bean == null) {
+			writeVarLong(out, TAG_NULL);
+			return;
+		}
+		//consecutive events usually carry the same bean instance
+		if (bean == dictionary.mLastBean) {
+			writeVarLong(out, TAG_FIRST_REF + dictionary.mLastIndex);
+			return;
+		}
+		Output fields = new Output(256);
+		if (dictionary == mBuilds) {
+			writeBuildFields(fields, (Build) bean);
+		} else {
+			writeDeviceFields(fields, (Device) bean);
+		}
+		String key = fields.toKey();
+		Integer index = dictionary.mIndexes.get(key);
+		if (index != null) {
+			dictionary.setLast(bean, index);
+			writeVarLong(out, TAG_FIRST_REF + index);
+			return;
+		}
+		writeVarLong(out, TAG_NEW);
+		out.write(fields.buffer, 0, fields.count);
+		if (dictionary.mBeans.size() < MAX_DICTIONARY_SIZE) {
+			index = dictionary.mBeans.size();
+			dictionary.mBeans.add(bean);
+			dictionary.mIndexes.put(key, index);
+			dictionary.setLast(bean, index);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T readShared(Input in, Dictionary<T> dictionary) throws IOException {
+		int tag = (int) readVarLong(in);
+		if (tag == TAG_NULL) {
+			return null;
+		}
+		if (tag == TAG_NEW) {
+			T bean = (T) ((dictionary == mBuilds) ? readBuildFields(in) : readDeviceFields(in));
+			if (dictionary.mBeans.size() < MAX_DICTIONARY_SIZE) {
+				dictionary.mBeans.add(bean);
+			}
+			return bean;
+		}
+		int index = tag - TAG_FIRST_REF;
+		if (index < 0 || index >= dictionary.mBeans.size()) {
+			throw new IOException("Unknown dictionary entry " + index);
+		}
+		return dictionary.mBeans.get(index);
+	}
+
+	private static void writeModem(Output out, Modem modem) throws IOException {
+		out.writeBoolean(modem != null);
+		if (modem == null) {
+			return;
+		}
+		writeNullableLong(out, modem.getId());
+		writeString(out, modem.getName());
+		writeString(out, modem.getCpuType());
+		writeNullableLong(out, modem.getNbCores());
+		writeNullableLong(out, modem.getModemVersionSubFamilyId());
+		writeDate(out, modem.getReleaseDate());
+		writeString(out, modem.getReleaseType());
+		writeString(out, modem.getReleaseVersion());
+	}
+
+	private static Modem readModem(Input in) throws IOException {
+		if (!in.readBoolean()) {
+			return null;
+		}
+		Modem modem = new Modem();
+		modem.setId(readNullableLong(in));
+		modem.setName(readString(in));
+		modem.setCpuType(readString(in));
+		modem.setNbCores(readNullableLong(in));
+		modem.setModemVersionSubFamilyId(readNullableLong(in));
+		modem.setReleaseDate(readDate(in));
+		modem.setReleaseType(readString(in));
+		modem.setReleaseVersion(readString(in));
+		return modem;
+	}
+
+	private static void writeTestCase(Output out, TestCase testCase) throws IOException {
+		out.writeBoolean(testCase != null);
+		if (testCase == null) {
+			return;
+		}
+		writeNullableLong(out, testCase.getId());
+		writeString(out, testCase.getUuid());
+		writeString(out, testCase.getName());
+		writeSignedLong(out, testCase.getIteration());
+		writeString(out, testCase.getDateDutString());
+		writeString(out, testCase.getDateHostString());
+		writeString(out, testCase.getEngine());
+	}
+
+	private static TestCase readTestCase(Input in) throws IOException {
+		if (!in.readBoolean()) {
+			return null;
+		}
+		Long id = readNullableLong(in);
+		TestCase testCase = new TestCase(readString(in), readString(in), (int) readSignedLong(in),
+				readString(in), readString(in), readString(in));
+		testCase.setId(id);
+		return testCase;
+	}
+
+	private static void writeVarLong(Output out, long value) {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	private static long readVarLong(Input in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed varint");
+	}
+
+	private static void writeSignedLong(Output out, long value) {
+		writeVarLong(out, (value << 1) ^ (value >> 63));
+	}
+
+	private static long readSignedLong(Input in) throws IOException {
+		long value = readVarLong(in);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static void writeNullableLong(Output out, Long value) {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			writeSignedLong(out, value);
+		}
+	}
+
+	private static Long readNullableLong(Input in) throws IOException {
+		return in.readBoolean() ? Long.valueOf(readSignedLong(in)) : null;
+	}
+
+	private static void writeNullableBoolean(Output out, Boolean value) {
+		out.writeByte((value == null) ? 0 : (value ? 2 : 1));
+	}
+
+	private static Boolean readNullableBoolean(Input in) throws IOException {
+		int value = in.readUnsignedByte();
+		return (value == 0) ? null : Boolean.valueOf(value == 2);
+	}
+
+	private static void writeDate(Output out, Date date) {
+		writeNullableLong(out, (date != null) ? Long.valueOf(date.getTime()) : null);
+	}
+
+	private static Date readDate(Input in) throws IOException {
+		Long time = readNullableLong(in);
+		return (time != null) ? new Date(time) : null;
+	}
+
+	private static void writeString(Output out, String value) {
+		if (value == null) {
+			writeVarLong(out, 0);
+			return;
+		}
+		int length = value.length();
+		int i = 0;
+		//ASCII strings are copied directly, without an intermediate array
+		while (i < length && value.charAt(i) < 0x80) {
+			i++;
+		}
+		if (i < length) {
+			byte[] bytes = value.getBytes(UTF_8);
+			writeVarLong(out, bytes.length + 1);
+			out.write(bytes, 0, bytes.length);
+			return;
+		}
+		writeVarLong(out, length + 1);
+		out.writeAscii(value);
+	}
+
+	private static String readString(Input in) throws IOException {
+		int length = (int) readVarLong(in);
+		if (length == 0) {
+			return null;
+		}
+		int offset = in.skip(length - 1);
+		return new String(in.buffer, offset, length - 1, UTF_8);
+	}
+
+	private static void writeStringList(Output out, List<String> values) {
+		writeVarLong(out, (values == null) ? 0 : values.size() + 1);
+		if (values != null) {
+			for (String value : values) {
+				writeString(out, value);
+			}
+		}
+	}
+
+	private static List<String> readStringList(Input in) throws IOException {
+		int size = (int) readVarLong(in);
+		if (size == 0) {
+			return null;
+		}
+		List<String> values = new ArrayList<String>(size - 1);
+		for (int i = 1; i < size; i++) {
+			values.add(readString(in));
+		}
+		return values;
+	}
+
+	private static void writeBlob(Output out, Object value) throws IOException {
+		if (value == null) {
+			writeVarLong(out, 0);
+			return;
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream objectOut = new ObjectOutputStream(bytes);
+		objectOut.writeObject(value);
+		objectOut.close();
+		writeVarLong(out, bytes.size() + 1);
+		out.write(bytes.toByteArray(), 0, bytes.size());
+	}
+
+	private static <T> T readBlob(Input in, Class<T> type) throws IOException {
+		int length = (int) readVarLong(in);
+		if (length == 0) {
+			return null;
+		}
+		int offset = in.skip(length - 1);
+		ObjectInputStream objectIn = new ObjectInputStream(
+				new ByteArrayInputStream(in.buffer, offset, length - 1));
+		try {
+			return type.cast(objectIn.readObject());
+		} catch (ClassNotFoundException e) {
+			throw new IOException("Unknown class in event : " + e.getMessage());
+		} catch (ClassCastException e) {
+			throw new IOException("Unexpected class in event : " + e.getMessage());
+		} finally {
+			objectIn.close();
+		}
+	}
+
+	/**
+	 * Growable byte buffer, not synchronized unlike ByteArrayOutputStream
+	 */
+	private static final class Output {
+		private byte[] buffer;
+		private int count;
+
+		Output(int capacity) {
+			buffer = new byte[capacity];
+		}
+
+		private void ensure(int length) {
+			if (count + length > buffer.length) {
+				buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + length));
+			}
+		}
+
+		void writeByte(int value) {
+			ensure(1);
+			buffer[count++] = (byte) value;
+		}
+
+		void writeBoolean(boolean value) {
+			writeByte(value ? 1 : 0);
+		}
+
+		void write(byte[] bytes, int offset, int length) {
+			ensure(length);
+			System.arraycopy(bytes, offset, buffer, count, length);
+			count += length;
+		}
+
+		void writeAscii(String value) {
+			int length = value.length();
+			ensure(length);
+			for (int i = 0; i < length; i++) {
+				buffer[count++] = (byte) value.charAt(i);
+			}
+		}
+
+		byte[] toByteArray() {
+			return Arrays.copyOf(buffer, count);
+		}
+
+		/**
+		 * @return a string holding one char per byte written, usable as a map key
+		 */
+		String toKey() {
+			char[] chars = new char[count];
+			for (int i = 0; i < count; i++) {
+				chars[i] = (char) (buffer[i] & 0xFF);
+			}
+			return new String(chars);
+		}
+	}
+
+	/**
+	 * Beans already sent or received on the connection
+	 */
+	private static final class Dictionary<T> {
+		private final List<T> mBeans = new ArrayList<T>();
+		private final Map<String, Integer> mIndexes = new HashMap<String, Integer>();
+		private T mLastBean;
+		private int mLastIndex;
+
+		void setLast(T bean, int index) {
+			mLastBean = bean;
+			mLastIndex = index;
+		}
+	}
+
+	private static final class Input {
+		private final byte[] buffer;
+		private int position;
+
+		Input(byte[] buffer) {
+			this.buffer = buffer;
+		}
+
+		int readUnsignedByte() throws IOException {
+			if (position >= buffer.length) {
+				throw new EOFException();
+			}
+			return buffer[position++] & 0xFF;
+		}
+
+		boolean readBoolean() throws IOException {
+			return readUnsignedByte() != 0;
+		}
+
+		/**
+		 * @return offset of the skipped bytes in buffer
+		 */
+		int skip(int length) throws IOException {
+			if (length < 0 || length > buffer.length - position) {
+				throw new EOFException();
+			}
+			int offset = position;
+			position += length;
+			return offset;
+		}
+	}
+}